@@ -0,0 +1,10 @@
+package reegnz.processor.benchmark;
+
+import reegnz.processor.api.VirtualField;
+
+@VirtualField(specializations = long.class)
+public interface Combiner<T> {
+
+	T combine(T left, T right);
+
+}
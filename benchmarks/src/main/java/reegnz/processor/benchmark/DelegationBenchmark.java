@@ -0,0 +1,65 @@
+package reegnz.processor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of calling through a generated {@code VirtualService}
+ * and its field-backed {@code AbstractVirtualService} compared to a
+ * hand-written delegating class and to calling the implementation directly.
+ * The {@code morphism} parameter controls how many receiver classes the
+ * benchmarked call site observes: 1 is monomorphic, 2 is bimorphic and 4 is
+ * megamorphic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DelegationBenchmark {
+
+	private static final int RECEIVERS = 1024;
+
+	@Param({ Services.DIRECT, Services.HAND_WRITTEN, Services.VIRTUAL, Services.ABSTRACT })
+	private String style;
+
+	@Param({ "1", "2", "4" })
+	private int morphism;
+
+	private Service[] services;
+	private int index;
+	private int value;
+
+	@Setup
+	public void setUp() {
+		services = Services.create(style, morphism, RECEIVERS);
+		value = 42;
+	}
+
+	@Benchmark
+	public int returning() {
+		return next().compute(value);
+	}
+
+	@Benchmark
+	public void returningVoid() {
+		next().consume(value);
+	}
+
+	private Service next() {
+		index = (index + 1) & (RECEIVERS - 1);
+		return services[index];
+	}
+}
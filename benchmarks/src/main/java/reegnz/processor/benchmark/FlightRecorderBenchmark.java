@@ -0,0 +1,74 @@
+package reegnz.processor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the generated {@code RecordedService} against the plain
+ * {@code VirtualService} delegation. Without a recording the two should be
+ * close, run with
+ * {@code -jvmArgsAppend -XX:StartFlightRecording=settings=profile} to measure
+ * the cost of committing the events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FlightRecorderBenchmark {
+
+	private Service virtual;
+	private Service recorded;
+	private int value;
+
+	@Setup
+	public void setUp() {
+		virtual = new Services.VirtualA(new Services.Impl());
+		recorded = new Recorded(new Services.Impl());
+		value = 42;
+	}
+
+	@Benchmark
+	public int virtual() {
+		return virtual.compute(value);
+	}
+
+	@Benchmark
+	public int recorded() {
+		return recorded.compute(value);
+	}
+
+	@Benchmark
+	public void virtualVoid() {
+		virtual.consume(value);
+	}
+
+	@Benchmark
+	public void recordedVoid() {
+		recorded.consume(value);
+	}
+
+	static final class Recorded implements RecordedService {
+		private final Service delegate;
+
+		Recorded(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Service getService() {
+			return delegate;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package reegnz.processor.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures delegation through a generated interface that carries type
+ * variables, bounded wildcards and a recursive bound, as exercised by
+ * {@code VirtualFieldGenericsTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GenericDelegationBenchmark {
+
+	private Transformer<String, List<String>> direct;
+	private Transformer<String, List<String>> handWritten;
+	private Transformer<String, List<String>> virtual;
+	private List<String> values;
+
+	@Setup
+	public void setUp() {
+		direct = new ListTransformer();
+		handWritten = new HandWrittenTransformer(new ListTransformer());
+		virtual = new VirtualListTransformer(new ListTransformer());
+		values = Collections.singletonList("value");
+	}
+
+	@Benchmark
+	public List<String> direct() {
+		return direct.transform("value");
+	}
+
+	@Benchmark
+	public List<String> handWritten() {
+		return handWritten.transform("value");
+	}
+
+	@Benchmark
+	public List<String> virtual() {
+		return virtual.transform("value");
+	}
+
+	@Benchmark
+	public Iterable<? extends String> directWildcard() {
+		return direct.narrow(values);
+	}
+
+	@Benchmark
+	public Iterable<? extends String> handWrittenWildcard() {
+		return handWritten.narrow(values);
+	}
+
+	@Benchmark
+	public Iterable<? extends String> virtualWildcard() {
+		return virtual.narrow(values);
+	}
+
+	static final class ListTransformer implements Transformer<String, List<String>> {
+		private final List<String> result = Collections.singletonList("result");
+
+		@Override
+		public List<String> transform(String value) {
+			return result;
+		}
+
+		@Override
+		public Iterable<? extends String> narrow(Iterable<? super String> values) {
+			return result;
+		}
+	}
+
+	static final class HandWrittenTransformer implements Transformer<String, List<String>> {
+		private final Transformer<String, List<String>> delegate;
+
+		HandWrittenTransformer(Transformer<String, List<String>> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public List<String> transform(String value) {
+			return delegate.transform(value);
+		}
+
+		@Override
+		public Iterable<? extends String> narrow(Iterable<? super String> values) {
+			return delegate.narrow(values);
+		}
+	}
+
+	static final class VirtualListTransformer implements VirtualTransformer<String, List<String>> {
+		private final Transformer<String, List<String>> delegate;
+
+		VirtualListTransformer(Transformer<String, List<String>> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Transformer<String, List<String>> getTransformer() {
+			return delegate;
+		}
+	}
+}
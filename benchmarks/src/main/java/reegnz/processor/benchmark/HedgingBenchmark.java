@@ -0,0 +1,76 @@
+package reegnz.processor.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reegnz.processor.runtime.Hedging;
+
+/**
+ * Samples the latency of a delegate that usually answers in 50 microseconds
+ * but takes 5 milliseconds for one call in fifty, called directly and
+ * through the generated {@code HedgedService} with a backup of the same
+ * kind. Compare the p99 of the samples; the hedged calls pay for the hand-off
+ * to the executor on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HedgingBenchmark {
+
+	private ExecutorService executor;
+	private Service direct;
+	private HedgedService hedged;
+
+	@Setup
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+		direct = new Sluggish();
+		hedged = new HedgedService(new Sluggish(), new Sluggish(), executor, Hedging.DEFAULT_PERCENTILE,
+				TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println(hedged.getServiceHedging().getStats());
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public int direct() {
+		return direct.compute(42);
+	}
+
+	@Benchmark
+	public int hedged() {
+		return hedged.compute(42);
+	}
+
+	static final class Sluggish extends Services.Impl {
+		private static final long FAST_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+		private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+		@Override
+		public int compute(int value) {
+			LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(50) == 0 ? SLOW_NANOS : FAST_NANOS);
+			return super.compute(value);
+		}
+	}
+}
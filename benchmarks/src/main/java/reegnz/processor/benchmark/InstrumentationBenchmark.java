@@ -0,0 +1,80 @@
+package reegnz.processor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reegnz.processor.runtime.MethodMetrics;
+
+/**
+ * Measures the overhead of the generated {@code InstrumentedService} over the
+ * plain {@code VirtualService} delegation, with all threads recording into
+ * the same metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+public class InstrumentationBenchmark {
+
+	private Service virtual;
+	private Service instrumented;
+
+	@Setup
+	public void setUp() {
+		virtual = new Services.VirtualA(new Services.Impl());
+		instrumented = new Instrumented(new Services.Impl());
+	}
+
+	@Benchmark
+	public int virtual() {
+		return virtual.compute(42);
+	}
+
+	@Benchmark
+	public int instrumented() {
+		return instrumented.compute(42);
+	}
+
+	@Benchmark
+	public void virtualVoid() {
+		virtual.consume(42);
+	}
+
+	@Benchmark
+	public void instrumentedVoid() {
+		instrumented.consume(42);
+	}
+
+	static final class Instrumented implements InstrumentedService {
+		private final Service delegate;
+		private final MethodMetrics metrics = InstrumentedService.createMetrics();
+
+		Instrumented(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Service getService() {
+			return delegate;
+		}
+
+		@Override
+		public MethodMetrics getServiceMetrics() {
+			return metrics;
+		}
+	}
+}
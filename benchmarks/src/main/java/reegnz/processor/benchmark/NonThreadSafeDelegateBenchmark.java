@@ -0,0 +1,94 @@
+package reegnz.processor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Shares a delegate that is not thread-safe between threads, either behind a
+ * lock, by creating a delegate per call, through the generated
+ * {@code ThreadConfinedService} that gives every thread its own, or through
+ * the generated {@code PooledService} that borrows one from a pool. The
+ * delegate here is trivial enough for the JIT to remove its allocation, so
+ * creating one per call is a lower bound that real parsers or formatters do
+ * not get anywhere near.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(2)
+public class NonThreadSafeDelegateBenchmark {
+
+	private static final String SYNCHRONIZED = "synchronized";
+	private static final String PER_CALL = "perCall";
+	private static final String THREAD_CONFINED = "threadConfined";
+	private static final String POOLED = "pooled";
+
+	@Param({ SYNCHRONIZED, PER_CALL, THREAD_CONFINED, POOLED })
+	private String style;
+
+	private Service service;
+
+	@Setup
+	public void setUp() {
+		switch (style) {
+		case SYNCHRONIZED:
+			service = new SynchronizedService(new Services.Impl());
+			break;
+		case PER_CALL:
+			service = (VirtualService) Services.Impl::new;
+			break;
+		case THREAD_CONFINED:
+			service = new ThreadConfinedService(Services.Impl::new);
+			break;
+		case POOLED:
+			service = new PooledService(Services.Impl::new, Runtime.getRuntime().availableProcessors());
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown style " + style);
+		}
+	}
+
+	@Benchmark
+	public int returning() {
+		return service.compute(42);
+	}
+
+	@Benchmark
+	public void returningVoid() {
+		service.consume(42);
+	}
+
+	private static final class SynchronizedService implements Service {
+
+		private final Service delegate;
+
+		SynchronizedService(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public synchronized int compute(int value) {
+			return delegate.compute(value);
+		}
+
+		@Override
+		public synchronized void consume(int value) {
+			delegate.consume(value);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package reegnz.processor.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reegnz.processor.VirtualFieldProcessor;
+import reegnz.processor.api.VirtualField;
+
+/**
+ * Measures the compile-time cost of {@link VirtualFieldProcessor} on a
+ * synthetic source tree of generic interfaces with many methods.
+ * <p>
+ * Both benchmarks run javac with {@code -proc:only} on the same sources,
+ * {@code baseline} with a processor that only claims {@link VirtualField}, so
+ * the difference between the two is the time spent generating, including
+ * javac entering the generated sources in the following round and the
+ * bookkeeping of its {@code Filer}. Run with {@code -prof gc} to see the
+ * allocation of a compilation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProcessorBenchmark {
+
+	@Param({ "1000", "5000", "10000" })
+	private int interfaces;
+
+	@Param({ "20" })
+	private int methods;
+
+	private Path root;
+	private List<File> sources;
+	private File output;
+
+	@Setup(Level.Trial)
+	public void generateSources() throws IOException {
+		root = Files.createTempDirectory("processor-benchmark");
+		Path sourceRoot = Files.createDirectories(root.resolve("src/synthetic"));
+		output = Files.createDirectories(root.resolve("out")).toFile();
+		sources = new ArrayList<>(interfaces);
+		for (int i = 0; i < interfaces; i++) {
+			Path file = sourceRoot.resolve("Synthetic" + i + ".java");
+			Files.write(file, source(i).getBytes(StandardCharsets.UTF_8));
+			sources.add(file.toFile());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteSources() throws IOException {
+		try (Stream<Path> files = Files.walk(root)) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	public boolean processor() throws IOException {
+		return compile(new VirtualFieldProcessor());
+	}
+
+	@Benchmark
+	public boolean baseline() throws IOException {
+		return compile(new ClaimingProcessor());
+	}
+
+	private boolean compile(Processor processor) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+			List<String> options = Arrays.asList("-proc:only", "-d", output.getPath(), "-s", output.getPath(),
+					"-classpath", System.getProperty("java.class.path"));
+			JavaCompiler.CompilationTask task = compiler.getTask(new StringWriter(), fileManager, null, options,
+					null, fileManager.getJavaFileObjectsFromFiles(sources));
+			task.setProcessors(Collections.singletonList(processor));
+			return task.call();
+		}
+	}
+
+	private String source(int index) {
+		StringBuilder source = new StringBuilder()
+				.append("package synthetic;\n\n")
+				.append("import java.util.List;\n")
+				.append("import java.util.Map;\n")
+				.append("import reegnz.processor.api.VirtualField;\n\n")
+				.append(index % 10 == 0 ? "@VirtualField(abstractClass = true)\n" : "@VirtualField\n")
+				.append("public interface Synthetic").append(index)
+				.append("<A, B extends Iterable<A>> {\n");
+		for (int i = 0; i < methods; i++) {
+			switch (i % 5) {
+			case 0:
+				source.append("    void run").append(i).append("(int value, String name);\n");
+				break;
+			case 1:
+				source.append("    B map").append(i).append("(A value, List<? super A> values);\n");
+				break;
+			case 2:
+				source.append("    <Z extends Iterable<?>> Map<String, Z> generic").append(i).append("(Z value);\n");
+				break;
+			case 3:
+				source.append("    default long compute").append(i).append("(long a, long b) {\n")
+						.append("        return a + b;\n")
+						.append("    }\n");
+				break;
+			default:
+				source.append("    static int helper").append(i).append("() {\n")
+						.append("        return 0;\n")
+						.append("    }\n");
+				break;
+			}
+		}
+		return source.append("    String toString();\n")
+				.append("}\n")
+				.toString();
+	}
+
+	/**
+	 * Claims the annotation without generating anything.
+	 */
+	private static final class ClaimingProcessor extends AbstractProcessor {
+
+		@Override
+		public Set<String> getSupportedAnnotationTypes() {
+			return Collections.singleton(VirtualField.class.getCanonicalName());
+		}
+
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return SourceVersion.latestSupported();
+		}
+
+		@Override
+		public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+			roundEnv.getElementsAnnotatedWith(VirtualField.class);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package reegnz.processor.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reegnz.processor.runtime.CallLog;
+import reegnz.processor.runtime.CallTrace;
+import reegnz.processor.runtime.CallWriter;
+
+/**
+ * Measures the cost of recording calls through the generated
+ * {@code RecordingService} against the plain {@code VirtualService}
+ * delegation, and of replaying a recorded trace one call per operation, the
+ * way a benchmark would drive a delegate with production load. Every
+ * iteration records into a fresh log; calls past its capacity would be
+ * dropped, which is reported on tear down.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RecordingBenchmark {
+
+	private static final long CAPACITY = 512L * 1024 * 1024;
+	private static final int TRACE_SIZE = 1 << 16;
+
+	private Path file;
+	private CallLog log;
+	private Service virtual;
+	private Service recording;
+	private CallTrace trace;
+	private CallTrace.Dispatcher dispatcher;
+	private int call;
+	private int value;
+
+	@Setup
+	public void setUpTrace() throws IOException {
+		Path traceFile = Files.createTempFile("trace", ".log");
+		try (CallLog traceLog = CallLog.create(traceFile, CAPACITY)) {
+			for (int i = 0; i < TRACE_SIZE; i++) {
+				CallWriter call = traceLog.begin(i & 1);
+				call.writeInt(i);
+				call.end();
+			}
+		}
+		trace = CallTrace.read(traceFile);
+		Files.delete(traceFile);
+		dispatcher = RecordingService.dispatcher(new Services.Impl());
+		virtual = new Services.VirtualA(new Services.Impl());
+		value = 42;
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpLog() throws IOException {
+		file = Files.createTempFile("calls", ".log");
+		log = CallLog.create(file, CAPACITY);
+		recording = new RecordingService(new Services.Impl(), log);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownLog() throws IOException {
+		log.close();
+		Files.delete(file);
+		if (log.getDropped() > 0) {
+			System.out.println("Dropped " + log.getDropped() + " calls, the log was full");
+		}
+	}
+
+	@Benchmark
+	public int virtual() {
+		return virtual.compute(value);
+	}
+
+	@Benchmark
+	public int recording() {
+		return recording.compute(value);
+	}
+
+	@Benchmark
+	public void replay() throws Throwable {
+		trace.replay(call, dispatcher);
+		call = (call + 1) & (TRACE_SIZE - 1);
+	}
+}
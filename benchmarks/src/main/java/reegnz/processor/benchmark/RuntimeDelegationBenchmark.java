@@ -0,0 +1,85 @@
+package reegnz.processor.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reegnz.processor.runtime.Delegates;
+
+/**
+ * Compares the delegates created at runtime by {@link Delegates} with a
+ * reflective {@link Proxy} and with the {@code VirtualService} generated by the
+ * processor, both for calls and for creating a delegating instance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RuntimeDelegationBenchmark {
+
+	private static final String PROXY = "proxy";
+	private static final String RUNTIME = "runtime";
+
+	@Param({ PROXY, RUNTIME, Services.VIRTUAL })
+	private String style;
+
+	private Service impl;
+	private Service service;
+	private int value;
+
+	@Setup
+	public void setUp() {
+		impl = new Services.Impl();
+		service = create(style, impl);
+		value = 42;
+	}
+
+	@Benchmark
+	public int returning() {
+		return service.compute(value);
+	}
+
+	@Benchmark
+	public void returningVoid() {
+		service.consume(value);
+	}
+
+	@Benchmark
+	public Service creating() {
+		return create(style, impl);
+	}
+
+	private static Service create(String style, Service delegate) {
+		switch (style) {
+		case PROXY:
+			return (Service) Proxy.newProxyInstance(Service.class.getClassLoader(), new Class<?>[] { Service.class },
+					(proxy, method, args) -> {
+						try {
+							return method.invoke(delegate, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		case RUNTIME:
+			return Delegates.create(Service.class, delegate);
+		case Services.VIRTUAL:
+			return new Services.VirtualA(delegate);
+		default:
+			throw new IllegalArgumentException("Unknown style " + style);
+		}
+	}
+}
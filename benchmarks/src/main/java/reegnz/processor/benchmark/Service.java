@@ -0,0 +1,15 @@
+package reegnz.processor.benchmark;
+
+import reegnz.processor.api.Idempotent;
+import reegnz.processor.api.VirtualField;
+
+@VirtualField(abstractClass = true, instrumented = true, flightRecorder = true, recording = true,
+		threadConfined = true, pooled = true, writeBehind = true)
+public interface Service {
+
+	@Idempotent
+	int compute(int value);
+
+	void consume(int value);
+
+}
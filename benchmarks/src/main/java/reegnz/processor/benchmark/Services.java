@@ -0,0 +1,247 @@
+package reegnz.processor.benchmark;
+
+/**
+ * Receivers for the delegation benchmarks. Every style comes in four
+ * distinct classes, so a call site can be made monomorphic, bimorphic or
+ * megamorphic just by choosing how many of them it sees.
+ */
+final class Services {
+
+	static final String DIRECT = "direct";
+	static final String HAND_WRITTEN = "handwritten";
+	static final String VIRTUAL = "virtual";
+	static final String ABSTRACT = "abstract";
+
+	private Services() {
+	}
+
+	static Service[] create(String style, int morphism, int size) {
+		Service[] services = new Service[size];
+		for (int i = 0; i < size; i++) {
+			services[i] = create(style, i % morphism);
+		}
+		return services;
+	}
+
+	private static Service create(String style, int kind) {
+		switch (style) {
+		case DIRECT:
+			return direct(kind);
+		case HAND_WRITTEN:
+			return handWritten(kind, new Impl());
+		case VIRTUAL:
+			return virtual(kind, new Impl());
+		case ABSTRACT:
+			return abstractClass(kind, new Impl());
+		default:
+			throw new IllegalArgumentException("Unknown style " + style);
+		}
+	}
+
+	private static Service direct(int kind) {
+		switch (kind) {
+		case 0: return new Impl();
+		case 1: return new ImplB();
+		case 2: return new ImplC();
+		default: return new ImplD();
+		}
+	}
+
+	private static Service handWritten(int kind, Service delegate) {
+		switch (kind) {
+		case 0: return new HandWrittenA(delegate);
+		case 1: return new HandWrittenB(delegate);
+		case 2: return new HandWrittenC(delegate);
+		default: return new HandWrittenD(delegate);
+		}
+	}
+
+	private static Service virtual(int kind, Service delegate) {
+		switch (kind) {
+		case 0: return new VirtualA(delegate);
+		case 1: return new VirtualB(delegate);
+		case 2: return new VirtualC(delegate);
+		default: return new VirtualD(delegate);
+		}
+	}
+
+	private static Service abstractClass(int kind, Service delegate) {
+		switch (kind) {
+		case 0: return new AbstractA(delegate);
+		case 1: return new AbstractB(delegate);
+		case 2: return new AbstractC(delegate);
+		default: return new AbstractD(delegate);
+		}
+	}
+
+	static class Impl implements Service {
+		private int state;
+
+		@Override
+		public int compute(int value) {
+			return value * 31 + state;
+		}
+
+		@Override
+		public void consume(int value) {
+			state += value;
+		}
+	}
+
+	static final class ImplB extends Impl {
+	}
+
+	static final class ImplC extends Impl {
+	}
+
+	static final class ImplD extends Impl {
+	}
+
+	static final class HandWrittenA implements Service {
+		private final Service delegate;
+
+		HandWrittenA(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int compute(int value) {
+			return delegate.compute(value);
+		}
+
+		@Override
+		public void consume(int value) {
+			delegate.consume(value);
+		}
+	}
+
+	static final class HandWrittenB implements Service {
+		private final Service delegate;
+
+		HandWrittenB(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int compute(int value) {
+			return delegate.compute(value);
+		}
+
+		@Override
+		public void consume(int value) {
+			delegate.consume(value);
+		}
+	}
+
+	static final class HandWrittenC implements Service {
+		private final Service delegate;
+
+		HandWrittenC(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int compute(int value) {
+			return delegate.compute(value);
+		}
+
+		@Override
+		public void consume(int value) {
+			delegate.consume(value);
+		}
+	}
+
+	static final class HandWrittenD implements Service {
+		private final Service delegate;
+
+		HandWrittenD(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int compute(int value) {
+			return delegate.compute(value);
+		}
+
+		@Override
+		public void consume(int value) {
+			delegate.consume(value);
+		}
+	}
+
+	static final class VirtualA implements VirtualService {
+		private final Service delegate;
+
+		VirtualA(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Service getService() {
+			return delegate;
+		}
+	}
+
+	static final class VirtualB implements VirtualService {
+		private final Service delegate;
+
+		VirtualB(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Service getService() {
+			return delegate;
+		}
+	}
+
+	static final class VirtualC implements VirtualService {
+		private final Service delegate;
+
+		VirtualC(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Service getService() {
+			return delegate;
+		}
+	}
+
+	static final class VirtualD implements VirtualService {
+		private final Service delegate;
+
+		VirtualD(Service delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Service getService() {
+			return delegate;
+		}
+	}
+
+	static final class AbstractA extends AbstractVirtualService {
+		AbstractA(Service delegate) {
+			super(delegate);
+		}
+	}
+
+	static final class AbstractB extends AbstractVirtualService {
+		AbstractB(Service delegate) {
+			super(delegate);
+		}
+	}
+
+	static final class AbstractC extends AbstractVirtualService {
+		AbstractC(Service delegate) {
+			super(delegate);
+		}
+	}
+
+	static final class AbstractD extends AbstractVirtualService {
+		AbstractD(Service delegate) {
+			super(delegate);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package reegnz.processor.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of a non-thread-safe {@link Tally} shared by all
+ * threads, behind a single synchronized wrapper and behind the generated
+ * {@code ShardedTally}. Run with {@code -t} to see how each scales with the
+ * number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+public class ShardedBenchmark {
+
+	private static final int KEYS = 1024;
+
+	@Param({ "16" })
+	private int shards;
+
+	private Tally synchronizedTally;
+	private Tally shardedTally;
+
+	@Setup
+	public void setUp() {
+		synchronizedTally = new SynchronizedTally(new HashTally());
+		shardedTally = new ShardedTally(shards, HashTally::new);
+	}
+
+	@Benchmark
+	public void synchronizedAdd() {
+		synchronizedTally.add(ThreadLocalRandom.current().nextInt(KEYS), 1);
+	}
+
+	@Benchmark
+	public void shardedAdd() {
+		shardedTally.add(ThreadLocalRandom.current().nextInt(KEYS), 1);
+	}
+
+	@Benchmark
+	public long synchronizedGet() {
+		return synchronizedTally.get(ThreadLocalRandom.current().nextInt(KEYS));
+	}
+
+	@Benchmark
+	public long shardedGet() {
+		return shardedTally.get(ThreadLocalRandom.current().nextInt(KEYS));
+	}
+
+	static final class HashTally implements Tally {
+		private final Map<Integer, long[]> counts = new HashMap<>();
+
+		@Override
+		public void add(int key, long delta) {
+			counts.computeIfAbsent(key, k -> new long[1])[0] += delta;
+		}
+
+		@Override
+		public long get(int key) {
+			long[] count = counts.get(key);
+			return count == null ? 0 : count[0];
+		}
+	}
+
+	static final class SynchronizedTally implements Tally {
+		private final Tally delegate;
+
+		SynchronizedTally(Tally delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public synchronized void add(int key, long delta) {
+			delegate.add(key, delta);
+		}
+
+		@Override
+		public synchronized long get(int key) {
+			return delegate.get(key);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package reegnz.processor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Delegates a generic method with numeric arguments through the generic
+ * {@code VirtualCombiner<Long>} and through the generated
+ * {@code VirtualLongCombiner} specialization. The running total leaves the
+ * range of cached boxes at once, so every generic call boxes its result.
+ * Run with {@code -prof gc} to see the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SpecializationBenchmark {
+
+	private Combiner<Long> generic;
+	private LongCombiner specialized;
+	private long total;
+	private Long boxedTotal;
+
+	@Setup
+	public void setUp() {
+		generic = (VirtualCombiner<Long>) () -> Long::sum;
+		LongCombiner sum = new Sum();
+		specialized = (VirtualLongCombiner) () -> sum;
+		total = 1_000;
+		boxedTotal = total;
+	}
+
+	@Benchmark
+	public Long generic() {
+		boxedTotal = generic.combine(boxedTotal, 7L);
+		return boxedTotal;
+	}
+
+	@Benchmark
+	public long specialized() {
+		total = specialized.combine(total, 7L);
+		return total;
+	}
+
+	static final class Sum implements LongCombiner {
+		@Override
+		public long combine(long left, long right) {
+			return left + right;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package reegnz.processor.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the startup of a JVM that loads every type generated for the
+ * benchmarks, as listed in the class list the processor writes with
+ * {@code -AnativeImage}.
+ * <p>
+ * Every invocation starts a new JVM running {@link Main}. {@code default}
+ * runs it with the CDS archive of the JDK, {@code appCds} with an archive
+ * dumped before the trial from the class list of the JDK followed by the one
+ * of the benchmarks, so the difference between the two is what archiving the
+ * generated types saves. The score is the time of the whole JVM, the
+ * secondary {@code loadMicros} the time {@link Main} took to load the
+ * classes, which shows what the archive saves without the noise of the JVM
+ * starting.
+ * Dumping an archive of application classes needs JDK 10 or later, so run the
+ * benchmarks with such a JDK.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+	private static final String CLASS_LIST = "META-INF/virtual-fields.classlist";
+
+	@Param({ "default", "appCds" })
+	private String sharing;
+
+	private Path root;
+	private List<String> options;
+
+	@Setup(Level.Trial)
+	public void dumpArchive() throws IOException, InterruptedException {
+		root = Files.createTempDirectory("startup-benchmark");
+		options = new ArrayList<>();
+		if (sharing.equals("appCds")) {
+			Path classList = root.resolve("classlist");
+			Path archive = root.resolve("benchmarks.jsa");
+			List<String> classes = new ArrayList<>();
+			Path jdkClassList = Paths.get(System.getProperty("java.home"), "lib", "classlist");
+			if (Files.exists(jdkClassList)) {
+				classes.addAll(Files.readAllLines(jdkClassList, StandardCharsets.UTF_8));
+			}
+			classes.addAll(generatedClasses());
+			classes.add(Main.class.getName().replace('.', '/'));
+			Files.write(classList, classes, StandardCharsets.UTF_8);
+			run("-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + archive);
+			options.add("-XX:SharedArchiveFile=" + archive);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteArchive() throws IOException {
+		try (Stream<Path> files = Files.walk(root)) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	public void startup(LoadTime loadTime) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>(options);
+		command.add(Main.class.getName());
+		String output = run(command.toArray(new String[command.size()])).trim();
+		String[] words = output.split(" ");
+		loadTime.record(Long.parseLong(words[words.length - 2]));
+	}
+
+	/**
+	 * Sums the loading times reported by {@link Main} over all iterations;
+	 * divide {@code loadMicros} by {@code starts} for the time of one start.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class LoadTime {
+
+		public long loadMicros;
+		public long starts;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			loadMicros = 0;
+			starts = 0;
+		}
+
+		void record(long micros) {
+			loadMicros += micros;
+			starts++;
+		}
+	}
+
+	private static String run(String... arguments) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.addAll(Arrays.asList(arguments));
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (InputStream input = process.getInputStream()) {
+			byte[] buffer = new byte[8192];
+			for (int read; (read = input.read(buffer)) != -1;) {
+				output.write(buffer, 0, read);
+			}
+		}
+		String text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+		if (process.waitFor() != 0) {
+			throw new IllegalStateException("Failed to run " + command + ":\n" + text);
+		}
+		return text;
+	}
+
+	static List<String> generatedClasses() throws IOException {
+		InputStream classList = StartupBenchmark.class.getClassLoader().getResourceAsStream(CLASS_LIST);
+		if (classList == null) {
+			throw new IllegalStateException(CLASS_LIST + " is missing, compile with -AnativeImage");
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(classList, StandardCharsets.UTF_8))) {
+			return reader.lines().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Loads the generated types and the interfaces they were generated from,
+	 * without initializing them, as initializing the JFR events of the
+	 * {@code FlightRecorder*} types starts the flight recorder, which takes
+	 * far longer than all of the loading.
+	 */
+	public static final class Main {
+
+		public static void main(String[] args) throws IOException, ClassNotFoundException {
+			ClassLoader classLoader = Main.class.getClassLoader();
+			List<String> classes = generatedClasses();
+			long start = System.nanoTime();
+			for (String name : classes) {
+				Class.forName(name.replace('/', '.'), false, classLoader);
+			}
+			System.out.println("Loaded " + classes.size() + " classes in "
+					+ TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " us");
+		}
+	}
+}
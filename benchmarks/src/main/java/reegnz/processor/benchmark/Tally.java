@@ -0,0 +1,13 @@
+package reegnz.processor.benchmark;
+
+import reegnz.processor.api.ShardKey;
+import reegnz.processor.api.VirtualField;
+
+@VirtualField
+public interface Tally {
+
+	void add(@ShardKey int key, long delta);
+
+	long get(@ShardKey int key);
+
+}
@@ -0,0 +1,12 @@
+package reegnz.processor.benchmark;
+
+import reegnz.processor.api.VirtualField;
+
+@VirtualField
+public interface Transformer<A, B extends Iterable<A>> {
+
+	B transform(A value);
+
+	Iterable<? extends A> narrow(Iterable<? super A> values);
+
+}
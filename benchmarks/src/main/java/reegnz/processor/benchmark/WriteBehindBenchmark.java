@@ -0,0 +1,86 @@
+package reegnz.processor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import reegnz.processor.runtime.WriteBehindQueue;
+
+/**
+ * Measures what a caller of a void method pays through the generated
+ * {@code WriteBehindService} against calling the delegate directly, for a
+ * delegate that returns at once and one that burns some CPU per call, the
+ * way a logger or a metrics sink would. Calls are dropped when the consumer
+ * falls behind, so the producer side is measured rather than the consumer;
+ * the dropped calls are reported on tear down.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WriteBehindBenchmark {
+
+	private static final int CAPACITY = 1 << 16;
+
+	@Param({ "0", "100" })
+	private int tokens;
+
+	private Service direct;
+	private WriteBehindService writeBehind;
+	private int value;
+
+	@Setup
+	public void setUp() {
+		direct = new Slow(tokens);
+		writeBehind = new WriteBehindService(new Slow(tokens), CAPACITY, WriteBehindQueue.WaitStrategy.SLEEPING,
+				WriteBehindQueue.Overflow.DROP);
+		value = 42;
+	}
+
+	@TearDown
+	public void tearDown() {
+		WriteBehindQueue queue = writeBehind.getServiceQueue();
+		queue.close();
+		if (queue.getDropped() > 0) {
+			System.out.println("Dropped " + queue.getDropped() + " calls, the consumer fell behind");
+		}
+	}
+
+	@Benchmark
+	public void direct() {
+		direct.consume(value);
+	}
+
+	@Benchmark
+	public void writeBehind() {
+		writeBehind.consume(value);
+	}
+
+	static final class Slow extends Services.Impl {
+		private final int tokens;
+
+		Slow(int tokens) {
+			this.tokens = tokens;
+		}
+
+		@Override
+		public void consume(int value) {
+			Blackhole.consumeCPU(tokens);
+			super.consume(value);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package reegnz.processor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Generates {@code Abstract<VirtualName>}, a superclass that keeps the
+ * delegate in a final field. Its methods are final and load the field
+ * directly, so the JIT does not have to see through the (often megamorphic)
+ * accessor of the generated interface to inline the delegation.
+ */
+final class AbstractClassGenerator {
+
+	static final String DELEGATE = "delegate";
+
+	private final VirtualFieldModel model;
+
+	AbstractClassGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Abstract" + model.getVirtualClassName().simpleName());
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(FieldSpec.builder(model.getTypeName(), DELEGATE, Modifier.PROTECTED, Modifier.FINAL).build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addModifiers(Modifier.PROTECTED)
+						.addParameter(model.getTypeName(), DELEGATE)
+						.addStatement("this.$L = $L", DELEGATE, DELEGATE)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+						.returns(model.getTypeName())
+						.addStatement("return $L", DELEGATE)
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			builder.addMethod(MethodSpec.overriding(method)
+					.addModifiers(Modifier.FINAL)
+					.addStatement(
+							VirtualFieldProcessor.createStatement(method, "this.$L"),
+							VirtualFieldProcessor.statementArgs(method, DELEGATE))
+					.build());
+		}
+		return builder.build();
+	}
+}
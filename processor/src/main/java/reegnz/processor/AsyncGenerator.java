@@ -0,0 +1,136 @@
+package reegnz.processor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+import reegnz.processor.runtime.AsyncExecutors;
+
+/**
+ * Generates {@code Async<Name>}, the asynchronous twin of the annotated
+ * interface, and {@code Async<Name>Adapter}, which implements it by running
+ * the delegate on an executor. Void methods complete a
+ * {@code CompletableFuture<Void>}, checked exceptions complete the future
+ * exceptionally.
+ */
+final class AsyncGenerator {
+
+	private static final String DELEGATE = AbstractClassGenerator.DELEGATE;
+	private static final String EXECUTOR = "executor";
+
+	private final VirtualFieldModel model;
+	private final ClassName interfaceName;
+
+	AsyncGenerator(VirtualFieldModel model) {
+		this.model = model;
+		this.interfaceName = model.peerClassName("Async" + model.getType().getSimpleName());
+	}
+
+	TypeSpec generateInterface() {
+		TypeSpec.Builder builder = TypeSpec.interfaceBuilder(interfaceName)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType());
+		for (ExecutableElement method : model.getMethods()) {
+			builder.addMethod(signature(method)
+					.addModifiers(Modifier.ABSTRACT)
+					.build());
+		}
+		return builder.build();
+	}
+
+	TypeSpec generateAdapter() {
+		ClassName className = interfaceName.peerClass(interfaceName.simpleName() + "Adapter");
+		TypeName executorType = ClassName.get(Executor.class);
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.parameterized(interfaceName))
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(model.getTypeName(), DELEGATE, Modifier.PRIVATE, Modifier.FINAL)
+				.addField(executorType, EXECUTOR, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("Runs the delegate on the {@link $T#defaultExecutor() default executor}.\n",
+								AsyncExecutors.class)
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(model.getTypeName(), DELEGATE)
+						.addStatement("this($L, $T.defaultExecutor())", DELEGATE, AsyncExecutors.class)
+						.build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(model.getTypeName(), DELEGATE)
+						.addParameter(executorType, EXECUTOR)
+						.addStatement("this.$L = $L", DELEGATE, DELEGATE)
+						.addStatement("this.$L = $L", EXECUTOR, EXECUTOR)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addModifiers(Modifier.PUBLIC)
+						.returns(model.getTypeName())
+						.addStatement("return $L", DELEGATE)
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			builder.addMethod(signature(method)
+					.addAnnotation(Override.class)
+					.addCode(asyncStatement(method))
+					.build());
+		}
+		return builder.build();
+	}
+
+	private MethodSpec.Builder signature(ExecutableElement method) {
+		TypeName resultType = VirtualFieldProcessor.returnsVoid(method)
+				? ClassName.get(Void.class)
+				: TypeName.get(method.getReturnType()).box();
+		MethodSpec.Builder builder = MethodSpec.methodBuilder(method.getSimpleName().toString())
+				.addModifiers(Modifier.PUBLIC)
+				.returns(ParameterizedTypeName.get(ClassName.get(CompletableFuture.class), resultType))
+				.varargs(method.isVarArgs());
+		for (TypeParameterElement typeParameter : method.getTypeParameters()) {
+			builder.addTypeVariable(TypeVariableName.get(typeParameter));
+		}
+		for (VariableElement parameter : method.getParameters()) {
+			builder.addParameter(ParameterSpec.get(parameter));
+		}
+		return builder;
+	}
+
+	private CodeBlock asyncStatement(ExecutableElement method) {
+		String factory = VirtualFieldProcessor.returnsVoid(method) ? "runAsync" : "supplyAsync";
+		Object[] args = VirtualFieldProcessor.statementArgs(method, DELEGATE);
+		if (method.getThrownTypes().isEmpty()) {
+			CodeBlock invocation = CodeBlock.of(VirtualFieldProcessor.createInvocation(method, "this.$L"), args);
+			return CodeBlock.builder()
+					.addStatement("return $T.$L(() -> $L, this.$L)", CompletableFuture.class, factory, invocation,
+							EXECUTOR)
+					.build();
+		}
+		String exception = VirtualFieldProcessor.localName(method, "e");
+		return CodeBlock.builder()
+				.add("return $T.$L(() -> {\n", CompletableFuture.class, factory)
+				.indent()
+				.beginControlFlow("try")
+				.addStatement(VirtualFieldProcessor.createStatement(method, "this.$L"), args)
+				.nextControlFlow("catch ($T $L)", Throwable.class, exception)
+				.addStatement("throw new $T($L)", CompletionException.class, exception)
+				.endControlFlow()
+				.unindent()
+				.addStatement("}, this.$L)", EXECUTOR)
+				.build();
+	}
+}
@@ -0,0 +1,142 @@
+package reegnz.processor;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.api.Batched;
+import reegnz.processor.runtime.Batcher;
+
+/**
+ * Generates {@code Batching<Name>}, which passes the items of every
+ * {@link Batched} method to a {@link Batcher} per method, and delegates all
+ * other methods through the generated interface. The method that flushes the
+ * batchers is named after the interface, as batched writers often declare a
+ * {@code flush()} of their own.
+ */
+final class BatchingGenerator {
+
+	private static final String DELEGATE = AbstractClassGenerator.DELEGATE;
+	private static final String SCHEDULER = "scheduler";
+
+	private final VirtualFieldModel model;
+	private final Map<ExecutableElement, ExecutableElement> bulkMethods;
+
+	/**
+	 * @param bulkMethods the bulk method of every batched method, in the order
+	 *        of the methods
+	 */
+	BatchingGenerator(VirtualFieldModel model, Map<ExecutableElement, ExecutableElement> bulkMethods) {
+		this.model = model;
+		this.bulkMethods = bulkMethods;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Batching" + model.getType().getSimpleName());
+		TypeName schedulerType = ClassName.get(ScheduledExecutorService.class);
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(model.getTypeName(), DELEGATE, Modifier.PRIVATE, Modifier.FINAL);
+		MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+				.addModifiers(Modifier.PUBLIC)
+				.addParameter(model.getTypeName(), DELEGATE)
+				.addParameter(schedulerType, SCHEDULER)
+				.addStatement("this.$L = $L", DELEGATE, DELEGATE);
+		for (Map.Entry<ExecutableElement, ExecutableElement> entry : bulkMethods.entrySet()) {
+			ExecutableElement method = entry.getKey();
+			builder.addField(FieldSpec.builder(batcherType(method), batcherName(method), Modifier.PRIVATE,
+					Modifier.FINAL).build());
+			constructor.addCode(newBatcher(method, entry.getValue()));
+		}
+		builder.addMethod(MethodSpec.constructorBuilder()
+				.addJavadoc("Runs the bulk calls on the {@link $T#defaultScheduler() default scheduler}.\n",
+						Batcher.class)
+				.addModifiers(Modifier.PUBLIC)
+				.addParameter(model.getTypeName(), DELEGATE)
+				.addStatement("this($L, $T.defaultScheduler())", DELEGATE, Batcher.class)
+				.build())
+				.addMethod(constructor.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(model.getTypeName())
+						.addStatement("return $L", DELEGATE)
+						.build());
+		for (ExecutableElement method : bulkMethods.keySet()) {
+			String item = method.getParameters().get(0).getSimpleName().toString();
+			builder.addMethod(MethodSpec.overriding(method)
+					.addStatement(VirtualFieldProcessor.returnsVoid(method) ? "$L.add($L)" : "return $L.submit($L)",
+							batcherName(method), item)
+					.build());
+		}
+		return builder.addMethod(flush()).build();
+	}
+
+	private MethodSpec flush() {
+		CodeBlock.Builder futures = CodeBlock.builder();
+		boolean first = true;
+		for (ExecutableElement method : bulkMethods.keySet()) {
+			futures.add(first ? "$L.flush()" : ", $L.flush()", batcherName(method));
+			first = false;
+		}
+		return MethodSpec.methodBuilder("flush" + model.getType().getSimpleName() + "Batches")
+				.addJavadoc("Passes all buffered items on without waiting for more.\n\n"
+						+ "@return completed when the bulk calls of the buffered items return\n")
+				.addModifiers(Modifier.PUBLIC)
+				.returns(ParameterizedTypeName.get(CompletableFuture.class, Void.class))
+				.addStatement("return $T.allOf($L)", CompletableFuture.class, futures.build())
+				.build();
+	}
+
+	/**
+	 * The bulk call is a lambda, a block that returns no results if either
+	 * method is void.
+	 */
+	private CodeBlock newBatcher(ExecutableElement method, ExecutableElement bulkMethod) {
+		Batched batched = method.getAnnotation(Batched.class);
+		CodeBlock settings = CodeBlock.of("$L, $T.$L.toNanos($L), $L, $L", batched.maxSize(),
+				batched.timeUnit().getDeclaringClass(), batched.timeUnit().name(), batched.maxDelay(),
+				batched.capacity(), SCHEDULER);
+		CodeBlock.Builder builder = CodeBlock.builder();
+		if (VirtualFieldProcessor.returnsVoid(bulkMethod) || VirtualFieldProcessor.returnsVoid(method)) {
+			return builder.add("this.$L = new $T<>(items -> {\n", batcherName(method), Batcher.class)
+					.indent()
+					.addStatement("$L.$L(items)", DELEGATE, bulkMethod.getSimpleName())
+					.addStatement("return null")
+					.unindent()
+					.addStatement("}, $L)", settings)
+					.build();
+		}
+		return builder.addStatement("this.$L = new $T<>(items -> $L.$L(items), $L)", batcherName(method),
+				Batcher.class, DELEGATE, bulkMethod.getSimpleName(), settings)
+				.build();
+	}
+
+	private TypeName batcherType(ExecutableElement method) {
+		TypeName itemType = TypeName.get(method.getParameters().get(0).asType()).box();
+		TypeName resultType = VirtualFieldProcessor.returnsVoid(method)
+				? ClassName.get(Void.class)
+				: TypeName.get(((DeclaredType) method.getReturnType()).getTypeArguments().get(0));
+		return ParameterizedTypeName.get(ClassName.get(Batcher.class), itemType, resultType);
+	}
+
+	private String batcherName(ExecutableElement method) {
+		return model.getMethodId(method) + "Batcher";
+	}
+}
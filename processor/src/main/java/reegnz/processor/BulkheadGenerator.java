@@ -0,0 +1,118 @@
+package reegnz.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.api.Bulkhead;
+import reegnz.processor.runtime.ConcurrencyLimiter;
+
+/**
+ * Generates {@code Bulkhead<Name>}, which takes a permit of a
+ * {@link ConcurrencyLimiter} around every delegated call of a method with a
+ * {@link Bulkhead} limit. Methods limited on the interface share one limiter,
+ * methods without any limit are delegated through the generated interface.
+ */
+final class BulkheadGenerator {
+
+	private static final String DELEGATE = AbstractClassGenerator.DELEGATE;
+	private static final String SHARED = "limiter";
+
+	private final VirtualFieldModel model;
+	private final Bulkhead shared;
+
+	BulkheadGenerator(VirtualFieldModel model) {
+		this.model = model;
+		this.shared = model.getType().getAnnotation(Bulkhead.class);
+	}
+
+	static boolean hasBulkhead(Element element) {
+		return element.getAnnotation(Bulkhead.class) != null;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Bulkhead" + model.getType().getSimpleName());
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(model.getTypeName(), DELEGATE, Modifier.PRIVATE, Modifier.FINAL);
+		MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+				.addModifiers(Modifier.PUBLIC)
+				.addParameter(model.getTypeName(), DELEGATE)
+				.addStatement("this.$L = $L", DELEGATE, DELEGATE);
+		List<MethodSpec> getters = new ArrayList<>();
+		if (shared != null) {
+			addLimiter(builder, constructor, getters, SHARED, model.getType().getSimpleName().toString(), shared,
+					"the methods without a limit of their own");
+		}
+		for (ExecutableElement method : model.getMethods()) {
+			Bulkhead bulkhead = method.getAnnotation(Bulkhead.class);
+			if (bulkhead != null) {
+				addLimiter(builder, constructor, getters, limiterName(method),
+						model.getType().getSimpleName() + "." + method.getSimpleName(), bulkhead,
+						"{@code " + method.getSimpleName() + "}");
+			}
+		}
+		builder.addMethod(constructor.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(model.getTypeName())
+						.addStatement("return $L", DELEGATE)
+						.build())
+				.addMethods(getters);
+		for (ExecutableElement method : model.getMethods()) {
+			if (hasBulkhead(method)) {
+				builder.addMethod(limitedMethod(method, limiterName(method)));
+			} else if (shared != null) {
+				builder.addMethod(limitedMethod(method, SHARED));
+			}
+		}
+		return builder.build();
+	}
+
+	private void addLimiter(TypeSpec.Builder builder, MethodSpec.Builder constructor, List<MethodSpec> getters,
+			String field, String name, Bulkhead bulkhead, String limited) {
+		builder.addField(ConcurrencyLimiter.class, field, Modifier.PRIVATE, Modifier.FINAL);
+		getters.add(MethodSpec.methodBuilder("get" + Character.toUpperCase(field.charAt(0)) + field.substring(1))
+				.addJavadoc("@return the limiter of $L, to tune at runtime\n", limited)
+				.addModifiers(Modifier.PUBLIC)
+				.returns(ConcurrencyLimiter.class)
+				.addStatement("return this.$L", field)
+				.build());
+		constructor.addStatement("this.$L = new $T($S, $L, $L)", field, ConcurrencyLimiter.class, name,
+				bulkhead.maxConcurrent(), toNanos(bulkhead));
+	}
+
+	private static CodeBlock toNanos(Bulkhead bulkhead) {
+		return CodeBlock.of("$T.$L.toNanos($L)", bulkhead.timeUnit().getDeclaringClass(),
+				bulkhead.timeUnit().name(), bulkhead.maxWait());
+	}
+
+	private MethodSpec limitedMethod(ExecutableElement method, String limiter) {
+		return MethodSpec.overriding(method)
+				.addStatement("this.$L.acquire()", limiter)
+				.beginControlFlow("try")
+				.addStatement(VirtualFieldProcessor.createStatement(method, "this.$L"),
+						VirtualFieldProcessor.statementArgs(method, DELEGATE))
+				.nextControlFlow("finally")
+				.addStatement("this.$L.release()", limiter)
+				.endControlFlow()
+				.build();
+	}
+
+	private String limiterName(ExecutableElement method) {
+		return model.getMethodId(method) + "Limiter";
+	}
+}
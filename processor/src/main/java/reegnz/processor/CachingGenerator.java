@@ -0,0 +1,248 @@
+package reegnz.processor;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.api.Cacheable;
+import reegnz.processor.runtime.BoundedCache;
+import reegnz.processor.runtime.CacheKeys;
+import reegnz.processor.runtime.CacheStats;
+
+/**
+ * Generates {@code Caching<Name>}, which memoizes the results of the
+ * {@link Cacheable} methods in a {@link BoundedCache} per method and delegates
+ * all other methods through the generated interface.
+ * <p>
+ * A single reference argument is used as the key as is, methods with more,
+ * primitive or array arguments get a dedicated key class that keeps
+ * primitives unboxed and copies arrays. The accessors of the caches are named
+ * after the interface, so they do not clash with its methods.
+ */
+final class CachingGenerator {
+
+	private static final String DELEGATE = AbstractClassGenerator.DELEGATE;
+
+	private final VirtualFieldModel model;
+	private final ClassName className;
+
+	CachingGenerator(VirtualFieldModel model) {
+		this.model = model;
+		this.className = model.peerClassName("Caching" + model.getType().getSimpleName());
+	}
+
+	static boolean isCacheable(ExecutableElement method) {
+		return method.getAnnotation(Cacheable.class) != null;
+	}
+
+	TypeSpec generate() {
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(model.getTypeName(), DELEGATE, Modifier.PRIVATE, Modifier.FINAL);
+		List<ExecutableElement> methods = model.getMethods().stream()
+				.filter(CachingGenerator::isCacheable)
+				.collect(toList());
+		for (ExecutableElement method : methods) {
+			builder.addField(cacheField(method));
+		}
+		builder.addMethod(MethodSpec.constructorBuilder()
+				.addModifiers(Modifier.PUBLIC)
+				.addParameter(model.getTypeName(), DELEGATE)
+				.addStatement("this.$L = $L", DELEGATE, DELEGATE)
+				.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(model.getTypeName())
+						.addStatement("return $L", DELEGATE)
+						.build());
+		for (ExecutableElement method : methods) {
+			builder.addMethod(cachingMethod(method));
+		}
+		builder.addMethod(cacheStats(methods))
+				.addMethod(invalidateAll(methods));
+		for (ExecutableElement method : methods) {
+			if (needsKeyClass(method)) {
+				builder.addType(keyClass(method));
+			}
+		}
+		return builder.build();
+	}
+
+	private FieldSpec cacheField(ExecutableElement method) {
+		Cacheable cacheable = method.getAnnotation(Cacheable.class);
+		TypeName cacheType = ParameterizedTypeName.get(ClassName.get(BoundedCache.class), TypeName.OBJECT,
+				TypeName.get(method.getReturnType()).box());
+		CodeBlock expireAfterWrite = cacheable.expireAfterWrite() == 0
+				? CodeBlock.of("0")
+				: CodeBlock.of("$T.$L.toNanos($L)", cacheable.timeUnit().getDeclaringClass(),
+						cacheable.timeUnit().name(), cacheable.expireAfterWrite());
+		return FieldSpec.builder(cacheType, cacheName(method), Modifier.PRIVATE, Modifier.FINAL)
+				.initializer("new $T<>($L, $L)", BoundedCache.class, cacheable.maximumSize(), expireAfterWrite)
+				.build();
+	}
+
+	private MethodSpec cachingMethod(ExecutableElement method) {
+		String key = VirtualFieldProcessor.localName(method, "key");
+		String value = VirtualFieldProcessor.localName(method, "value");
+		String cache = cacheName(method);
+		return MethodSpec.overriding(method)
+				.addStatement("$T $L = $L", Object.class, key, keyExpression(method))
+				.addStatement("$T $L = $L.get($L)", TypeName.get(method.getReturnType()).box(), value, cache, key)
+				.beginControlFlow("if ($L == null)", value)
+				.addStatement(
+						value + " = " + VirtualFieldProcessor.createInvocation(method, "this.$L"),
+						VirtualFieldProcessor.statementArgs(method, DELEGATE))
+				.addStatement("$L.put($L, $L)", cache, key, value)
+				.endControlFlow()
+				.addStatement("return $L", value)
+				.build();
+	}
+
+	private CodeBlock keyExpression(ExecutableElement method) {
+		List<? extends VariableElement> parameters = method.getParameters();
+		if (parameters.isEmpty()) {
+			return CodeBlock.of("$T.NO_ARGS", CacheKeys.class);
+		}
+		if (!needsKeyClass(method)) {
+			return CodeBlock.of("$L", parameters.get(0).getSimpleName());
+		}
+		String args = parameters.stream()
+				.map(e -> e.getSimpleName().toString())
+				.collect(joining(", "));
+		return CodeBlock.of("new $L($L)", keyClassName(method), args);
+	}
+
+	private boolean needsKeyClass(ExecutableElement method) {
+		List<? extends VariableElement> parameters = method.getParameters();
+		if (parameters.size() != 1) {
+			return !parameters.isEmpty();
+		}
+		TypeKind kind = parameters.get(0).asType().getKind();
+		return kind.isPrimitive() || kind == TypeKind.ARRAY;
+	}
+
+	private TypeSpec keyClass(ExecutableElement method) {
+		ClassName keyClass = className.nestedClass(keyClassName(method));
+		TypeSpec.Builder builder = TypeSpec.classBuilder(keyClass)
+				.addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
+		MethodSpec.Builder constructor = MethodSpec.constructorBuilder();
+		CodeBlock.Builder equals = CodeBlock.builder();
+		MethodSpec.Builder hashCode = MethodSpec.methodBuilder("hashCode")
+				.addAnnotation(Override.class)
+				.addModifiers(Modifier.PUBLIC)
+				.returns(TypeName.INT);
+		boolean first = true;
+		for (VariableElement parameter : method.getParameters()) {
+			String name = parameter.getSimpleName().toString();
+			TypeMirror type = parameter.asType();
+			TypeName fieldType = type.getKind().isPrimitive() ? TypeName.get(type) : TypeName.OBJECT;
+			builder.addField(fieldType, name, Modifier.PRIVATE, Modifier.FINAL);
+			constructor.addParameter(fieldType, name);
+			if (type.getKind() == TypeKind.ARRAY) {
+				constructor.addStatement("this.$L = $T.copy($L)", name, CacheKeys.class, name);
+			} else {
+				constructor.addStatement("this.$L = $L", name, name);
+			}
+			if (first) {
+				first = false;
+				hashCode.addStatement("int hash = $L", hashExpression(type, name));
+			} else {
+				equals.add(" && ");
+				hashCode.addStatement("hash = 31 * hash + $L", hashExpression(type, name));
+			}
+			equals.add(equalsExpression(type, name));
+		}
+		MethodSpec equalsMethod = MethodSpec.methodBuilder("equals")
+				.addAnnotation(Override.class)
+				.addModifiers(Modifier.PUBLIC)
+				.returns(TypeName.BOOLEAN)
+				.addParameter(Object.class, "object")
+				.beginControlFlow("if (this == object)")
+				.addStatement("return true")
+				.endControlFlow()
+				.beginControlFlow("if (!(object instanceof $T))", keyClass)
+				.addStatement("return false")
+				.endControlFlow()
+				.addStatement("$T that = ($T) object", keyClass, keyClass)
+				.addStatement("return $L", equals.build())
+				.build();
+		return builder.addMethod(constructor.build())
+				.addMethod(equalsMethod)
+				.addMethod(hashCode.addStatement("return hash").build())
+				.build();
+	}
+
+	private CodeBlock equalsExpression(TypeMirror type, String name) {
+		switch (type.getKind()) {
+		case FLOAT:
+			return CodeBlock.of("$T.compare(this.$L, that.$L) == 0", Float.class, name, name);
+		case DOUBLE:
+			return CodeBlock.of("$T.compare(this.$L, that.$L) == 0", Double.class, name, name);
+		default:
+			if (type.getKind().isPrimitive()) {
+				return CodeBlock.of("this.$L == that.$L", name, name);
+			}
+			return CodeBlock.of("$T.equal(this.$L, that.$L)", CacheKeys.class, name, name);
+		}
+	}
+
+	private CodeBlock hashExpression(TypeMirror type, String name) {
+		if (type.getKind().isPrimitive()) {
+			return CodeBlock.of("$T.hashCode(this.$L)", TypeName.get(type).box(), name);
+		}
+		return CodeBlock.of("$T.hash(this.$L)", CacheKeys.class, name);
+	}
+
+	private MethodSpec cacheStats(List<ExecutableElement> methods) {
+		TypeName statsType = ParameterizedTypeName.get(Map.class, String.class, CacheStats.class);
+		MethodSpec.Builder builder = MethodSpec.methodBuilder(model.getDelegateMethodName() + "CacheStats")
+				.addJavadoc("@return the cache statistics of every cached method by method name\n")
+				.addModifiers(Modifier.PUBLIC)
+				.returns(statsType)
+				.addStatement("$T stats = new $T<>()", statsType, LinkedHashMap.class);
+		for (ExecutableElement method : methods) {
+			builder.addStatement("stats.put($S, $L.stats())", model.getMethodId(method), cacheName(method));
+		}
+		return builder.addStatement("return stats").build();
+	}
+
+	private MethodSpec invalidateAll(List<ExecutableElement> methods) {
+		MethodSpec.Builder builder = MethodSpec.methodBuilder("invalidate" + model.getType().getSimpleName() + "Caches")
+				.addJavadoc("Empties the caches of every cached method.\n")
+				.addModifiers(Modifier.PUBLIC);
+		for (ExecutableElement method : methods) {
+			builder.addStatement("$L.invalidateAll()", cacheName(method));
+		}
+		return builder.build();
+	}
+
+	private String cacheName(ExecutableElement method) {
+		return model.getMethodId(method) + "Cache";
+	}
+
+	private String keyClassName(ExecutableElement method) {
+		return model.getMethodClassName(method, "Key");
+	}
+}
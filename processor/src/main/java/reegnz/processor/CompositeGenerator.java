@@ -0,0 +1,189 @@
+package reegnz.processor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeParameterElement;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+import reegnz.processor.runtime.Broadcast;
+import reegnz.processor.runtime.Reducer;
+
+/**
+ * Generates {@code Composite<Name>}, which implements the annotated interface
+ * by calling every delegate of a copy-on-write array. Void methods are
+ * broadcast with {@link Broadcast}, on the calling thread or on the executor of
+ * the composite, the results of other methods are combined by a
+ * {@link Reducer} returned from an overridable method.
+ */
+final class CompositeGenerator {
+
+	private static final String DELEGATES = "delegates";
+	private static final String EXECUTOR = "executor";
+
+	private final VirtualFieldModel model;
+	private final TypeName arrayType;
+
+	CompositeGenerator(VirtualFieldModel model) {
+		this.model = model;
+		this.arrayType = ArrayTypeName.of(model.getTypeName());
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Composite" + model.getType().getSimpleName());
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(ClassName.get(Executor.class), EXECUTOR, Modifier.PRIVATE, Modifier.FINAL)
+				.addField(FieldSpec.builder(arrayType, DELEGATES, Modifier.PRIVATE, Modifier.VOLATILE).build())
+				.addMethod(constructor(false)
+						.addJavadoc("Calls the delegates one after the other on the calling thread.\n")
+						.addStatement("this(null, $L)", DELEGATES)
+						.build())
+				.addMethod(constructor(true)
+						.addJavadoc("Broadcasts void methods to the delegates in parallel on the executor.\n")
+						.addStatement("this.$L = $L", EXECUTOR, EXECUTOR)
+						.addStatement("this.$L = $L.clone()", DELEGATES, DELEGATES)
+						.build())
+				.addMethod(addDelegate())
+				.addMethod(removeDelegate())
+				.addMethod(MethodSpec.methodBuilder("getDelegates")
+						.addJavadoc("@return a snapshot of the current delegates\n")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(ParameterizedTypeName.get(ClassName.get(List.class), model.getTypeName()))
+						.addStatement("return $T.unmodifiableList($T.asList(this.$L))", Collections.class,
+								Arrays.class, DELEGATES)
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			if (VirtualFieldProcessor.returnsVoid(method)) {
+				builder.addMethod(broadcastMethod(method));
+			} else {
+				builder.addMethod(reducingMethod(method));
+				builder.addMethod(reducerMethod(method));
+			}
+		}
+		return builder.build();
+	}
+
+	private MethodSpec.Builder constructor(boolean withExecutor) {
+		MethodSpec.Builder builder = MethodSpec.constructorBuilder()
+				.addModifiers(Modifier.PUBLIC);
+		if (!model.getTypeVariables().isEmpty()) {
+			builder.addAnnotation(SafeVarargs.class);
+		}
+		if (withExecutor) {
+			builder.addParameter(ClassName.get(Executor.class), EXECUTOR);
+		}
+		return builder.addParameter(arrayType, DELEGATES)
+				.varargs();
+	}
+
+	private MethodSpec addDelegate() {
+		return MethodSpec.methodBuilder("addDelegate")
+				.addModifiers(Modifier.PUBLIC, Modifier.SYNCHRONIZED)
+				.addParameter(model.getTypeName(), "delegate")
+				.addStatement("$T current = this.$L", arrayType, DELEGATES)
+				.addStatement("$T updated = $T.copyOf(current, current.length + 1)", arrayType, Arrays.class)
+				.addStatement("updated[current.length] = delegate")
+				.addStatement("this.$L = updated", DELEGATES)
+				.build();
+	}
+
+	private MethodSpec removeDelegate() {
+		return MethodSpec.methodBuilder("removeDelegate")
+				.addJavadoc("@return whether the delegate was found and removed\n")
+				.addModifiers(Modifier.PUBLIC, Modifier.SYNCHRONIZED)
+				.returns(TypeName.BOOLEAN)
+				.addParameter(model.getTypeName(), "delegate")
+				.addStatement("$T current = this.$L", arrayType, DELEGATES)
+				.beginControlFlow("for (int i = 0; i < current.length; i++)")
+				.beginControlFlow("if ($T.equals(current[i], delegate))", Objects.class)
+				.addStatement("$T updated = $T.copyOf(current, current.length - 1)", arrayType, Arrays.class)
+				.addStatement("$T.arraycopy(current, i + 1, updated, i, current.length - i - 1)", System.class)
+				.addStatement("this.$L = updated", DELEGATES)
+				.addStatement("return true")
+				.endControlFlow()
+				.endControlFlow()
+				.addStatement("return false")
+				.build();
+	}
+
+	private MethodSpec broadcastMethod(ExecutableElement method) {
+		String delegate = VirtualFieldProcessor.localName(method, "delegate");
+		CodeBlock invocation = invocation(method, delegate);
+		return MethodSpec.overriding(method)
+				.beginControlFlow("if (this.$L == null)", EXECUTOR)
+				.addStatement("$T.sequential(this.$L, $L -> $L)", Broadcast.class, DELEGATES, delegate, invocation)
+				.nextControlFlow("else")
+				.addStatement("$T.parallel(this.$L, this.$L, $L -> $L)", Broadcast.class, DELEGATES, EXECUTOR,
+						delegate, invocation)
+				.endControlFlow()
+				.build();
+	}
+
+	private MethodSpec reducingMethod(ExecutableElement method) {
+		String delegates = VirtualFieldProcessor.localName(method, DELEGATES);
+		String reducer = VirtualFieldProcessor.localName(method, "reducer");
+		String result = VirtualFieldProcessor.localName(method, "result");
+		String index = VirtualFieldProcessor.localName(method, "i");
+		TypeName resultType = TypeName.get(method.getReturnType()).box();
+		return MethodSpec.overriding(method)
+				.addStatement("$T $L = this.$L", arrayType, delegates, DELEGATES)
+				.beginControlFlow("if ($L.length == 0)", delegates)
+				.addStatement("throw new $T($S)", IllegalStateException.class,
+						"No delegates to call " + method.getSimpleName() + " on")
+				.endControlFlow()
+				.addStatement("$T $L = $L()", reducerType(resultType), reducer, reducerMethodName(method))
+				.addStatement("$T $L = $L.start($L)", resultType, result, reducer,
+						invocation(method, delegates + "[0]"))
+				.beginControlFlow("for (int $L = 1; $L < $L.length; $L++)", index, index, delegates, index)
+				.addStatement("$L = $L.reduce($L, $L)", result, reducer, result,
+						invocation(method, delegates + "[" + index + "]"))
+				.endControlFlow()
+				.addStatement("return $L", result)
+				.build();
+	}
+
+	private MethodSpec reducerMethod(ExecutableElement method) {
+		MethodSpec.Builder builder = MethodSpec.methodBuilder(reducerMethodName(method))
+				.addJavadoc("@return the reducer of the results of {@code $L}, the first result by default\n",
+						method.getSimpleName())
+				.addModifiers(Modifier.PROTECTED)
+				.returns(reducerType(TypeName.get(method.getReturnType()).box()))
+				.addStatement("return $T.first()", Reducer.class);
+		for (TypeParameterElement typeParameter : method.getTypeParameters()) {
+			builder.addTypeVariable(TypeVariableName.get(typeParameter));
+		}
+		return builder.build();
+	}
+
+	private String reducerMethodName(ExecutableElement method) {
+		return model.getMethodId(method) + "Reducer";
+	}
+
+	private static TypeName reducerType(TypeName resultType) {
+		return ParameterizedTypeName.get(ClassName.get(Reducer.class), resultType);
+	}
+
+	private static CodeBlock invocation(ExecutableElement method, String receiver) {
+		return CodeBlock.of(VirtualFieldProcessor.createInvocation(method, "$L"),
+				VirtualFieldProcessor.statementArgs(method, receiver));
+	}
+}
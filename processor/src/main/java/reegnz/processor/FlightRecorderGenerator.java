@@ -0,0 +1,177 @@
+package reegnz.processor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+/**
+ * Generates {@code Recorded<Name>}, an extension of the generated interface
+ * whose default methods emit a JDK Flight Recorder event for every delegated
+ * call. Every method gets its own nested event class, with a field for every
+ * parameter. The fields are only filled in when the event is going to be
+ * committed, so with recording off a call costs an event allocation that
+ * escape analysis removes and a {@code shouldCommit()} check. Arguments are
+ * converted to strings in a {@code try} block, so a throwing
+ * {@code toString()} never changes the outcome of the call.
+ */
+final class FlightRecorderGenerator {
+
+	private static final String JFR_PACKAGE = "jdk.jfr";
+	private static final ClassName EVENT = ClassName.get(JFR_PACKAGE, "Event");
+	private static final ClassName NAME = ClassName.get(JFR_PACKAGE, "Name");
+	private static final ClassName LABEL = ClassName.get(JFR_PACKAGE, "Label");
+	private static final ClassName CATEGORY = ClassName.get(JFR_PACKAGE, "Category");
+	private static final ClassName STRING = ClassName.get(String.class);
+	private static final String CATEGORY_NAME = "Virtual Field";
+	private static final Set<String> RESERVED_FIELDS = new HashSet<>(
+			Arrays.asList("startTime", "duration", "eventThread", "stackTrace"));
+
+	private final VirtualFieldModel model;
+	private final ClassName className;
+
+	FlightRecorderGenerator(VirtualFieldModel model) {
+		this.model = model;
+		this.className = model.peerClassName("Recorded" + model.getType().getSimpleName());
+	}
+
+	TypeSpec generate() {
+		TypeSpec.Builder builder = TypeSpec.interfaceBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType());
+		List<ExecutableElement> methods = model.getMethods();
+		for (ExecutableElement method : methods) {
+			builder.addMethod(recordedMethod(method));
+		}
+		for (ExecutableElement method : methods) {
+			builder.addType(eventClass(method));
+		}
+		return builder.build();
+	}
+
+	private MethodSpec recordedMethod(ExecutableElement method) {
+		ClassName eventClass = eventClassName(method);
+		String event = VirtualFieldProcessor.localName(method, "event");
+		MethodSpec.Builder builder = MethodSpec.overriding(method)
+				.addModifiers(Modifier.DEFAULT)
+				.addStatement("$T $L = new $T()", eventClass, event, eventClass)
+				.addStatement("$L.begin()", event)
+				.beginControlFlow("try")
+				.addStatement(
+						VirtualFieldProcessor.createStatement(method, "$L()"),
+						VirtualFieldProcessor.statementArgs(method, model.getDelegateMethodName()))
+				.nextControlFlow("finally")
+				.beginControlFlow("if ($L.shouldCommit())", event);
+		CodeBlock.Builder conversions = CodeBlock.builder();
+		for (VariableElement parameter : method.getParameters()) {
+			String name = parameter.getSimpleName().toString();
+			TypeMirror type = parameter.asType();
+			if (type.getKind() == TypeKind.ARRAY) {
+				if (((ArrayType) type).getComponentType().getKind().isPrimitive()) {
+					builder.addStatement("$L.$L = $T.toString($L)", event, fieldName(name), Arrays.class, name);
+				} else {
+					conversions.addStatement("$L.$L = $T.deepToString($L)", event, fieldName(name), Arrays.class,
+							name);
+				}
+			} else if (isRecordedAsString(type)) {
+				conversions.addStatement("$L.$L = $T.valueOf($L)", event, fieldName(name), String.class, name);
+			} else {
+				builder.addStatement("$L.$L = $L", event, fieldName(name), name);
+			}
+		}
+		CodeBlock converted = conversions.build();
+		if (!converted.isEmpty()) {
+			builder.beginControlFlow("try")
+					.addCode(converted)
+					.nextControlFlow("catch ($T $L)", RuntimeException.class,
+							VirtualFieldProcessor.localName(method, "e"))
+					.addComment("a failing toString() leaves the remaining arguments empty")
+					.endControlFlow();
+		}
+		return builder.addStatement("$L.commit()", event)
+				.endControlFlow()
+				.endControlFlow()
+				.build();
+	}
+
+	private TypeSpec eventClass(ExecutableElement method) {
+		String methodId = model.getMethodId(method);
+		String typeName = model.getType().getSimpleName().toString();
+		TypeSpec.Builder builder = TypeSpec.classBuilder(eventClassName(method))
+				.addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+				.superclass(EVENT)
+				.addAnnotation(AnnotationSpec.builder(NAME)
+						.addMember("value", "$S", model.getType().getQualifiedName() + "." + methodId)
+						.build())
+				.addAnnotation(AnnotationSpec.builder(LABEL)
+						.addMember("value", "$S", typeName + "." + methodId)
+						.build())
+				.addAnnotation(AnnotationSpec.builder(CATEGORY)
+						.addMember("value", "{$S, $S}", CATEGORY_NAME, typeName)
+						.build());
+		for (VariableElement parameter : method.getParameters()) {
+			String name = parameter.getSimpleName().toString();
+			TypeMirror type = parameter.asType();
+			TypeName fieldType = recordedType(type);
+			builder.addField(FieldSpec.builder(fieldType, fieldName(name))
+					.addAnnotation(AnnotationSpec.builder(LABEL).addMember("value", "$S", name).build())
+					.build());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Flight Recorder events can only hold primitives, strings, threads and
+	 * classes, everything else is recorded as its string representation.
+	 * Arrays are recorded with their elements, which also keeps a
+	 * {@code null char[]} from throwing in {@code String.valueOf(char[])}.
+	 */
+	private TypeName recordedType(TypeMirror type) {
+		TypeName typeName = TypeName.get(type);
+		if (type.getKind().isPrimitive()) {
+			return typeName;
+		}
+		if (typeName instanceof ParameterizedTypeName) {
+			typeName = ((ParameterizedTypeName) typeName).rawType;
+		}
+		if (typeName.equals(ClassName.get(Thread.class))) {
+			return typeName;
+		}
+		if (typeName.equals(ClassName.get(Class.class))) {
+			return ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class));
+		}
+		return STRING;
+	}
+
+	private boolean isRecordedAsString(TypeMirror type) {
+		return recordedType(type).equals(STRING) && !TypeName.get(type).equals(STRING);
+	}
+
+	private String fieldName(String parameterName) {
+		return RESERVED_FIELDS.contains(parameterName) ? parameterName + "Argument" : parameterName;
+	}
+
+	private ClassName eventClassName(ExecutableElement method) {
+		return className.nestedClass(model.getMethodClassName(method, "Event"));
+	}
+}
@@ -0,0 +1,113 @@
+package reegnz.processor;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.api.Idempotent;
+import reegnz.processor.runtime.AsyncExecutors;
+import reegnz.processor.runtime.Hedging;
+
+/**
+ * Generates {@code Hedged<Name>}, which passes the calls of {@link Idempotent}
+ * methods to a {@link Hedging} that races a backup against a slow primary.
+ * All other methods are delegated to the primary through the generated
+ * interface.
+ */
+final class HedgedGenerator {
+
+	private static final String PRIMARY = "primary";
+	private static final String BACKUP = "backup";
+	private static final String HEDGING = "hedging";
+
+	private final VirtualFieldModel model;
+
+	HedgedGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	static boolean isIdempotent(ExecutableElement method) {
+		return method.getAnnotation(Idempotent.class) != null;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Hedged" + model.getType().getSimpleName());
+		TypeName delegateType = model.getTypeName();
+		TypeName hedgingType = ParameterizedTypeName.get(ClassName.get(Hedging.class), delegateType);
+		List<ExecutableElement> hedged = model.getMethods().stream()
+				.filter(HedgedGenerator::isIdempotent)
+				.collect(Collectors.toList());
+		CodeBlock.Builder methodNames = CodeBlock.builder();
+		for (ExecutableElement method : hedged) {
+			methodNames.add(method == hedged.get(0) ? "$S" : ", $S", model.getMethodId(method));
+		}
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(hedgingType, HEDGING, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("Hedges on the default executor of the {@code Async*Adapter} classes, at the\n"
+								+ "95th percentile of the latencies.\n")
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(delegateType, PRIMARY)
+						.addParameter(delegateType, BACKUP)
+						.addStatement("this($L, $L, $T.defaultExecutor(), $T.DEFAULT_PERCENTILE,\n"
+								+ "$T.DEFAULT_INITIAL_DELAY_NANOS)", PRIMARY, BACKUP, AsyncExecutors.class, Hedging.class,
+								Hedging.class)
+						.build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(delegateType, PRIMARY)
+						.addParameter(delegateType, BACKUP)
+						.addParameter(Executor.class, "executor")
+						.addParameter(TypeName.DOUBLE, "percentile")
+						.addParameter(TypeName.LONG, "initialDelayNanos")
+						.addStatement("this.$L = new $T<>($L, $L, executor, percentile, initialDelayNanos,\n$L)",
+								HEDGING, Hedging.class, PRIMARY, BACKUP, methodNames.build())
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addJavadoc("@return the primary\n")
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(delegateType)
+						.addStatement("return this.$L.getPrimary()", HEDGING)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName() + "Hedging")
+						.addJavadoc("@return the hedging of the calls, for its statistics\n")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(hedgingType)
+						.addStatement("return this.$L", HEDGING)
+						.build());
+		for (int i = 0; i < hedged.size(); i++) {
+			builder.addMethod(hedgedMethod(hedged.get(i), i));
+		}
+		return builder.build();
+	}
+
+	private MethodSpec hedgedMethod(ExecutableElement method, int index) {
+		String delegate = VirtualFieldProcessor.localName(method, "delegate");
+		CodeBlock invocation = CodeBlock.of(VirtualFieldProcessor.createInvocation(method, "$L"),
+				VirtualFieldProcessor.statementArgs(method, delegate));
+		MethodSpec.Builder builder = MethodSpec.overriding(method);
+		if (VirtualFieldProcessor.returnsVoid(method)) {
+			builder.addCode("this.$L.call($L, $L -> {\n$>$L;\nreturn null;\n$<});\n", HEDGING, index, delegate,
+					invocation);
+		} else {
+			builder.addStatement("return this.$L.call($L, $L -> $L)", HEDGING, index, delegate, invocation);
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,84 @@
+package reegnz.processor;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.runtime.MethodMetrics;
+
+/**
+ * Generates {@code Instrumented<Name>}, an extension of the generated
+ * interface whose default methods time every delegated call into the
+ * {@link MethodMetrics} returned by an additional accessor. The slot of a
+ * method is its position in the method list of the model.
+ */
+final class InstrumentedGenerator {
+
+	private final VirtualFieldModel model;
+
+	InstrumentedGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Instrumented" + model.getType().getSimpleName());
+		String metricsMethodName = model.getDelegateMethodName() + "Metrics";
+		TypeSpec.Builder builder = TypeSpec.interfaceBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addMethod(MethodSpec.methodBuilder(metricsMethodName)
+						.addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+						.returns(MethodMetrics.class)
+						.build())
+				.addMethod(createMetrics());
+		List<ExecutableElement> methods = model.getMethods();
+		for (int i = 0; i < methods.size(); i++) {
+			builder.addMethod(instrumentedMethod(methods.get(i), i, metricsMethodName));
+		}
+		return builder.build();
+	}
+
+	private MethodSpec createMetrics() {
+		String names = model.getMethods().stream()
+				.map(method -> CodeBlock.of("$S", model.getMethodId(method)).toString())
+				.collect(joining(", "));
+		return MethodSpec.methodBuilder("createMetrics")
+				.addJavadoc("@return empty metrics with a slot for every delegated method\n")
+				.addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+				.returns(MethodMetrics.class)
+				.addStatement("return new $T($L)", MethodMetrics.class, names)
+				.build();
+	}
+
+	private MethodSpec instrumentedMethod(ExecutableElement method, int slot, String metricsMethodName) {
+		String metrics = VirtualFieldProcessor.localName(method, "metrics");
+		String start = VirtualFieldProcessor.localName(method, "start");
+		String exception = VirtualFieldProcessor.localName(method, "e");
+		return MethodSpec.overriding(method)
+				.addModifiers(Modifier.DEFAULT)
+				.addStatement("$T $L = $L()", MethodMetrics.class, metrics, metricsMethodName)
+				.addStatement("long $L = $T.nanoTime()", start, System.class)
+				.beginControlFlow("try")
+				.addStatement(
+						VirtualFieldProcessor.createStatement(method, "$L()"),
+						VirtualFieldProcessor.statementArgs(method, model.getDelegateMethodName()))
+				.nextControlFlow("catch ($T $L)", Throwable.class, exception)
+				.addStatement("$L.error($L)", metrics, slot)
+				.addStatement("throw $L", exception)
+				.nextControlFlow("finally")
+				.addStatement("$L.record($L, $T.nanoTime() - $L)", metrics, slot, System.class, start)
+				.endControlFlow()
+				.build();
+	}
+}
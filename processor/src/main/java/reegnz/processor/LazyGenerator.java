@@ -0,0 +1,117 @@
+package reegnz.processor;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import reegnz.processor.runtime.Initialized;
+
+/**
+ * Generates {@code Lazy<Name>}, an implementation of the generated interface
+ * that creates its delegate with a {@link Supplier} on first use. The created
+ * delegate is handed off through an {@link Initialized} holder in a plain
+ * field, so once it exists the accessor is a field load and a null check.
+ * <p>
+ * The private initializer is named after the interface, so it can not clash
+ * with a delegated method. The public {@value #IS_INITIALIZED} and
+ * {@value #PREWARM} methods can, which the processor reports as an error.
+ */
+final class LazyGenerator {
+
+	private static final String SUPPLIER = "supplier";
+	private static final String INITIALIZED = "initialized";
+	static final String IS_INITIALIZED = "isInitialized";
+	static final String PREWARM = "prewarm";
+
+	private final VirtualFieldModel model;
+
+	LazyGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * @return whether the delegated method has the signature of one of the
+	 *         public methods the generated class adds
+	 */
+	static boolean clashes(ExecutableElement method) {
+		String name = method.getSimpleName().toString();
+		List<? extends VariableElement> parameters = method.getParameters();
+		if (name.equals(IS_INITIALIZED)) {
+			return parameters.isEmpty();
+		}
+		return name.equals(PREWARM) && parameters.size() == 1
+				&& parameters.get(0).asType().toString().equals(Executor.class.getName());
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Lazy" + model.getType().getSimpleName());
+		TypeName delegateType = model.getTypeName();
+		TypeName supplierType = ParameterizedTypeName.get(ClassName.get(Supplier.class),
+				WildcardTypeName.subtypeOf(delegateType));
+		TypeName initializedType = ParameterizedTypeName.get(ClassName.get(Initialized.class), delegateType);
+		String initialize = "initialize" + model.getType().getSimpleName();
+		return TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(supplierType, SUPPLIER, Modifier.PRIVATE)
+				.addField(initializedType, INITIALIZED, Modifier.PRIVATE)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("@param $L creates the delegate on the first call\n", SUPPLIER)
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(supplierType, SUPPLIER)
+						.addStatement("this.$L = $T.requireNonNull($L)", SUPPLIER, Objects.class, SUPPLIER)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(delegateType)
+						.addStatement("$T $L = this.$L", initializedType, INITIALIZED, INITIALIZED)
+						.beginControlFlow("if ($L == null)", INITIALIZED)
+						.addStatement("$L = $L()", INITIALIZED, initialize)
+						.endControlFlow()
+						.addStatement("return $L.get()", INITIALIZED)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(initialize)
+						.addModifiers(Modifier.PRIVATE, Modifier.SYNCHRONIZED)
+						.returns(initializedType)
+						.beginControlFlow("if (this.$L == null)", INITIALIZED)
+						.addStatement("$T delegate = $T.requireNonNull($L.get(), $S)", delegateType, Objects.class,
+								SUPPLIER, "The supplier of the delegate returned null")
+						.addStatement("this.$L = new $T<>(delegate)", INITIALIZED, Initialized.class)
+						.addStatement("this.$L = null", SUPPLIER)
+						.endControlFlow()
+						.addStatement("return this.$L", INITIALIZED)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(IS_INITIALIZED)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(TypeName.BOOLEAN)
+						.addStatement("return $L != null", INITIALIZED)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(PREWARM)
+						.addJavadoc("Creates the delegate on the executor unless it already exists, for example to "
+								+ "warm up\ndelegates in the background after startup.\n")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(ParameterizedTypeName.get(ClassName.get(CompletableFuture.class), delegateType))
+						.addParameter(Executor.class, "executor")
+						.addStatement("return $T.supplyAsync(this::$L, executor)", CompletableFuture.class,
+								model.getDelegateMethodName())
+						.build())
+				.build();
+	}
+}
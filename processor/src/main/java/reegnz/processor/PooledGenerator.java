@@ -0,0 +1,82 @@
+package reegnz.processor;
+
+import java.util.function.Supplier;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import reegnz.processor.runtime.DelegatePool;
+
+/**
+ * Generates {@code Pooled<Name>}, which implements the annotated interface by
+ * borrowing a delegate from a {@link DelegatePool} for every call and
+ * returning it when the call completes.
+ */
+final class PooledGenerator {
+
+	private static final String POOL = "pool";
+
+	private final VirtualFieldModel model;
+
+	PooledGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Pooled" + model.getType().getSimpleName());
+		TypeName delegateType = model.getTypeName();
+		TypeName poolType = ParameterizedTypeName.get(ClassName.get(DelegatePool.class), delegateType);
+		TypeName factoryType = ParameterizedTypeName.get(ClassName.get(Supplier.class),
+				WildcardTypeName.subtypeOf(delegateType));
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(delegateType)
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(poolType, POOL, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("Pools up to {@code maxSize} delegates, calls wait for one when all of them\n"
+								+ "are borrowed.\n")
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(factoryType, "factory")
+						.addParameter(TypeName.INT, "maxSize")
+						.addStatement("this(new $T<>(factory, maxSize))", DelegatePool.class)
+						.build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(poolType, POOL)
+						.addStatement("this.$L = $L", POOL, POOL)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName() + "Pool")
+						.addJavadoc("@return the pool of the delegates, for its statistics or to close it\n")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(poolType)
+						.addStatement("return this.$L", POOL)
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			builder.addMethod(pooledMethod(method));
+		}
+		return builder.build();
+	}
+
+	private MethodSpec pooledMethod(ExecutableElement method) {
+		String delegate = VirtualFieldProcessor.localName(method, "delegate");
+		return MethodSpec.overriding(method)
+				.addStatement("$T $L = this.$L.borrow()", model.getTypeName(), delegate, POOL)
+				.beginControlFlow("try")
+				.addStatement(VirtualFieldProcessor.createStatement(method, "$L"),
+						VirtualFieldProcessor.statementArgs(method, delegate))
+				.nextControlFlow("finally")
+				.addStatement("this.$L.release($L)", POOL, delegate)
+				.endControlFlow()
+				.build();
+	}
+}
@@ -0,0 +1,192 @@
+package reegnz.processor;
+
+import java.util.List;
+import java.util.Locale;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.IntersectionType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.runtime.CallLog;
+import reegnz.processor.runtime.CallReader;
+import reegnz.processor.runtime.CallTrace;
+import reegnz.processor.runtime.CallWriter;
+
+/**
+ * Generates {@code Recording<Name>}, which appends every delegated call to a
+ * {@link CallLog} before passing it on, and a static dispatcher that replays
+ * the calls of a {@link CallTrace} against any delegate. Methods are recorded
+ * by their position in the interface. The codec of every argument follows
+ * from its declared type: primitives and strings are written as they are,
+ * everything else through {@link CallWriter#writeObject(Object)}.
+ */
+final class RecordingGenerator {
+
+	private static final String DELEGATE = AbstractClassGenerator.DELEGATE;
+	private static final String LOG = "log";
+	private static final String TARGET = "target";
+	private static final String ARGUMENTS = "arguments";
+	private static final ClassName STRING = ClassName.get(String.class);
+
+	private final VirtualFieldModel model;
+
+	RecordingGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Recording" + model.getType().getSimpleName());
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(model.getTypeName(), DELEGATE, Modifier.PRIVATE, Modifier.FINAL)
+				.addField(CallLog.class, LOG, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(model.getTypeName(), DELEGATE)
+						.addParameter(CallLog.class, LOG)
+						.addStatement("this.$L = $L", DELEGATE, DELEGATE)
+						.addStatement("this.$L = $L", LOG, LOG)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(model.getTypeName())
+						.addStatement("return $L", DELEGATE)
+						.build())
+				.addMethod(dispatcher());
+		List<ExecutableElement> methods = model.getMethods();
+		for (int i = 0; i < methods.size(); i++) {
+			builder.addMethod(recordingMethod(methods.get(i), i));
+		}
+		return builder.build();
+	}
+
+	private MethodSpec recordingMethod(ExecutableElement method, int index) {
+		String call = VirtualFieldProcessor.localName(method, "call");
+		MethodSpec.Builder builder = MethodSpec.overriding(method)
+				.addStatement("$T $L = this.$L.begin($L)", CallWriter.class, call, LOG, index);
+		for (VariableElement parameter : method.getParameters()) {
+			builder.addStatement("$L.write$L($L)", call, codec(parameter.asType()), parameter.getSimpleName());
+		}
+		return builder.addStatement("$L.end()", call)
+				.addStatement(VirtualFieldProcessor.createStatement(method, "this.$L"),
+						VirtualFieldProcessor.statementArgs(method, DELEGATE))
+				.build();
+	}
+
+	private MethodSpec dispatcher() {
+		CodeBlock.Builder cases = CodeBlock.builder()
+				.add("return (method, $L) -> {\n", ARGUMENTS)
+				.indent()
+				.beginControlFlow("switch (method)");
+		boolean unchecked = false;
+		boolean raw = false;
+		List<ExecutableElement> methods = model.getMethods();
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			CodeBlock.Builder arguments = CodeBlock.builder();
+			for (VariableElement parameter : method.getParameters()) {
+				TypeMirror type = parameter.asType();
+				String codec = codec(type);
+				if (parameter != method.getParameters().get(0)) {
+					arguments.add(", ");
+				}
+				if (codec.equals("Object")) {
+					boolean generic = !method.getTypeParameters().isEmpty();
+					TypeName castType = generic ? erasure(type) : TypeName.get(type);
+					unchecked |= generic || !isCheckedCast(castType);
+					raw |= generic;
+					arguments.add("($T) $L.readObject()", castType, ARGUMENTS);
+				} else {
+					arguments.add("$L.read$L()", ARGUMENTS, codec);
+				}
+			}
+			cases.add("case $L:\n", i)
+					.indent()
+					.addStatement("$L.$L($L)", TARGET, method.getSimpleName(), arguments.build())
+					.addStatement("break")
+					.unindent();
+		}
+		cases.add("default:\n")
+				.indent()
+				.addStatement("throw new $T($S + method)", IllegalArgumentException.class, "Unknown method ")
+				.unindent()
+				.endControlFlow()
+				.unindent()
+				.addStatement("}");
+		MethodSpec.Builder builder = MethodSpec.methodBuilder("dispatcher")
+				.addJavadoc("@return a dispatcher that replays the calls recorded by this class against the "
+						+ "target\n")
+				.addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+				.addTypeVariables(model.getTypeVariables())
+				.returns(CallTrace.Dispatcher.class)
+				.addParameter(model.getTypeName(), TARGET)
+				.addCode(cases.build());
+		if (raw) {
+			builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+					.addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+					.build());
+		} else if (unchecked) {
+			builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+					.addMember("value", "$S", "unchecked")
+					.build());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the suffix of the {@link CallWriter} and {@link CallReader}
+	 *         methods of the type
+	 */
+	private static String codec(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			String name = type.getKind().name();
+			return name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+		}
+		return TypeName.get(type).equals(STRING) ? "String" : "Object";
+	}
+
+	/**
+	 * The type variables of generic methods can not be named in the
+	 * dispatcher, their arguments are cast to the erasure instead.
+	 */
+	static TypeName erasure(TypeMirror type) {
+		switch (type.getKind()) {
+		case DECLARED:
+			return ClassName.get((TypeElement) ((DeclaredType) type).asElement());
+		case TYPEVAR:
+			return erasure(((TypeVariable) type).getUpperBound());
+		case INTERSECTION:
+			return erasure(((IntersectionType) type).getBounds().get(0));
+		case ARRAY:
+			return ArrayTypeName.of(erasure(((ArrayType) type).getComponentType()));
+		default:
+			return TypeName.get(type);
+		}
+	}
+
+	static boolean isCheckedCast(TypeName type) {
+		if (type instanceof ArrayTypeName) {
+			return isCheckedCast(((ArrayTypeName) type).componentType);
+		}
+		return type instanceof ClassName || type.isPrimitive();
+	}
+}
@@ -0,0 +1,102 @@
+package reegnz.processor;
+
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import reegnz.processor.api.ReadOnly;
+import reegnz.processor.runtime.ReplicaPool;
+
+/**
+ * Generates {@code Replicated<Name>}, which passes the calls of
+ * {@link ReadOnly} methods to a replica picked by a {@link ReplicaPool}. All
+ * other methods are delegated to the primary through the generated interface.
+ */
+final class ReplicatedGenerator {
+
+	private static final String PRIMARY = "primary";
+	private static final String REPLICAS = "replicas";
+	private static final String ROUTING = "routing";
+
+	private final VirtualFieldModel model;
+
+	ReplicatedGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	static boolean isReadOnly(ExecutableElement method) {
+		return method.getAnnotation(ReadOnly.class) != null;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Replicated" + model.getType().getSimpleName());
+		TypeName delegateType = model.getTypeName();
+		TypeName poolType = ParameterizedTypeName.get(ClassName.get(ReplicaPool.class), delegateType);
+		TypeName replicasType = ParameterizedTypeName.get(ClassName.get(List.class),
+				WildcardTypeName.subtypeOf(delegateType));
+		ClassName routingType = ClassName.get(ReplicaPool.Routing.class);
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(delegateType, PRIMARY, Modifier.PRIVATE, Modifier.FINAL)
+				.addField(poolType, REPLICAS, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("Routes the reads round-robin.\n")
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(delegateType, PRIMARY)
+						.addParameter(replicasType, REPLICAS)
+						.addStatement("this($L, $L, $T.$L)", PRIMARY, REPLICAS, routingType,
+								ReplicaPool.Routing.ROUND_ROBIN.name())
+						.build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(delegateType, PRIMARY)
+						.addParameter(replicasType, REPLICAS)
+						.addParameter(routingType, ROUTING)
+						.addStatement("this.$L = $L", PRIMARY, PRIMARY)
+						.addStatement("this.$L = new $T<>($L, $L)", REPLICAS, ReplicaPool.class, REPLICAS, ROUTING)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addJavadoc("@return the primary\n")
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(delegateType)
+						.addStatement("return $L", PRIMARY)
+						.build())
+				.addMethod(MethodSpec.methodBuilder("getReplicas")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(poolType)
+						.addStatement("return $L", REPLICAS)
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			if (isReadOnly(method)) {
+				builder.addMethod(replicatedMethod(method));
+			}
+		}
+		return builder.build();
+	}
+
+	private MethodSpec replicatedMethod(ExecutableElement method) {
+		String replica = VirtualFieldProcessor.localName(method, "replica");
+		return MethodSpec.overriding(method)
+				.addStatement("int $L = this.$L.acquire()", replica, REPLICAS)
+				.beginControlFlow("try")
+				.addStatement(VirtualFieldProcessor.createStatement(method, "this.$L.get(" + replica + ")"),
+						VirtualFieldProcessor.statementArgs(method, REPLICAS))
+				.nextControlFlow("finally")
+				.addStatement("this.$L.release($L)", REPLICAS, replica)
+				.endControlFlow()
+				.build();
+	}
+}
@@ -0,0 +1,142 @@
+package reegnz.processor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import reegnz.processor.api.ShardKey;
+import reegnz.processor.runtime.ShardKeys;
+
+/**
+ * Generates {@code Sharded<Name>}, which routes every call to one of a
+ * power-of-two number of delegates, picked by the hash of the {@link ShardKey}
+ * argument. Calls hold the monitor of their delegate, so delegates that are
+ * not thread-safe can be shared between threads, with contention limited to
+ * calls on the same shard.
+ */
+final class ShardedGenerator {
+
+	private static final String SHARDS = "shards";
+	private static final String MASK = "mask";
+
+	private final VirtualFieldModel model;
+	private final TypeName arrayType;
+
+	ShardedGenerator(VirtualFieldModel model) {
+		this.model = model;
+		this.arrayType = ArrayTypeName.of(model.getTypeName());
+	}
+
+	static int shardKeys(ExecutableElement method) {
+		int count = 0;
+		for (VariableElement parameter : method.getParameters()) {
+			if (parameter.getAnnotation(ShardKey.class) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("Sharded" + model.getType().getSimpleName());
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(arrayType, SHARDS, Modifier.PRIVATE, Modifier.FINAL)
+				.addField(TypeName.INT, MASK, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(arrayConstructor())
+				.addMethod(factoryConstructor())
+				.addMethod(MethodSpec.methodBuilder("getShards")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(ParameterizedTypeName.get(ClassName.get(List.class), model.getTypeName()))
+						.addStatement("return $T.unmodifiableList($T.asList(this.$L))", Collections.class, Arrays.class,
+								SHARDS)
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			builder.addMethod(shardedMethod(method));
+		}
+		return builder.build();
+	}
+
+	private MethodSpec arrayConstructor() {
+		MethodSpec.Builder builder = MethodSpec.constructorBuilder()
+				.addJavadoc("@param $L the delegates, their number must be a power of two\n", SHARDS)
+				.addModifiers(Modifier.PUBLIC)
+				.addParameter(arrayType, SHARDS)
+				.varargs()
+				.beginControlFlow("if ($T.bitCount($L.length) != 1)", Integer.class, SHARDS)
+				.addStatement("throw new $T($S + $L.length)", IllegalArgumentException.class,
+						"The number of shards must be a power of two: ", SHARDS)
+				.endControlFlow()
+				.addStatement("this.$L = $L.clone()", SHARDS, SHARDS)
+				.addStatement("this.$L = $L.length - 1", MASK, SHARDS);
+		if (!model.getTypeVariables().isEmpty()) {
+			builder.addAnnotation(SafeVarargs.class);
+		}
+		return builder.build();
+	}
+
+	private MethodSpec factoryConstructor() {
+		TypeName factoryType = ParameterizedTypeName.get(ClassName.get(Supplier.class),
+				WildcardTypeName.subtypeOf(model.getTypeName()));
+		MethodSpec.Builder builder = MethodSpec.constructorBuilder()
+				.addJavadoc("Creates the delegates with the factory, the count rounded up to a power of two.\n")
+				.addModifiers(Modifier.PUBLIC)
+				.addParameter(TypeName.INT, "count")
+				.addParameter(factoryType, "factory");
+		if (model.getTypeVariables().isEmpty()) {
+			builder.addStatement("this.$L = new $T[$T.shardCount(count)]", SHARDS, model.getTypeName(),
+					ShardKeys.class);
+		} else {
+			builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+					.addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+					.build())
+					.addStatement("this.$L = ($T) new $T[$T.shardCount(count)]", SHARDS, arrayType,
+							ClassName.get(model.getType()), ShardKeys.class);
+		}
+		return builder.beginControlFlow("for (int i = 0; i < $L.length; i++)", SHARDS)
+				.addStatement("$L[i] = factory.get()", SHARDS)
+				.endControlFlow()
+				.addStatement("this.$L = $L.length - 1", MASK, SHARDS)
+				.build();
+	}
+
+	private MethodSpec shardedMethod(ExecutableElement method) {
+		String shard = VirtualFieldProcessor.localName(method, "shard");
+		return MethodSpec.overriding(method)
+				.addStatement("$T $L = this.$L[$T.hash($L) & this.$L]", model.getTypeName(), shard, SHARDS,
+						ShardKeys.class, shardKey(method).getSimpleName(), MASK)
+				.beginControlFlow("synchronized ($L)", shard)
+				.addStatement(
+						VirtualFieldProcessor.createStatement(method, "$L"),
+						VirtualFieldProcessor.statementArgs(method, shard))
+				.endControlFlow()
+				.build();
+	}
+
+	private static VariableElement shardKey(ExecutableElement method) {
+		for (VariableElement parameter : method.getParameters()) {
+			if (parameter.getAnnotation(ShardKey.class) != null) {
+				return parameter;
+			}
+		}
+		throw new IllegalStateException("No @ShardKey parameter on " + method);
+	}
+}
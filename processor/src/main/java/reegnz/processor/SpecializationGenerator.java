@@ -0,0 +1,246 @@
+package reegnz.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.util.Types;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+/**
+ * Generates the specialization of a generic interface for a primitive type,
+ * {@code Int<Name>} for {@code int}, which extends the interface with every
+ * type variable bound to the box of the primitive, and
+ * {@code VirtualInt<Name>}, which delegates it.
+ * <p>
+ * Every method taking or returning a type variable of the interface gets an
+ * abstract overload with the primitive in its place, and the inherited
+ * generic method becomes a default method unboxing into it. Overloads whose
+ * parameters would not differ from the generic method, such as those only
+ * returning a type variable, are named {@code <name>As<Primitive>}.
+ */
+final class SpecializationGenerator {
+
+	private final VirtualFieldModel model;
+	private final Types typeUtils;
+	private final PrimitiveType primitive;
+	private final DeclaredType specializedType;
+	private final ClassName interfaceName;
+	private final ClassName virtualName;
+	private final List<ExecutableElement> clashes = new ArrayList<>();
+	private final Map<ExecutableElement, String> primitiveNames;
+
+	SpecializationGenerator(VirtualFieldModel model, PrimitiveType primitive, Types typeUtils) {
+		this.model = model;
+		this.typeUtils = typeUtils;
+		this.primitive = primitive;
+		TypeElement type = model.getType();
+		TypeMirror[] arguments = new TypeMirror[type.getTypeParameters().size()];
+		Arrays.fill(arguments, typeUtils.boxedClass(primitive).asType());
+		this.specializedType = typeUtils.getDeclaredType(type, arguments);
+		String prefix = prefix(primitive);
+		this.interfaceName = model.peerClassName(prefix + type.getSimpleName());
+		this.virtualName = model.peerClassName("Virtual" + interfaceName.simpleName());
+		this.primitiveNames = primitiveNames(prefix);
+	}
+
+	/**
+	 * @return the capitalized name of the primitive, {@code Int} for
+	 *         {@code int}
+	 */
+	private static String prefix(PrimitiveType primitive) {
+		String name = primitive.getKind().name();
+		return name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+	}
+
+	private Map<ExecutableElement, String> primitiveNames(String prefix) {
+		Set<String> signatures = new HashSet<>();
+		for (ExecutableElement method : model.getMethods()) {
+			signatures.add(signature(method.getSimpleName().toString(), memberType(method).getParameterTypes()));
+		}
+		Map<ExecutableElement, String> names = new IdentityHashMap<>();
+		for (ExecutableElement method : model.getMethods()) {
+			if (!isSpecialized(method)) {
+				continue;
+			}
+			String name = method.getSimpleName().toString();
+			boolean sameParameters = method.getParameters().stream()
+					.noneMatch(parameter -> isTypeVariable(parameter.asType()));
+			if (sameParameters || !signatures.add(signature(name, parameterTypes(method)))) {
+				name += "As" + prefix;
+				if (!signatures.add(signature(name, parameterTypes(method)))) {
+					clashes.add(method);
+				}
+			}
+			names.put(method, name);
+		}
+		return names;
+	}
+
+	/**
+	 * @return the methods whose primitive overload would have the signature of
+	 *         a method of the interface or of another overload
+	 */
+	List<ExecutableElement> getClashes() {
+		return clashes;
+	}
+
+	/**
+	 * @return the name of the primitive overload of the method
+	 */
+	String getPrimitiveName(ExecutableElement method) {
+		return primitiveNames.get(method);
+	}
+
+	private String signature(String name, List<? extends TypeMirror> parameterTypes) {
+		StringBuilder signature = new StringBuilder(name);
+		for (TypeMirror parameterType : parameterTypes) {
+			signature.append(' ').append(typeUtils.erasure(parameterType));
+		}
+		return signature.toString();
+	}
+
+	TypeSpec generateInterface() {
+		TypeSpec.Builder builder = TypeSpec.interfaceBuilder(interfaceName)
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(TypeName.get(specializedType))
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType());
+		for (ExecutableElement method : model.getMethods()) {
+			if (isSpecialized(method)) {
+				builder.addMethod(primitiveMethod(method)
+						.addModifiers(Modifier.ABSTRACT)
+						.build());
+				builder.addMethod(bridgeMethod(method));
+			}
+		}
+		return builder.build();
+	}
+
+	TypeSpec generateVirtual() {
+		String delegateMethodName = model.getDelegateMethodName();
+		TypeSpec.Builder builder = TypeSpec.interfaceBuilder(virtualName)
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(interfaceName)
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addMethod(MethodSpec.methodBuilder(delegateMethodName)
+						.addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+						.returns(interfaceName)
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			Object[] args = VirtualFieldProcessor.statementArgs(method, delegateMethodName);
+			MethodSpec.Builder delegating;
+			if (isSpecialized(method)) {
+				args[1] = primitiveNames.get(method);
+				delegating = primitiveMethod(method).addAnnotation(Override.class);
+			} else {
+				delegating = MethodSpec.overriding(method, specializedType, typeUtils);
+			}
+			builder.addMethod(delegating
+					.addModifiers(Modifier.DEFAULT)
+					.addStatement(VirtualFieldProcessor.createStatement(method, "$L()"), args)
+					.build());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the signature of the overload taking and returning the
+	 *         primitive in place of the type variables of the interface
+	 */
+	private MethodSpec.Builder primitiveMethod(ExecutableElement method) {
+		ExecutableType memberType = memberType(method);
+		MethodSpec.Builder builder = MethodSpec.methodBuilder(primitiveNames.get(method))
+				.addModifiers(Modifier.PUBLIC)
+				.returns(TypeName.get(isTypeVariable(method.getReturnType())
+						? primitive
+						: memberType.getReturnType()))
+				.varargs(method.isVarArgs());
+		for (TypeMirror typeVariable : memberType.getTypeVariables()) {
+			builder.addTypeVariable(TypeVariableName.get((TypeVariable) typeVariable));
+		}
+		List<TypeMirror> parameterTypes = parameterTypes(method);
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			builder.addParameter(TypeName.get(parameterTypes.get(i)),
+					method.getParameters().get(i).getSimpleName().toString());
+		}
+		for (TypeMirror thrownType : memberType.getThrownTypes()) {
+			builder.addException(TypeName.get(thrownType));
+		}
+		return builder;
+	}
+
+	/**
+	 * Unboxes the arguments of the generic method into the primitive
+	 * overload, so a {@code null} argument throws a
+	 * {@code NullPointerException}.
+	 */
+	private MethodSpec bridgeMethod(ExecutableElement method) {
+		CodeBlock.Builder arguments = CodeBlock.builder();
+		for (VariableElement parameter : method.getParameters()) {
+			if (parameter != method.getParameters().get(0)) {
+				arguments.add(", ");
+			}
+			if (isTypeVariable(parameter.asType())) {
+				arguments.add("($T) $L", TypeName.get(primitive), parameter.getSimpleName());
+			} else {
+				arguments.add("$L", parameter.getSimpleName());
+			}
+		}
+		return MethodSpec.overriding(method, specializedType, typeUtils)
+				.addModifiers(Modifier.DEFAULT)
+				.addStatement(VirtualFieldProcessor.returnsVoid(method) ? "$L($L)" : "return $L($L)",
+						primitiveNames.get(method), arguments.build())
+				.build();
+	}
+
+	private List<TypeMirror> parameterTypes(ExecutableElement method) {
+		List<TypeMirror> parameterTypes = new ArrayList<>(memberType(method).getParameterTypes());
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			if (isTypeVariable(method.getParameters().get(i).asType())) {
+				parameterTypes.set(i, primitive);
+			}
+		}
+		return parameterTypes;
+	}
+
+	private ExecutableType memberType(ExecutableElement method) {
+		return (ExecutableType) typeUtils.asMemberOf(specializedType, method);
+	}
+
+	private boolean isSpecialized(ExecutableElement method) {
+		return isTypeVariable(method.getReturnType())
+				|| method.getParameters().stream().anyMatch(parameter -> isTypeVariable(parameter.asType()));
+	}
+
+	/**
+	 * @return whether the type is one of the type variables of the interface
+	 *         itself, and not one of a method or nested in another type
+	 */
+	private boolean isTypeVariable(TypeMirror type) {
+		return type.getKind() == TypeKind.TYPEVAR
+				&& model.getType().getTypeParameters().contains(((TypeVariable) type).asElement());
+	}
+}
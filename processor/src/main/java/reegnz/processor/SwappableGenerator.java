@@ -0,0 +1,131 @@
+package reegnz.processor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.runtime.InFlightCounter;
+
+/**
+ * Generates {@code Swappable<Name>}, which keeps its delegate in an
+ * {@link AtomicReference} that can be replaced atomically at runtime, so a
+ * delegated call costs a single volatile load and the class needs no
+ * reflection when it is initialized. Optionally swaps wait until the calls in
+ * flight on the replaced delegate return, counted by an
+ * {@link InFlightCounter}.
+ */
+final class SwappableGenerator {
+
+	private static final String DELEGATE = AbstractClassGenerator.DELEGATE;
+	private static final String IN_FLIGHT = "inFlight";
+
+	private final VirtualFieldModel model;
+	private final ClassName className;
+
+	SwappableGenerator(VirtualFieldModel model) {
+		this.model = model;
+		this.className = model.peerClassName("Swappable" + model.getType().getSimpleName());
+	}
+
+	TypeSpec generate() {
+		TypeName delegateType = model.getTypeName();
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(ParameterizedTypeName.get(ClassName.get(AtomicReference.class), delegateType), DELEGATE,
+						Modifier.PRIVATE, Modifier.FINAL)
+				.addField(InFlightCounter.class, IN_FLIGHT, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(delegateType, DELEGATE)
+						.addStatement("this($L, false)", DELEGATE)
+						.build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("@param drain whether swaps wait until the calls in flight on the replaced delegate "
+								+ "return\n")
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(delegateType, DELEGATE)
+						.addParameter(TypeName.BOOLEAN, "drain")
+						.addStatement("this.$L = new $T<>($L)", DELEGATE, AtomicReference.class, DELEGATE)
+						.addStatement("this.$L = drain ? new $T() : null", IN_FLIGHT, InFlightCounter.class)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(delegateType)
+						.addStatement("return $L.get()", DELEGATE)
+						.build())
+				.addMethod(swap())
+				.addMethod(compareAndSwap())
+				.addMethod(MethodSpec.methodBuilder("awaitReplaced")
+						.addModifiers(Modifier.PRIVATE)
+						.beginControlFlow("if ($L != null)", IN_FLIGHT)
+						.addStatement("$L.drain()", IN_FLIGHT)
+						.endControlFlow()
+						.build());
+		for (ExecutableElement method : model.getMethods()) {
+			builder.addMethod(swappableMethod(method));
+		}
+		return builder.build();
+	}
+
+	private MethodSpec swap() {
+		return MethodSpec.methodBuilder("swap")
+				.addJavadoc("Replaces the delegate.\n\n@return the replaced delegate\n")
+				.addModifiers(Modifier.PUBLIC)
+				.returns(model.getTypeName())
+				.addParameter(model.getTypeName(), DELEGATE)
+				.addStatement("$T previous = this.$L.getAndSet($L)", model.getTypeName(), DELEGATE, DELEGATE)
+				.addStatement("awaitReplaced()")
+				.addStatement("return previous")
+				.build();
+	}
+
+	private MethodSpec compareAndSwap() {
+		return MethodSpec.methodBuilder("compareAndSwap")
+				.addJavadoc("Replaces the delegate if it is the expected one.\n\n@return whether the delegate was "
+						+ "replaced\n")
+				.addModifiers(Modifier.PUBLIC)
+				.returns(TypeName.BOOLEAN)
+				.addParameter(model.getTypeName(), "expected")
+				.addParameter(model.getTypeName(), DELEGATE)
+				.beginControlFlow("if (!this.$L.compareAndSet(expected, $L))", DELEGATE, DELEGATE)
+				.addStatement("return false")
+				.endControlFlow()
+				.addStatement("awaitReplaced()")
+				.addStatement("return true")
+				.build();
+	}
+
+	private MethodSpec swappableMethod(ExecutableElement method) {
+		String inFlight = VirtualFieldProcessor.localName(method, IN_FLIGHT);
+		String token = VirtualFieldProcessor.localName(method, "token");
+		String statement = VirtualFieldProcessor.createStatement(method, "this.$L.get()");
+		Object[] args = VirtualFieldProcessor.statementArgs(method, DELEGATE);
+		MethodSpec.Builder builder = MethodSpec.overriding(method)
+				.addStatement("$T $L = this.$L", InFlightCounter.class, inFlight, IN_FLIGHT)
+				.beginControlFlow("if ($L == null)", inFlight)
+				.addStatement(statement, args);
+		if (VirtualFieldProcessor.returnsVoid(method)) {
+			builder.addStatement("return");
+		}
+		return builder.endControlFlow()
+				.addStatement("int $L = $L.enter()", token, inFlight)
+				.beginControlFlow("try")
+				.addStatement(statement, args)
+				.nextControlFlow("finally")
+				.addStatement("$L.exit($L)", inFlight, token)
+				.endControlFlow()
+				.build();
+	}
+}
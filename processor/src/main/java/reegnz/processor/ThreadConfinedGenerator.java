@@ -0,0 +1,77 @@
+package reegnz.processor;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import reegnz.processor.runtime.ThreadConfined;
+
+/**
+ * Generates {@code ThreadConfined<Name>}, an implementation of the generated
+ * interface whose accessor returns the delegate of the calling thread from a
+ * {@link ThreadConfined}, so every thread calls a delegate of its own.
+ */
+final class ThreadConfinedGenerator {
+
+	private static final String FACTORY = "factory";
+	private static final String CLEANUP = "cleanup";
+	private static final String DELEGATES = "delegates";
+
+	private final VirtualFieldModel model;
+
+	ThreadConfinedGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("ThreadConfined" + model.getType().getSimpleName());
+		TypeName delegateType = model.getTypeName();
+		TypeName factoryType = ParameterizedTypeName.get(ClassName.get(Supplier.class),
+				WildcardTypeName.subtypeOf(delegateType));
+		TypeName cleanupType = ParameterizedTypeName.get(ClassName.get(Consumer.class),
+				WildcardTypeName.supertypeOf(delegateType));
+		TypeName delegatesType = ParameterizedTypeName.get(ClassName.get(ThreadConfined.class), delegateType);
+		return TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(delegatesType, DELEGATES, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("@param $L creates the delegate of every thread on its first call\n", FACTORY)
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(factoryType, FACTORY)
+						.addStatement("this.$L = new $T<>($L)", DELEGATES, ThreadConfined.class, FACTORY)
+						.build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("@param $L creates the delegate of every thread on its first call\n", FACTORY)
+						.addJavadoc("@param $L releases a delegate that is no longer used\n", CLEANUP)
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(factoryType, FACTORY)
+						.addParameter(cleanupType, CLEANUP)
+						.addStatement("this.$L = new $T<>($L, $L)", DELEGATES, ThreadConfined.class, FACTORY, CLEANUP)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(delegateType)
+						.addStatement("return $L.get()", DELEGATES)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName() + "Delegates")
+						.addJavadoc("@return the delegates of all threads, to release or close them\n")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(delegatesType)
+						.addStatement("return $L", DELEGATES)
+						.build())
+				.build();
+	}
+}
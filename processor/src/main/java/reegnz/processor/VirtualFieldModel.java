@@ -0,0 +1,193 @@
+package reegnz.processor;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeVariableName;
+
+/**
+ * Everything the generators need to know about a single annotated interface.
+ * The model only refers to the annotated element itself, so every type
+ * generated from it has that element as its single originating element.
+ * Interfaces listed in {@code @VirtualFieldFor} are not annotated themselves,
+ * their originating element is the element carrying that annotation.
+ */
+final class VirtualFieldModel {
+
+	private final TypeElement type;
+	private final Element originatingElement;
+	private final ClassName virtualClassName;
+	private final List<TypeVariableName> typeVariables;
+	private final List<ExecutableElement> methods;
+	private final TypeName typeName;
+	private final Map<ExecutableElement, String> methodIds;
+	private Set<String> methodAnnotations;
+	private Set<String> parameterAnnotations;
+
+	VirtualFieldModel(TypeElement type, ClassName virtualClassName, List<TypeVariableName> typeVariables,
+			List<ExecutableElement> methods) {
+		this(type, type, virtualClassName, typeVariables, methods);
+	}
+
+	VirtualFieldModel(TypeElement type, Element originatingElement, ClassName virtualClassName,
+			List<TypeVariableName> typeVariables, List<ExecutableElement> methods) {
+		this.type = type;
+		this.originatingElement = originatingElement;
+		this.virtualClassName = virtualClassName;
+		this.typeVariables = typeVariables;
+		this.methods = methods;
+		this.typeName = TypeName.get(type.asType());
+		this.methodIds = methodIds(methods);
+	}
+
+	private static Map<ExecutableElement, String> methodIds(List<ExecutableElement> methods) {
+		Map<String, Integer> overloads = new HashMap<>();
+		for (ExecutableElement method : methods) {
+			overloads.merge(method.getSimpleName().toString(), 1, Integer::sum);
+		}
+		Map<ExecutableElement, String> ids = new IdentityHashMap<>();
+		for (int i = 0; i < methods.size(); i++) {
+			String name = methods.get(i).getSimpleName().toString();
+			ids.put(methods.get(i), overloads.get(name) > 1 ? name + i : name);
+		}
+		return ids;
+	}
+
+	/**
+	 * Collects the annotations of the methods and of their parameters in a
+	 * single pass, the first time one of them is asked for. Interfaces listed
+	 * in {@code @VirtualFieldFor} never ask, they are not checked for method
+	 * annotations.
+	 */
+	private void collectAnnotations() {
+		methodAnnotations = new HashSet<>();
+		parameterAnnotations = new HashSet<>();
+		for (ExecutableElement method : methods) {
+			addAnnotations(methodAnnotations, method);
+			for (VariableElement parameter : method.getParameters()) {
+				addAnnotations(parameterAnnotations, parameter);
+			}
+		}
+	}
+
+	private static void addAnnotations(Set<String> names, Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			names.add(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString());
+		}
+	}
+
+	/**
+	 * @return whether one of the methods is annotated with the annotation
+	 */
+	boolean hasMethodAnnotated(Class<? extends Annotation> annotation) {
+		if (methodAnnotations == null) {
+			collectAnnotations();
+		}
+		return methodAnnotations.contains(annotation.getCanonicalName());
+	}
+
+	/**
+	 * @return whether a parameter of one of the methods is annotated with the
+	 *         annotation
+	 */
+	boolean hasParameterAnnotated(Class<? extends Annotation> annotation) {
+		if (parameterAnnotations == null) {
+			collectAnnotations();
+		}
+		return parameterAnnotations.contains(annotation.getCanonicalName());
+	}
+
+	TypeElement getType() {
+		return type;
+	}
+
+	Element getOriginatingElement() {
+		return originatingElement;
+	}
+
+	/**
+	 * @return the annotated interface, parameterized with its own type variables
+	 */
+	TypeName getTypeName() {
+		return typeName;
+	}
+
+	/**
+	 * @return the generated {@code Virtual*} interface, parameterized with the
+	 *         type variables of the annotated interface
+	 */
+	TypeName getVirtualTypeName() {
+		return parameterized(virtualClassName);
+	}
+
+	ClassName getVirtualClassName() {
+		return virtualClassName;
+	}
+
+	List<TypeVariableName> getTypeVariables() {
+		return typeVariables;
+	}
+
+	/**
+	 * @return the methods that get delegated, in declaration order
+	 */
+	List<ExecutableElement> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * @return a name for the method that is unique within the interface: the
+	 *         method name, suffixed with its position if it is overloaded
+	 */
+	String getMethodId(ExecutableElement method) {
+		return methodIds.get(method);
+	}
+
+	/**
+	 * @return the name of a class generated for the method: its capitalized
+	 *         method id followed by the suffix
+	 */
+	String getMethodClassName(ExecutableElement method, String suffix) {
+		String id = getMethodId(method);
+		return Character.toUpperCase(id.charAt(0)) + id.substring(1) + suffix;
+	}
+
+	/**
+	 * @return the name of the abstract accessor of the generated interface
+	 */
+	String getDelegateMethodName() {
+		return "get" + type.getSimpleName();
+	}
+
+	/**
+	 * @return a class in the package of the generated interface
+	 */
+	ClassName peerClassName(String simpleName) {
+		return virtualClassName.peerClass(simpleName);
+	}
+
+	/**
+	 * @return the class parameterized with the type variables of the annotated
+	 *         interface, or the class itself if the interface is not generic
+	 */
+	TypeName parameterized(ClassName className) {
+		if (typeVariables.isEmpty()) {
+			return className;
+		}
+		return ParameterizedTypeName.get(className, typeVariables.toArray(new TypeName[typeVariables.size()]));
+	}
+}
@@ -0,0 +1,938 @@
+package reegnz.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import javax.annotation.Generated;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.Name;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.google.auto.service.AutoService;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+import reegnz.processor.api.Batched;
+import reegnz.processor.api.Bulkhead;
+import reegnz.processor.api.Cacheable;
+import reegnz.processor.api.Idempotent;
+import reegnz.processor.api.ReadOnly;
+import reegnz.processor.api.ShardKey;
+import reegnz.processor.api.VirtualField;
+import reegnz.processor.api.VirtualFieldFor;
+import reegnz.processor.runtime.VirtualFieldIndex;
+
+@AutoService(Processor.class)
+public class VirtualFieldProcessor extends AbstractProcessor {
+
+	private static final AnnotationSpec GENERATED = AnnotationSpec.builder(Generated.class)
+			.addMember("value", "$S", VirtualFieldProcessor.class.getName())
+			.build();
+
+	private static final String DEBUG = "debug";
+	private static final String INDEX = "index";
+	private static final String NATIVE_IMAGE = "nativeImage";
+	private static final String NATIVE_IMAGE_DIRECTORY = "virtual-fields";
+	static final String CLASS_LIST = "META-INF/virtual-fields.classlist";
+	private static final String ISOLATING = "org.gradle.annotation.processing.isolating";
+	private static final String AGGREGATING = "org.gradle.annotation.processing.aggregating";
+
+	private Elements elementUtils;
+	private Types typeUtils;
+	private Filer filer;
+	private Messager messager;
+	private Set<String> objectMethods;
+	private Set<String> objectMethodNames;
+	private boolean debug;
+	private boolean index;
+	private Map<String, String> indexEntries;
+	private List<Element> indexedElements;
+	private String nativeImageDirectory;
+	private Set<String> nativeImageTypes;
+	private Set<Element> nativeImageElements;
+	private Set<String> compiledTypes;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.RELEASE_8;
+	}
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		Set<String> result = new HashSet<String>();
+		result.add(VirtualField.class.getCanonicalName());
+		result.add(VirtualFieldFor.class.getCanonicalName());
+		return result;
+	}
+
+	/**
+	 * Tells Gradle which kind of incremental processor this is: writing the
+	 * index or the native-image configuration aggregates all annotated
+	 * interfaces into shared resources, without them every generated type
+	 * only depends on its own interface.
+	 */
+	@Override
+	public Set<String> getSupportedOptions() {
+		return new HashSet<>(Arrays.asList(DEBUG, INDEX, NATIVE_IMAGE,
+				index || nativeImageDirectory != null ? AGGREGATING : ISOLATING));
+	}
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		elementUtils = processingEnv.getElementUtils();
+		typeUtils = processingEnv.getTypeUtils();
+		filer = processingEnv.getFiler();
+		messager = processingEnv.getMessager();
+		objectMethods = getObjectMethodSignatures();
+		objectMethodNames = objectMethods.stream()
+				.map(signature -> signature.substring(0, signature.indexOf('(')))
+				.collect(Collectors.toSet());
+		debug = processingEnv.getOptions().containsKey(DEBUG);
+		index = processingEnv.getOptions().containsKey(INDEX);
+		indexEntries = new TreeMap<>();
+		indexedElements = new ArrayList<>();
+		nativeImageDirectory = getNativeImageDirectory(processingEnv.getOptions());
+		nativeImageTypes = new TreeSet<>();
+		nativeImageElements = new LinkedHashSet<>();
+		compiledTypes = new HashSet<>();
+	}
+
+	/**
+	 * @return the directory of the native-image configuration below
+	 *         {@code META-INF/native-image}, by convention
+	 *         {@code <groupId>/<artifactId>}, or {@code null} if it is not
+	 *         written
+	 */
+	private String getNativeImageDirectory(Map<String, String> options) {
+		if (!options.containsKey(NATIVE_IMAGE)) {
+			return null;
+		}
+		String directory = options.get(NATIVE_IMAGE);
+		return directory == null || directory.isEmpty() ? NATIVE_IMAGE_DIRECTORY : directory;
+	}
+
+	/**
+	 * Gets all java.lang.Object methods that are are possible to override.
+	 * @param name
+	 * @return
+	 */
+	private Set<String> getObjectMethodSignatures() {
+		return elementUtils.getTypeElement("java.lang.Object")
+				.getEnclosedElements().stream()
+				.filter(e -> e.getKind().equals(ElementKind.METHOD))
+				.map(ExecutableElement.class::cast)
+				.filter(e -> !e.getModifiers().contains(Modifier.STATIC))
+				.filter(e -> !e.getModifiers().contains(Modifier.FINAL))
+				.map(ExecutableElement::toString)
+				.collect(Collectors.toSet());
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (!roundEnv.processingOver()) {
+			processAnnotations(annotations, roundEnv);
+			if (index || nativeImageDirectory != null) {
+				ElementFilter.typesIn(roundEnv.getRootElements())
+						.forEach(type -> compiledTypes.add(elementUtils.getBinaryName(type).toString()));
+			}
+		} else {
+			if (index) {
+				writeIndex();
+			}
+			if (nativeImageDirectory != null) {
+				writeNativeImageConfig();
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Every annotated element is processed in isolation: the generated source
+	 * only depends on the element itself and is written with that element as
+	 * its single originating element, so the processor qualifies as an
+	 * isolating processor for incremental builds. Only the index and the
+	 * native-image configuration, written after the last round, depend on all
+	 * of them.
+	 */
+	private void processAnnotations(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(VirtualField.class)) {
+			processElement(element);
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(VirtualFieldFor.class)) {
+			processExternalTypes(element);
+		}
+	}
+
+	private void processElement(Element element) {
+		if (!element.getKind().equals(ElementKind.INTERFACE)) {
+			AnnotationMirror annotationMirror = getAnnotationMirror(element, VirtualField.class);
+			error(element, annotationMirror, "The annotation @%s is disallowed for this location.",
+					VirtualField.class.getSimpleName());
+			return;
+		}
+		procesTypeElement(TypeElement.class.cast(element));
+	}
+
+	private void procesTypeElement(TypeElement element) {
+		note("Processing type %s", element);
+		List<ExecutableElement> methods = new ArrayList<>();
+		for (Element enclosed : element.getEnclosedElements()) {
+			if (isMethod(enclosed) && isNotStatic(enclosed) && !isObjectMethod((ExecutableElement) enclosed)) {
+				methods.add((ExecutableElement) enclosed);
+			}
+		}
+		Map<String, AnnotationValue> values = getAnnotationValues(getAnnotationMirror(element, VirtualField.class));
+		VirtualFieldModel model = new VirtualFieldModel(element, getNewClassName(element, values),
+				getTypeVariables(element), methods);
+		generate(model, values);
+	}
+
+	/**
+	 * Generates the interfaces listed in {@link VirtualFieldFor} into the
+	 * package of the annotated element, which is their originating element.
+	 * Only the list of the element itself is checked for duplicates, so the
+	 * processor stays isolating; the same interface listed for two elements
+	 * of one package fails when its source is written the second time.
+	 */
+	@SuppressWarnings("unchecked")
+	private void processExternalTypes(Element element) {
+		AnnotationMirror annotationMirror = getAnnotationMirror(element, VirtualFieldFor.class);
+		String packageName = elementUtils.getPackageOf(element).getQualifiedName().toString();
+		List<? extends AnnotationValue> types = (List<? extends AnnotationValue>) getAnnotationValues(
+				annotationMirror).get("value").getValue();
+		Set<ClassName> classNames = new HashSet<>();
+		for (AnnotationValue value : types) {
+			TypeMirror type = (TypeMirror) value.getValue();
+			if (type.getKind() != TypeKind.DECLARED
+					|| ((DeclaredType) type).asElement().getKind() != ElementKind.INTERFACE) {
+				error(element, annotationMirror, "Only interfaces can be listed in @%s, %s is not one.",
+						VirtualFieldFor.class.getSimpleName(), type);
+				continue;
+			}
+			TypeElement external = (TypeElement) ((DeclaredType) type).asElement();
+			ClassName className = ClassName.get(packageName, "Virtual" + getClassName(external).replace(".", ""));
+			if (!classNames.add(className)) {
+				error(element, annotationMirror, "%s is listed more than once in @%s.", external,
+						VirtualFieldFor.class.getSimpleName());
+				continue;
+			}
+			note("Processing external type %s", external);
+			VirtualFieldModel model = new VirtualFieldModel(external, element, className, getTypeVariables(external),
+					getInheritedMethods(external));
+			write(model, getTypeSpec(model).addMethods(getMethodSpecs(model)).build());
+			addIndexEntry(model);
+		}
+	}
+
+	/**
+	 * Collects the methods to delegate, declared or inherited. Of the methods
+	 * inherited with the same signature on more than one path only the one
+	 * with the most specific return type is kept.
+	 */
+	private List<ExecutableElement> getInheritedMethods(TypeElement type) {
+		DeclaredType declaredType = (DeclaredType) type.asType();
+		List<ExecutableElement> methods = new ArrayList<>();
+		List<ExecutableType> methodTypes = new ArrayList<>();
+		for (ExecutableElement method : ElementFilter.methodsIn(elementUtils.getAllMembers(type))) {
+			if (!isNotStatic(method) || isObjectMethod(method) || isDeclaredByObject(method)) {
+				continue;
+			}
+			ExecutableType methodType = (ExecutableType) typeUtils.asMemberOf(declaredType, method);
+			int same = indexOfSameSignature(method, methodType, methods, methodTypes);
+			if (same < 0) {
+				methods.add(method);
+				methodTypes.add(methodType);
+			} else if (!typeUtils.isAssignable(methodTypes.get(same).getReturnType(), methodType.getReturnType())) {
+				methods.set(same, method);
+				methodTypes.set(same, methodType);
+			}
+		}
+		return methods;
+	}
+
+	private int indexOfSameSignature(ExecutableElement method, ExecutableType methodType,
+			List<ExecutableElement> methods, List<ExecutableType> methodTypes) {
+		for (int i = 0; i < methods.size(); i++) {
+			if (methods.get(i).getSimpleName().equals(method.getSimpleName())
+					&& typeUtils.isSubsignature(methodTypes.get(i), methodType)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isDeclaredByObject(ExecutableElement method) {
+		return ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object");
+	}
+
+	private boolean isMethod(Element element) {
+		return ElementKind.METHOD.equals(element.getKind());
+	}
+
+	private boolean isNotStatic(Element element) {
+		return !element.getModifiers().contains(Modifier.STATIC);
+	}
+
+	/**
+	 * Matches on the name first, the full signature is only rendered for the
+	 * few methods that share their name with a method of java.lang.Object.
+	 */
+	private boolean isObjectMethod(ExecutableElement method) {
+		return objectMethodNames.contains(method.getSimpleName().toString())
+				&& objectMethods.contains(method.toString());
+	}
+
+	private void generate(VirtualFieldModel model, Map<String, AnnotationValue> values) {
+		List<ExecutableElement> methods = model.getMethods();
+		TypeSpec typeSpec = getTypeSpec(model).addMethods(getMethodSpecs(model)).build();
+		write(model, typeSpec);
+		addIndexEntry(model);
+		if (isEnabled(values, "abstractClass")) {
+			write(model, new AbstractClassGenerator(model).generate());
+		}
+		if (isEnabled(values, "async")) {
+			AsyncGenerator asyncGenerator = new AsyncGenerator(model);
+			write(model, asyncGenerator.generateInterface());
+			write(model, asyncGenerator.generateAdapter());
+		}
+		if (isEnabled(values, "instrumented")) {
+			write(model, new InstrumentedGenerator(model).generate());
+		}
+		if (isEnabled(values, "flightRecorder")) {
+			write(model, new FlightRecorderGenerator(model).generate());
+		}
+		if (isEnabled(values, "composite")) {
+			write(model, new CompositeGenerator(model).generate());
+		}
+		if (isEnabled(values, "swappable")) {
+			write(model, new SwappableGenerator(model).generate());
+		}
+		if (isEnabled(values, "lazy") && validateLazy(methods)) {
+			write(model, new LazyGenerator(model).generate());
+		}
+		if (isEnabled(values, "recording")) {
+			write(model, new RecordingGenerator(model).generate());
+		}
+		if (isEnabled(values, "threadConfined")) {
+			write(model, new ThreadConfinedGenerator(model).generate());
+		}
+		if (isEnabled(values, "pooled")) {
+			write(model, new PooledGenerator(model).generate());
+		}
+		if (isEnabled(values, "writeBehind")) {
+			write(model, new WriteBehindGenerator(model).generate());
+		}
+		List<PrimitiveType> specializations = getSpecializations(model.getType(), values);
+		if (specializations != null) {
+			for (PrimitiveType primitive : specializations) {
+				SpecializationGenerator specializationGenerator = new SpecializationGenerator(model, primitive,
+						typeUtils);
+				if (validateSpecialization(specializationGenerator, primitive)) {
+					write(model, specializationGenerator.generateInterface());
+					write(model, specializationGenerator.generateVirtual());
+				}
+			}
+		}
+		if (model.hasMethodAnnotated(Cacheable.class) && validateCacheable(methods)) {
+			write(model, new CachingGenerator(model).generate());
+		}
+		if (model.hasParameterAnnotated(ShardKey.class) && validateSharded(methods)) {
+			write(model, new ShardedGenerator(model).generate());
+		}
+		if (model.hasMethodAnnotated(Batched.class)) {
+			Map<ExecutableElement, ExecutableElement> bulkMethods = getBulkMethods(methods);
+			if (bulkMethods != null) {
+				write(model, new BatchingGenerator(model, bulkMethods).generate());
+			}
+		}
+		if ((BulkheadGenerator.hasBulkhead(model.getType()) || model.hasMethodAnnotated(Bulkhead.class))
+				&& validateBulkhead(model.getType()) & validateBulkheads(methods)) {
+			write(model, new BulkheadGenerator(model).generate());
+		}
+		if (model.hasMethodAnnotated(ReadOnly.class)) {
+			write(model, new ReplicatedGenerator(model).generate());
+		}
+		if (model.hasMethodAnnotated(Idempotent.class)) {
+			write(model, new HedgedGenerator(model).generate());
+		}
+	}
+
+	/**
+	 * @return the distinct primitive types to specialize the interface for, or
+	 *         {@code null} if one of them is not valid for it. Only the first
+	 *         invalid one is reported, javac reports a single error per
+	 *         annotation.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<PrimitiveType> getSpecializations(TypeElement type, Map<String, AnnotationValue> values) {
+		List<? extends AnnotationValue> classes = (List<? extends AnnotationValue>) values.get("specializations")
+				.getValue();
+		List<PrimitiveType> specializations = new ArrayList<>();
+		if (classes.isEmpty()) {
+			return specializations;
+		}
+		AnnotationMirror annotationMirror = getAnnotationMirror(type, VirtualField.class);
+		if (type.getTypeParameters().isEmpty()) {
+			error(type, annotationMirror, "Only generic interfaces can be specialized.");
+			return null;
+		}
+		for (AnnotationValue value : classes) {
+			TypeMirror specialization = (TypeMirror) value.getValue();
+			if (!specialization.getKind().isPrimitive()) {
+				error(type, annotationMirror, "Only primitive types can be listed in specializations, %s is not one.",
+						specialization);
+				return null;
+			}
+			TypeMirror box = typeUtils.boxedClass((PrimitiveType) specialization).asType();
+			for (TypeParameterElement typeParameter : type.getTypeParameters()) {
+				for (TypeMirror bound : typeParameter.getBounds()) {
+					if (!typeUtils.isAssignable(box, typeUtils.erasure(bound))) {
+						error(type, annotationMirror,
+								"Can not specialize for %s, %s does not satisfy the bounds of %s.", specialization, box,
+								typeParameter);
+						return null;
+					}
+				}
+			}
+			if (specializations.stream().noneMatch(primitive -> primitive.getKind() == specialization.getKind())) {
+				specializations.add((PrimitiveType) specialization);
+			}
+		}
+		return specializations;
+	}
+
+	private boolean validateSpecialization(SpecializationGenerator generator, PrimitiveType primitive) {
+		for (ExecutableElement method : generator.getClashes()) {
+			error(method, null, "Can not specialize %s for %s, the signature of %s is already taken.",
+					method.getSimpleName(), primitive, generator.getPrimitiveName(method));
+		}
+		return generator.getClashes().isEmpty();
+	}
+
+	private boolean validateCacheable(List<ExecutableElement> methods) {
+		boolean valid = true;
+		for (ExecutableElement method : methods) {
+			AnnotationMirror annotationMirror = getAnnotationMirror(method, Cacheable.class);
+			if (annotationMirror == null) {
+				continue;
+			}
+			if (returnsVoid(method)) {
+				error(method, annotationMirror, "Methods returning void can not be @%s.", Cacheable.class.getSimpleName());
+				valid = false;
+			} else if (!method.getTypeParameters().isEmpty()) {
+				error(method, annotationMirror, "Generic methods can not be @%s.", Cacheable.class.getSimpleName());
+				valid = false;
+			} else if (method.getAnnotation(Cacheable.class).maximumSize() <= 0) {
+				error(method, annotationMirror, "The maximumSize of @%s must be positive.", Cacheable.class.getSimpleName());
+				valid = false;
+			}
+		}
+		return valid;
+	}
+
+	private boolean validateLazy(List<ExecutableElement> methods) {
+		boolean valid = true;
+		for (ExecutableElement method : methods) {
+			if (LazyGenerator.clashes(method)) {
+				error(method, null, "%s clashes with the method of the same signature of the lazy delegate.",
+						method);
+				valid = false;
+			}
+		}
+		return valid;
+	}
+
+	private boolean validateSharded(List<ExecutableElement> methods) {
+		boolean valid = true;
+		for (ExecutableElement method : methods) {
+			int shardKeys = ShardedGenerator.shardKeys(method);
+			if (shardKeys == 0) {
+				error(method, null, "Every method of a sharded interface needs a @%s parameter.",
+						ShardKey.class.getSimpleName());
+				valid = false;
+			} else if (shardKeys > 1) {
+				error(method, null, "Methods can only have one @%s parameter.", ShardKey.class.getSimpleName());
+				valid = false;
+			}
+		}
+		return valid;
+	}
+
+	private boolean validateBulkheads(List<ExecutableElement> methods) {
+		boolean valid = true;
+		for (ExecutableElement method : methods) {
+			valid &= validateBulkhead(method);
+		}
+		return valid;
+	}
+
+	private boolean validateBulkhead(Element element) {
+		AnnotationMirror annotationMirror = getAnnotationMirror(element, Bulkhead.class);
+		if (annotationMirror == null) {
+			return true;
+		}
+		Bulkhead bulkhead = element.getAnnotation(Bulkhead.class);
+		if (bulkhead.maxConcurrent() <= 0) {
+			error(element, annotationMirror, "The maxConcurrent of @%s must be positive.", Bulkhead.class.getSimpleName());
+			return false;
+		}
+		if (bulkhead.maxWait() < 0) {
+			error(element, annotationMirror, "The maxWait of @%s must not be negative.", Bulkhead.class.getSimpleName());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the bulk method of every {@link Batched} method, in the order of
+	 *         the methods, or {@code null} if any of them is invalid
+	 */
+	private Map<ExecutableElement, ExecutableElement> getBulkMethods(List<ExecutableElement> methods) {
+		Map<ExecutableElement, ExecutableElement> bulkMethods = new LinkedHashMap<>();
+		boolean valid = true;
+		for (ExecutableElement method : methods) {
+			AnnotationMirror annotationMirror = getAnnotationMirror(method, Batched.class);
+			if (annotationMirror == null) {
+				continue;
+			}
+			Batched batched = method.getAnnotation(Batched.class);
+			String name = Batched.class.getSimpleName();
+			ExecutableElement bulkMethod = null;
+			if (method.getParameters().size() != 1) {
+				error(method, annotationMirror, "Methods with @%s must have exactly one parameter.", name);
+			} else if (!method.getTypeParameters().isEmpty()) {
+				error(method, annotationMirror, "Generic methods can not be @%s.", name);
+			} else if (!returnsVoid(method) && !isCompletableFuture(method.getReturnType())) {
+				error(method, annotationMirror, "Methods with @%s must return void or a CompletableFuture.", name);
+			} else if (batched.maxSize() <= 0 || batched.capacity() < batched.maxSize()) {
+				error(method, annotationMirror, "The capacity of @%s must be at least its positive maxSize.", name);
+			} else if ((bulkMethod = findBulkMethod(method, batched.value(), methods)) == null) {
+				error(method, annotationMirror, "There is no bulk method %s taking a List of %s for @%s.",
+						batched.value(), method.getParameters().get(0).asType(), name);
+			} else if (!returnsVoid(method) && !returnsResults(bulkMethod, method.getReturnType())) {
+				error(method, annotationMirror, "The bulk method %s of @%s must return a List of the results.",
+						batched.value(), name);
+				bulkMethod = null;
+			}
+			if (bulkMethod == null) {
+				valid = false;
+			} else {
+				bulkMethods.put(method, bulkMethod);
+			}
+		}
+		return valid ? bulkMethods : null;
+	}
+
+	private boolean isCompletableFuture(TypeMirror type) {
+		TypeElement future = elementUtils.getTypeElement(CompletableFuture.class.getCanonicalName());
+		return type.getKind() == TypeKind.DECLARED
+				&& ((DeclaredType) type).asElement().equals(future)
+				&& !((DeclaredType) type).getTypeArguments().isEmpty();
+	}
+
+	private ExecutableElement findBulkMethod(ExecutableElement method, String name, List<ExecutableElement> methods) {
+		TypeMirror itemType = method.getParameters().get(0).asType();
+		if (itemType.getKind().isPrimitive()) {
+			itemType = typeUtils.boxedClass((PrimitiveType) itemType).asType();
+		}
+		TypeMirror items = typeUtils.getDeclaredType(elementUtils.getTypeElement(List.class.getCanonicalName()),
+				itemType);
+		for (ExecutableElement candidate : methods) {
+			if (candidate.getSimpleName().contentEquals(name) && candidate.getParameters().size() == 1
+					&& typeUtils.isAssignable(items, candidate.getParameters().get(0).asType())) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	private boolean returnsResults(ExecutableElement bulkMethod, TypeMirror futureType) {
+		TypeMirror resultType = ((DeclaredType) futureType).getTypeArguments().get(0);
+		TypeMirror results = typeUtils.getDeclaredType(elementUtils.getTypeElement(List.class.getCanonicalName()),
+				typeUtils.getWildcardType(resultType, null));
+		return typeUtils.isAssignable(bulkMethod.getReturnType(), results);
+	}
+
+	private boolean isEnabled(Map<String, AnnotationValue> values, String key) {
+		return (Boolean) values.get(key).getValue();
+	}
+
+	private void write(VirtualFieldModel model, TypeSpec typeSpec) {
+		String packageName = model.getVirtualClassName().packageName();
+		JavaFile javaFile = JavaFile.builder(packageName, typeSpec).indent("    ").build();
+		String typeName = javaFile.packageName + "." + javaFile.typeSpec.name;
+		try {
+			note("Writing source of %s", typeName);
+			javaFile.writeTo(filer);
+		} catch (IOException e) {
+			error(model.getOriginatingElement(), null, "Failed to write class %s. Reason: %s", typeName, e);
+		}
+		if (nativeImageDirectory != null) {
+			nativeImageTypes.add(elementUtils.getBinaryName(model.getType()).toString());
+			addBinaryNames(typeName, typeSpec);
+			nativeImageElements.add(model.getOriginatingElement());
+		}
+	}
+
+	private void addBinaryNames(String binaryName, TypeSpec typeSpec) {
+		nativeImageTypes.add(binaryName);
+		for (TypeSpec nested : typeSpec.typeSpecs) {
+			addBinaryNames(binaryName + "$" + nested.name, nested);
+		}
+	}
+
+	private void addIndexEntry(VirtualFieldModel model) {
+		if (index) {
+			indexEntries.put(elementUtils.getBinaryName(model.getType()).toString(),
+					model.getVirtualClassName().reflectionName() + " " + model.getDelegateMethodName());
+			indexedElements.add(model.getOriginatingElement());
+		}
+	}
+
+	/**
+	 * Writes the index of every interface processed in any round. Builds that
+	 * only recompile some interfaces keep the entries of the previous index
+	 * for the interfaces they did not compile, as long as the interface and
+	 * its generated type still exist.
+	 */
+	private void writeIndex() {
+		Map<String, String> entries = new TreeMap<>(readIndex());
+		entries.putAll(indexEntries);
+		try {
+			FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", VirtualFieldIndex.RESOURCE,
+					indexedElements.toArray(new Element[indexedElements.size()]));
+			try (Writer writer = resource.openWriter()) {
+				for (Map.Entry<String, String> entry : entries.entrySet()) {
+					writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+				}
+			}
+			note("Wrote the index of %d interfaces", entries.size());
+		} catch (IOException e) {
+			error("Failed to write %s. Reason: %s", VirtualFieldIndex.RESOURCE, e);
+		}
+	}
+
+	private Map<String, String> readIndex() {
+		Map<String, String> entries = new TreeMap<>();
+		try (BufferedReader reader = new BufferedReader(
+				filer.getResource(StandardLocation.CLASS_OUTPUT, "", VirtualFieldIndex.RESOURCE).openReader(false))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] names = line.trim().split("\\s+");
+				if (names.length == 3 && !compiledTypes.contains(names[0]) && exists(names[0])
+						&& exists(names[1])) {
+					entries.put(names[0], names[1] + " " + names[2]);
+				}
+			}
+		} catch (IOException e) {
+			note("No previous index to merge: %s", e);
+		}
+		return entries;
+	}
+
+	/**
+	 * Writes the GraalVM native-image configuration of every generated type
+	 * and of the interfaces they were generated from, which registers them
+	 * for reflection and for dynamic proxies of the interfaces, and lists them
+	 * in a class list for dumping a CDS archive. Like the index, types of
+	 * previous builds that were not compiled again are kept from the previous
+	 * class list.
+	 */
+	private void writeNativeImageConfig() {
+		Set<String> types = new TreeSet<>(readClassList());
+		types.addAll(nativeImageTypes);
+		StringBuilder reflectConfig = new StringBuilder();
+		StringBuilder proxyConfig = new StringBuilder();
+		StringBuilder classList = new StringBuilder();
+		for (String type : types) {
+			reflectConfig.append(reflectConfig.length() == 0 ? "[\n" : ",\n")
+					.append("  {\"name\": \"").append(type).append("\", \"allDeclaredConstructors\": true, ")
+					.append("\"allPublicMethods\": true, \"allDeclaredFields\": true}");
+			TypeElement element = elementUtils.getTypeElement(type.replace('$', '.'));
+			if (element != null && element.getKind() == ElementKind.INTERFACE) {
+				proxyConfig.append(proxyConfig.length() == 0 ? "[\n" : ",\n")
+						.append("  {\"interfaces\": [\"").append(type).append("\"]}");
+			}
+			classList.append(type.replace('.', '/')).append('\n');
+		}
+		String directory = "META-INF/native-image/" + nativeImageDirectory + "/";
+		writeResource(directory + "reflect-config.json", jsonArray(reflectConfig));
+		writeResource(directory + "proxy-config.json", jsonArray(proxyConfig));
+		if (index) {
+			writeResource(directory + "resource-config.json", "{\n  \"resources\": {\"includes\": [{\"pattern\": \"\\\\Q"
+					+ VirtualFieldIndex.RESOURCE + "\\\\E\"}]}\n}\n");
+		}
+		writeResource(CLASS_LIST, classList.toString());
+		note("Wrote the native-image configuration of %d types", types.size());
+	}
+
+	private static String jsonArray(StringBuilder elements) {
+		return elements.length() == 0 ? "[]\n" : elements.append("\n]\n").toString();
+	}
+
+	private void writeResource(String name, String contents) {
+		try {
+			FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", name,
+					nativeImageElements.toArray(new Element[nativeImageElements.size()]));
+			try (Writer writer = resource.openWriter()) {
+				writer.write(contents);
+			}
+		} catch (IOException e) {
+			error("Failed to write %s. Reason: %s", name, e);
+		}
+	}
+
+	private Set<String> readClassList() {
+		Set<String> types = new TreeSet<>();
+		try (BufferedReader reader = new BufferedReader(
+				filer.getResource(StandardLocation.CLASS_OUTPUT, "", CLASS_LIST).openReader(false))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String type = line.trim().replace('/', '.');
+				if (!type.isEmpty() && !compiledTypes.contains(type) && exists(type)) {
+					types.add(type);
+				}
+			}
+		} catch (IOException e) {
+			note("No previous class list to merge: %s", e);
+		}
+		return types;
+	}
+
+	private boolean exists(String binaryName) {
+		return elementUtils.getTypeElement(binaryName.replace('$', '.')) != null;
+	}
+
+	private TypeSpec.Builder getTypeSpec(VirtualFieldModel model) {
+		return TypeSpec.interfaceBuilder(model.getVirtualClassName())
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getTypeName())
+				.addAnnotation(generatedAnnotation())
+				.addOriginatingElement(model.getOriginatingElement());
+	}
+
+	static AnnotationSpec generatedAnnotation() {
+		return GENERATED;
+	}
+
+	private ClassName getNewClassName(TypeElement type, Map<String, AnnotationValue> values) {
+		String newIfcName = getNewInterfaceName(type, values);
+		String packageName = elementUtils.getPackageOf(type).getQualifiedName().toString();
+		ClassName className = ClassName.get(packageName, newIfcName);
+		note("Generated class name is %s", className);
+		return className;
+	}
+
+	private List<TypeVariableName> getTypeVariables(TypeElement type) {
+		List<TypeVariableName> typeVariables = type.getTypeParameters().stream()
+				.map(el -> TypeVariableName.get(el))
+				.collect(Collectors.toList());
+		note("Type variables for class are: %s", typeVariables);
+		return typeVariables;
+	}
+
+	private String getNewInterfaceName(TypeElement type, Map<String, AnnotationValue> values) {
+		String sourceName = getClassName(type);
+		String newIfcName = (String) values.get("value").getValue();
+		if(newIfcName.isEmpty()) {
+			newIfcName = "Virtual" + sourceName;
+		}
+		return newIfcName;
+	}
+
+	private List<MethodSpec> getMethodSpecs(VirtualFieldModel model) {
+		List<ExecutableElement> methods = model.getMethods();
+		String delegateMethodName = model.getDelegateMethodName();
+		List<MethodSpec> specs = new ArrayList<>(methods.size() + 1);
+		MethodSpec delegate = MethodSpec.methodBuilder(delegateMethodName)
+				.addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+				.returns(model.getTypeName())
+				.build();
+		specs.add(delegate);
+		for (ExecutableElement method : methods) {
+			specs.add(convertToSpec(model, method, delegateMethodName));
+		}
+		note("The following methods will have default methods generated for them: %s", methods);
+		return specs;
+	}
+
+	/**
+	 * Inherited methods are resolved as members of the interface, so the
+	 * type arguments of its superinterfaces are applied to them.
+	 */
+	private MethodSpec convertToSpec(VirtualFieldModel model, ExecutableElement method, String delegateMethodName) {
+		TypeElement type = model.getType();
+		MethodSpec.Builder builder = method.getEnclosingElement().equals(type)
+				? MethodSpec.overriding(method)
+				: MethodSpec.overriding(method, (DeclaredType) type.asType(), typeUtils);
+		return builder
+				.addModifiers(Modifier.DEFAULT)
+				.addStatement(
+						createStatement(method),
+						statementArgs(method, delegateMethodName))
+				.build();
+	}
+
+	private String createStatement(ExecutableElement method) {
+		return createStatement(method, "$L()");
+	}
+
+	/**
+	 * Creates the delegating statement format for a method.
+	 * @param receiver the format of the expression the call is made on, its
+	 * single literal is filled with the delegate name from {@link #statementArgs}
+	 */
+	static String createStatement(ExecutableElement method, String receiver) {
+		String statement = createInvocation(method, receiver);
+		if (!returnsVoid(method)) {
+			statement = "return " + statement;
+		}
+		return statement;
+	}
+
+	/**
+	 * Creates the format of the delegating call expression, without returning
+	 * its result. Takes the same arguments as {@link #createStatement}.
+	 */
+	static String createInvocation(ExecutableElement method, String receiver) {
+		StringBuilder invocation = new StringBuilder(receiver).append(".$L(");
+		for (int i = 0; i < method.getParameters().size(); i++) {
+			invocation.append(i == 0 ? "$L" : ", $L");
+		}
+		return invocation.append(')').toString();
+	}
+
+	/**
+	 * @return a name for a local variable that does not shadow any of the
+	 * parameters of the method
+	 */
+	static String localName(ExecutableElement method, String name) {
+		String localName = name;
+		for (int i = 1; hasParameter(method, localName); i++) {
+			localName = name + i;
+		}
+		return localName;
+	}
+
+	private static boolean hasParameter(ExecutableElement method, String name) {
+		for (VariableElement parameter : method.getParameters()) {
+			if (parameter.getSimpleName().contentEquals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static Object[] statementArgs(ExecutableElement method, String delegateMethodName) {
+		List<? extends VariableElement> parameters = method.getParameters();
+		Object[] args = new Object[parameters.size() + 2];
+		args[0] = delegateMethodName;
+		args[1] = method.getSimpleName().toString();
+		for (int i = 0; i < parameters.size(); i++) {
+			args[i + 2] = parameters.get(i).getSimpleName();
+		}
+		return args;
+	}
+
+	/**
+	 * @return the name of the type relative to its package, with the names of
+	 *         enclosing types joined by dots
+	 */
+	private String getClassName(TypeElement type) {
+		String qualifiedName = type.getQualifiedName().toString();
+		Name packageName = elementUtils.getPackageOf(type).getQualifiedName();
+		return packageName.length() == 0 ? qualifiedName : qualifiedName.substring(packageName.length() + 1);
+	}
+
+	private AnnotationMirror getAnnotationMirror(Element element, Class<? extends Annotation> annotationClass) {
+		for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+			if (annotationMirror.getAnnotationType().toString().equals(annotationClass.getName())) {
+				return annotationMirror;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads all values of the annotation, defaults included, in a single pass
+	 * so every attribute lookup of an element reuses the same map.
+	 */
+	private Map<String, AnnotationValue> getAnnotationValues(AnnotationMirror annotationMirror) {
+		Map<String, AnnotationValue> values = new HashMap<>();
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elementUtils
+				.getElementValuesWithDefaults(annotationMirror).entrySet()) {
+			values.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+		}
+		return values;
+	}
+
+	static boolean returnsVoid(ExecutableElement method) {
+		return method.getReturnType().getKind().equals(TypeKind.VOID);
+	}
+
+	private void error(String message, Object...args) {
+		messager.printMessage(Kind.ERROR, formatMessage(message, args));
+	}
+
+	private void error(Element element, AnnotationMirror annotation, String message, Object...args) {
+		messager.printMessage(Kind.ERROR, formatMessage(message, args), element, annotation);
+	}
+
+
+	private void note(String message, Object...args) {
+		if(!debug) {
+			return;
+		}
+		messager.printMessage(Kind.NOTE, formatMessage(message, args));
+	}
+
+	private String formatMessage(String message, Object... args) {
+		return String.format("VirtualFieldProcessor: " + message, args);
+	}
+}
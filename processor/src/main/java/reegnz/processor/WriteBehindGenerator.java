@@ -0,0 +1,201 @@
+package reegnz.processor;
+
+import java.util.List;
+import java.util.Locale;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import reegnz.processor.runtime.WriteBehindQueue;
+
+/**
+ * Generates {@code WriteBehind<Name>}, which queues the calls of void methods
+ * in a {@link WriteBehindQueue} and returns at once, while the queue runs them
+ * on the delegate on a consumer thread. Methods returning a value are
+ * delegated through the generated interface on the calling thread. Methods
+ * are queued by their position in the interface, with primitive and
+ * reference arguments in separate arrays of the slot.
+ */
+final class WriteBehindGenerator {
+
+	private static final String DELEGATE = AbstractClassGenerator.DELEGATE;
+	private static final String QUEUE = "queue";
+	private static final String ARGUMENTS = "arguments";
+	private static final ClassName WAIT_STRATEGY = ClassName.get(WriteBehindQueue.WaitStrategy.class);
+	private static final ClassName OVERFLOW = ClassName.get(WriteBehindQueue.Overflow.class);
+
+	private final VirtualFieldModel model;
+
+	WriteBehindGenerator(VirtualFieldModel model) {
+		this.model = model;
+	}
+
+	TypeSpec generate() {
+		ClassName className = model.peerClassName("WriteBehind" + model.getType().getSimpleName());
+		List<ExecutableElement> methods = model.getMethods();
+		int primitiveCount = 0;
+		int referenceCount = 0;
+		for (ExecutableElement method : methods) {
+			if (VirtualFieldProcessor.returnsVoid(method)) {
+				int primitives = (int) method.getParameters().stream()
+						.filter(parameter -> parameter.asType().getKind().isPrimitive())
+						.count();
+				primitiveCount = Math.max(primitiveCount, primitives);
+				referenceCount = Math.max(referenceCount, method.getParameters().size() - primitives);
+			}
+		}
+		TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+				.addTypeVariables(model.getTypeVariables())
+				.addModifiers(Modifier.PUBLIC)
+				.addSuperinterface(model.getVirtualTypeName())
+				.addAnnotation(VirtualFieldProcessor.generatedAnnotation())
+				.addOriginatingElement(model.getType())
+				.addField(model.getTypeName(), DELEGATE, Modifier.PRIVATE, Modifier.FINAL)
+				.addField(WriteBehindQueue.class, QUEUE, Modifier.PRIVATE, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("Queues up to {@code capacity} calls, callers wait for room when the queue\n"
+								+ "is full.\n")
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(model.getTypeName(), DELEGATE)
+						.addParameter(TypeName.INT, "capacity")
+						.addStatement("this($L, capacity, $T.$L, $T.$L)", DELEGATE, WAIT_STRATEGY,
+								WriteBehindQueue.WaitStrategy.SLEEPING, OVERFLOW, WriteBehindQueue.Overflow.BLOCK)
+						.build())
+				.addMethod(MethodSpec.constructorBuilder()
+						.addJavadoc("Starts the consumer thread of the queue.\n")
+						.addModifiers(Modifier.PUBLIC)
+						.addParameter(model.getTypeName(), DELEGATE)
+						.addParameter(TypeName.INT, "capacity")
+						.addParameter(WAIT_STRATEGY, "waitStrategy")
+						.addParameter(OVERFLOW, "overflow")
+						.addStatement("this.$L = $L", DELEGATE, DELEGATE)
+						.addStatement("this.$L = new $T($S, capacity, $L, $L, waitStrategy, overflow,\n"
+								+ "($L, $L) -> dispatch($L, $L, $L))", QUEUE, WriteBehindQueue.class,
+								model.getType().getSimpleName(), primitiveCount, referenceCount, "method",
+								ARGUMENTS, DELEGATE, "method", ARGUMENTS)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName())
+						.addAnnotation(Override.class)
+						.addModifiers(Modifier.PUBLIC)
+						.returns(model.getTypeName())
+						.addStatement("return $L", DELEGATE)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(model.getDelegateMethodName() + "Queue")
+						.addJavadoc("@return the queue of the calls, to flush or close it\n")
+						.addModifiers(Modifier.PUBLIC)
+						.returns(WriteBehindQueue.class)
+						.addStatement("return this.$L", QUEUE)
+						.build());
+		for (int i = 0; i < methods.size(); i++) {
+			if (VirtualFieldProcessor.returnsVoid(methods.get(i))) {
+				builder.addMethod(queuedMethod(methods.get(i), i));
+			}
+		}
+		return builder.addMethod(dispatch()).build();
+	}
+
+	private MethodSpec queuedMethod(ExecutableElement method, int index) {
+		String sequence = VirtualFieldProcessor.localName(method, "sequence");
+		MethodSpec.Builder builder = MethodSpec.overriding(method)
+				.addStatement("long $L = this.$L.claim($L)", sequence, QUEUE, index)
+				.beginControlFlow("if ($L < 0)", sequence)
+				.beginControlFlow("if ($L == $T.RUN_ON_CALLER)", sequence, WriteBehindQueue.class)
+				.addStatement(VirtualFieldProcessor.createStatement(method, "this.$L"),
+						VirtualFieldProcessor.statementArgs(method, DELEGATE))
+				.endControlFlow()
+				.addStatement("return")
+				.endControlFlow();
+		int primitive = 0;
+		int reference = 0;
+		for (VariableElement parameter : method.getParameters()) {
+			String kind = kind(parameter.asType());
+			int position = kind.equals("Reference") ? reference++ : primitive++;
+			builder.addStatement("this.$L.put$L($L, $L, $L)", QUEUE, kind, sequence, position,
+					parameter.getSimpleName());
+		}
+		return builder.addStatement("this.$L.publish($L)", QUEUE, sequence)
+				.build();
+	}
+
+	private MethodSpec dispatch() {
+		CodeBlock.Builder cases = CodeBlock.builder()
+				.beginControlFlow("switch (method)");
+		boolean unchecked = false;
+		boolean raw = false;
+		List<ExecutableElement> methods = model.getMethods();
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			if (!VirtualFieldProcessor.returnsVoid(method)) {
+				continue;
+			}
+			CodeBlock.Builder arguments = CodeBlock.builder();
+			int primitive = 0;
+			int reference = 0;
+			for (VariableElement parameter : method.getParameters()) {
+				TypeMirror type = parameter.asType();
+				String kind = kind(type);
+				if (parameter != method.getParameters().get(0)) {
+					arguments.add(", ");
+				}
+				if (kind.equals("Reference")) {
+					boolean generic = !method.getTypeParameters().isEmpty();
+					TypeName castType = generic ? RecordingGenerator.erasure(type) : TypeName.get(type);
+					unchecked |= generic || !RecordingGenerator.isCheckedCast(castType);
+					raw |= generic;
+					arguments.add("($T) $L.getReference($L)", castType, ARGUMENTS, reference++);
+				} else {
+					arguments.add("$L.get$L($L)", ARGUMENTS, kind, primitive++);
+				}
+			}
+			cases.add("case $L:\n", i)
+					.indent()
+					.addStatement("$L.$L($L)", DELEGATE, method.getSimpleName(), arguments.build())
+					.addStatement("break")
+					.unindent();
+		}
+		cases.add("default:\n")
+				.indent()
+				.addStatement("throw new $T($S + method)", IllegalArgumentException.class, "Unknown method ")
+				.unindent()
+				.endControlFlow();
+		MethodSpec.Builder builder = MethodSpec.methodBuilder("dispatch")
+				.addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+				.addTypeVariables(model.getTypeVariables())
+				.addParameter(model.getTypeName(), DELEGATE)
+				.addParameter(TypeName.INT, "method")
+				.addParameter(WriteBehindQueue.Arguments.class, ARGUMENTS)
+				.addException(Throwable.class)
+				.addCode(cases.build());
+		if (raw) {
+			builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+					.addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+					.build());
+		} else if (unchecked) {
+			builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+					.addMember("value", "$S", "unchecked")
+					.build());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the suffix of the {@link WriteBehindQueue} methods that queue
+	 *         and read arguments of the type
+	 */
+	private static String kind(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			String name = type.getKind().name();
+			return name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+		}
+		return "Reference";
+	}
+}
@@ -0,0 +1,128 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldAbstractClassTest {
+
+	@Test
+	public void shouldGenerateAbstractClass() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.MyIfc",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(abstractClass = true)",
+			"public interface MyIfc {",
+			"",
+			"    void myMethod();",
+			"",
+			"    int myOtherMethod(String delegate);",
+			"",
+			"    default String aDefaultMethod(String a, String b) {",
+			"        return a + b;",
+			"    }",
+			"",
+			"    static void staticMethod() {",
+			"    }",
+			"",
+			"}");
+		JavaFileObject generated = JavaFileObjects.forSourceLines("example.AbstractVirtualMyIfc",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import javax.annotation.Generated;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public abstract class AbstractVirtualMyIfc implements VirtualMyIfc {",
+			"    protected final MyIfc delegate;",
+			"",
+			"    protected AbstractVirtualMyIfc(MyIfc delegate) {",
+			"        this.delegate = delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public final MyIfc getMyIfc() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public final void myMethod() {",
+			"        this.delegate.myMethod();",
+			"    }",
+			"",
+			"    @Override",
+			"    public final int myOtherMethod(String delegate) {",
+			"        return this.delegate.myOtherMethod(delegate);",
+			"    }",
+			"",
+			"    @Override",
+			"    public final String aDefaultMethod(String a, String b) {",
+			"        return this.delegate.aDefaultMethod(a, b);",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(generated);
+	}
+
+	@Test
+	public void shouldGenerateGenericAbstractClass() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.GenericsIfc",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(value = \"CustomIfc\", abstractClass = true)",
+			"public interface GenericsIfc<A, B extends Iterable<A>> {",
+			"    B hello(A target);",
+			"",
+			"    <Z extends Iterable<?>> Iterable<Z> testMethodGenerics();",
+			"}");
+		JavaFileObject generated = JavaFileObjects.forSourceLines("example.AbstractCustomIfc",
+			"package example;",
+			"",
+			"import java.lang.Iterable;",
+			"import java.lang.Override;",
+			"import javax.annotation.Generated;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public abstract class AbstractCustomIfc<A, B extends Iterable<A>> implements CustomIfc<A, B> {",
+			"    protected final GenericsIfc<A, B> delegate;",
+			"",
+			"    protected AbstractCustomIfc(GenericsIfc<A, B> delegate) {",
+			"        this.delegate = delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public final GenericsIfc<A, B> getGenericsIfc() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public final B hello(A target) {",
+			"        return this.delegate.hello(target);",
+			"    }",
+			"",
+			"    @Override",
+			"    public final <Z extends Iterable<?>> Iterable<Z> testMethodGenerics() {",
+			"        return this.delegate.testMethodGenerics();",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(generated);
+	}
+
+}
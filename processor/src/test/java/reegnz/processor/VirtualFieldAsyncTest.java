@@ -0,0 +1,185 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldAsyncTest {
+
+	@Test
+	public void shouldGenerateAsyncInterfaceAndAdapter() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Lookup",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(async = true)",
+			"public interface Lookup<K> {",
+			"    String find(K key);",
+			"",
+			"    int count();",
+			"",
+			"    void store(K key, String value) throws IOException;",
+			"",
+			"    <Z extends Iterable<K>> Z all(String... keys);",
+			"}");
+		JavaFileObject asyncInterface = JavaFileObjects.forSourceLines("example.AsyncLookup",
+			"package example;",
+			"",
+			"import java.lang.Integer;",
+			"import java.lang.Iterable;",
+			"import java.lang.String;",
+			"import java.lang.Void;",
+			"import java.util.concurrent.CompletableFuture;",
+			"import javax.annotation.Generated;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public interface AsyncLookup<K> {",
+			"    CompletableFuture<String> find(K key);",
+			"",
+			"    CompletableFuture<Integer> count();",
+			"",
+			"    CompletableFuture<Void> store(K key, String value);",
+			"",
+			"    <Z extends Iterable<K>> CompletableFuture<Z> all(String... keys);",
+			"}");
+		JavaFileObject adapter = JavaFileObjects.forSourceLines("example.AsyncLookupAdapter",
+			"package example;",
+			"",
+			"import java.lang.Integer;",
+			"import java.lang.Iterable;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.lang.Throwable;",
+			"import java.lang.Void;",
+			"import java.util.concurrent.CompletableFuture;",
+			"import java.util.concurrent.CompletionException;",
+			"import java.util.concurrent.Executor;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.AsyncExecutors;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class AsyncLookupAdapter<K> implements AsyncLookup<K> {",
+			"    private final Lookup<K> delegate;",
+			"",
+			"    private final Executor executor;",
+			"",
+			"    /**",
+			"     * Runs the delegate on the {@link AsyncExecutors#defaultExecutor() default executor}.",
+			"     */",
+			"    public AsyncLookupAdapter(Lookup<K> delegate) {",
+			"        this(delegate, AsyncExecutors.defaultExecutor());",
+			"    }",
+			"",
+			"    public AsyncLookupAdapter(Lookup<K> delegate, Executor executor) {",
+			"        this.delegate = delegate;",
+			"        this.executor = executor;",
+			"    }",
+			"",
+			"    public Lookup<K> getLookup() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public CompletableFuture<String> find(K key) {",
+			"        return CompletableFuture.supplyAsync(() -> this.delegate.find(key), this.executor);",
+			"    }",
+			"",
+			"    @Override",
+			"    public CompletableFuture<Integer> count() {",
+			"        return CompletableFuture.supplyAsync(() -> this.delegate.count(), this.executor);",
+			"    }",
+			"",
+			"    @Override",
+			"    public CompletableFuture<Void> store(K key, String value) {",
+			"        return CompletableFuture.runAsync(() -> {",
+			"            try {",
+			"                this.delegate.store(key, value);",
+			"            } catch (Throwable e) {",
+			"                throw new CompletionException(e);",
+			"            }",
+			"        }, this.executor);",
+			"    }",
+			"",
+			"    @Override",
+			"    public <Z extends Iterable<K>> CompletableFuture<Z> all(String... keys) {",
+			"        return CompletableFuture.supplyAsync(() -> this.delegate.all(keys), this.executor);",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(asyncInterface, adapter);
+	}
+
+	@Test
+	public void shouldRunOnOwnExecutorWhenParameterIsNamedExecutor() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Task",
+			"package example;",
+			"",
+			"import java.util.concurrent.Executor;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(async = true)",
+			"public interface Task {",
+			"    void run(Executor executor);",
+			"",
+			"    String describe(String executor);",
+			"}");
+		JavaFileObject adapter = JavaFileObjects.forSourceLines("example.AsyncTaskAdapter",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.lang.Void;",
+			"import java.util.concurrent.CompletableFuture;",
+			"import java.util.concurrent.Executor;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.AsyncExecutors;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class AsyncTaskAdapter implements AsyncTask {",
+			"    private final Task delegate;",
+			"",
+			"    private final Executor executor;",
+			"",
+			"    /**",
+			"     * Runs the delegate on the {@link AsyncExecutors#defaultExecutor() default executor}.",
+			"     */",
+			"    public AsyncTaskAdapter(Task delegate) {",
+			"        this(delegate, AsyncExecutors.defaultExecutor());",
+			"    }",
+			"",
+			"    public AsyncTaskAdapter(Task delegate, Executor executor) {",
+			"        this.delegate = delegate;",
+			"        this.executor = executor;",
+			"    }",
+			"",
+			"    public Task getTask() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public CompletableFuture<Void> run(Executor executor) {",
+			"        return CompletableFuture.runAsync(() -> this.delegate.run(executor), this.executor);",
+			"    }",
+			"",
+			"    @Override",
+			"    public CompletableFuture<String> describe(String executor) {",
+			"        return CompletableFuture.supplyAsync(() -> this.delegate.describe(executor), this.executor);",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(adapter);
+	}
+}
@@ -0,0 +1,141 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldBatchingTest {
+
+	@Test
+	public void shouldGenerateBatching() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Writer",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.util.Collection;",
+			"import java.util.List;",
+			"import java.util.concurrent.CompletableFuture;",
+			"import reegnz.processor.api.Batched;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Writer<T> {",
+			"    @Batched(value = \"saveAll\", maxSize = 50, maxDelay = 5)",
+			"    void save(T entity);",
+			"",
+			"    void saveAll(Collection<? extends T> entities) throws IOException;",
+			"",
+			"    @Batched(\"lookupAll\")",
+			"    CompletableFuture<Long> lookup(int id);",
+			"",
+			"    List<Long> lookupAll(List<Integer> ids);",
+			"",
+			"    void flush();",
+			"}");
+		JavaFileObject batching = JavaFileObjects.forSourceLines("example.BatchingWriter",
+			"package example;",
+			"",
+			"import java.lang.Integer;",
+			"import java.lang.Long;",
+			"import java.lang.Override;",
+			"import java.lang.Void;",
+			"import java.util.concurrent.CompletableFuture;",
+			"import java.util.concurrent.ScheduledExecutorService;",
+			"import java.util.concurrent.TimeUnit;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.Batcher;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class BatchingWriter<T> implements VirtualWriter<T> {",
+			"    private final Writer<T> delegate;",
+			"",
+			"    private final Batcher<T, Void> saveBatcher;",
+			"",
+			"    private final Batcher<Integer, Long> lookupBatcher;",
+			"",
+			"    /**",
+			"     * Runs the bulk calls on the {@link Batcher#defaultScheduler() default scheduler}.",
+			"     */",
+			"    public BatchingWriter(Writer<T> delegate) {",
+			"        this(delegate, Batcher.defaultScheduler());",
+			"    }",
+			"",
+			"    public BatchingWriter(Writer<T> delegate, ScheduledExecutorService scheduler) {",
+			"        this.delegate = delegate;",
+			"        this.saveBatcher = new Batcher<>(items -> {",
+			"            delegate.saveAll(items);",
+			"            return null;",
+			"        }, 50, TimeUnit.MILLISECONDS.toNanos(5), 10000, scheduler);",
+			"        this.lookupBatcher = new Batcher<>(items -> delegate.lookupAll(items), 100, TimeUnit.MILLISECONDS.toNanos(10), 10000, scheduler);",
+			"    }",
+			"",
+			"    @Override",
+			"    public Writer<T> getWriter() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public void save(T entity) {",
+			"        saveBatcher.add(entity);",
+			"    }",
+			"",
+			"    @Override",
+			"    public CompletableFuture<Long> lookup(int id) {",
+			"        return lookupBatcher.submit(id);",
+			"    }",
+			"",
+			"    /**",
+			"     * Passes all buffered items on without waiting for more.",
+			"     *",
+			"     * @return completed when the bulk calls of the buffered items return",
+			"     */",
+			"    public CompletableFuture<Void> flushWriterBatches() {",
+			"        return CompletableFuture.allOf(saveBatcher.flush(), lookupBatcher.flush());",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(batching);
+	}
+
+	@Test
+	public void shouldRequireMatchingBulkMethods() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Writer",
+			"package example;",
+			"",
+			"import java.util.List;",
+			"import java.util.concurrent.CompletableFuture;",
+			"import reegnz.processor.api.Batched;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Writer {",
+			"    @Batched(\"saveAll\")",
+			"    void save(String entity);",
+			"",
+			"    void saveAll(List<Integer> entities);",
+			"",
+			"    @Batched(\"lookupAll\")",
+			"    CompletableFuture<Long> lookup(int id);",
+			"",
+			"    void lookupAll(List<Integer> ids);",
+			"",
+			"    @Batched(\"saveAll\")",
+			"    int count(String entity);",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("There is no bulk method saveAll taking a List of java.lang.String for @Batched.").and()
+			.withErrorContaining("The bulk method lookupAll of @Batched must return a List of the results.").and()
+			.withErrorContaining("Methods with @Batched must return void or a CompletableFuture.");
+	}
+}
@@ -0,0 +1,144 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldBulkheadTest {
+
+	@Test
+	public void shouldGenerateBulkhead() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Gateway",
+			"package example;",
+			"",
+			"import java.util.concurrent.TimeUnit;",
+			"import reegnz.processor.api.Bulkhead;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"@Bulkhead(maxConcurrent = 20, maxWait = 50)",
+			"public interface Gateway<K> {",
+			"    @Bulkhead(maxConcurrent = 4)",
+			"    String fetch(K key);",
+			"",
+			"    @Bulkhead(maxConcurrent = 2, maxWait = 1, timeUnit = TimeUnit.SECONDS)",
+			"    void store(K key, String value);",
+			"",
+			"    int size();",
+			"}");
+		JavaFileObject bulkhead = JavaFileObjects.forSourceLines("example.BulkheadGateway",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.util.concurrent.TimeUnit;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.ConcurrencyLimiter;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class BulkheadGateway<K> implements VirtualGateway<K> {",
+			"    private final Gateway<K> delegate;",
+			"",
+			"    private final ConcurrencyLimiter limiter;",
+			"",
+			"    private final ConcurrencyLimiter fetchLimiter;",
+			"",
+			"    private final ConcurrencyLimiter storeLimiter;",
+			"",
+			"    public BulkheadGateway(Gateway<K> delegate) {",
+			"        this.delegate = delegate;",
+			"        this.limiter = new ConcurrencyLimiter(\"Gateway\", 20, TimeUnit.MILLISECONDS.toNanos(50));",
+			"        this.fetchLimiter = new ConcurrencyLimiter(\"Gateway.fetch\", 4, TimeUnit.MILLISECONDS.toNanos(0));",
+			"        this.storeLimiter = new ConcurrencyLimiter(\"Gateway.store\", 2, TimeUnit.SECONDS.toNanos(1));",
+			"    }",
+			"",
+			"    @Override",
+			"    public Gateway<K> getGateway() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the limiter of the methods without a limit of their own, to tune at runtime",
+			"     */",
+			"    public ConcurrencyLimiter getLimiter() {",
+			"        return this.limiter;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the limiter of {@code fetch}, to tune at runtime",
+			"     */",
+			"    public ConcurrencyLimiter getFetchLimiter() {",
+			"        return this.fetchLimiter;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the limiter of {@code store}, to tune at runtime",
+			"     */",
+			"    public ConcurrencyLimiter getStoreLimiter() {",
+			"        return this.storeLimiter;",
+			"    }",
+			"",
+			"    @Override",
+			"    public String fetch(K key) {",
+			"        this.fetchLimiter.acquire();",
+			"        try {",
+			"            return this.delegate.fetch(key);",
+			"        } finally {",
+			"            this.fetchLimiter.release();",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public void store(K key, String value) {",
+			"        this.storeLimiter.acquire();",
+			"        try {",
+			"            this.delegate.store(key, value);",
+			"        } finally {",
+			"            this.storeLimiter.release();",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public int size() {",
+			"        this.limiter.acquire();",
+			"        try {",
+			"            return this.delegate.size();",
+			"        } finally {",
+			"            this.limiter.release();",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(bulkhead);
+	}
+
+	@Test
+	public void shouldRequirePositiveLimits() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Gateway",
+			"package example;",
+			"",
+			"import reegnz.processor.api.Bulkhead;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"@Bulkhead(maxConcurrent = 0)",
+			"public interface Gateway {",
+			"    @Bulkhead(maxConcurrent = 1, maxWait = -1)",
+			"    String fetch(String key);",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("The maxConcurrent of @Bulkhead must be positive.").and()
+			.withErrorContaining("The maxWait of @Bulkhead must not be negative.");
+	}
+}
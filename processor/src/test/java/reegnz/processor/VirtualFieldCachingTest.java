@@ -0,0 +1,287 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldCachingTest {
+
+	@Test
+	public void shouldGenerateCachingClass() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Pricing",
+			"package example;",
+			"",
+			"import java.util.concurrent.TimeUnit;",
+			"import reegnz.processor.api.Cacheable;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Pricing {",
+			"    @Cacheable",
+			"    String name(String key);",
+			"",
+			"    @Cacheable(maximumSize = 16, expireAfterWrite = 10, timeUnit = TimeUnit.SECONDS)",
+			"    double price(int id, String currency);",
+			"",
+			"    void reset();",
+			"}");
+		JavaFileObject generated = JavaFileObjects.forSourceLines("example.CachingPricing",
+			"package example;",
+			"",
+			"import java.lang.Double;",
+			"import java.lang.Integer;",
+			"import java.lang.Object;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.util.LinkedHashMap;",
+			"import java.util.Map;",
+			"import java.util.concurrent.TimeUnit;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.BoundedCache;",
+			"import reegnz.processor.runtime.CacheKeys;",
+			"import reegnz.processor.runtime.CacheStats;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class CachingPricing implements VirtualPricing {",
+			"    private final Pricing delegate;",
+			"",
+			"    private final BoundedCache<Object, String> nameCache = new BoundedCache<>(1024, 0);",
+			"",
+			"    private final BoundedCache<Object, Double> priceCache = new BoundedCache<>(16, TimeUnit.SECONDS.toNanos(10));",
+			"",
+			"    public CachingPricing(Pricing delegate) {",
+			"        this.delegate = delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public Pricing getPricing() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public String name(String key) {",
+			"        Object key1 = key;",
+			"        String value = nameCache.get(key1);",
+			"        if (value == null) {",
+			"            value = this.delegate.name(key);",
+			"            nameCache.put(key1, value);",
+			"        }",
+			"        return value;",
+			"    }",
+			"",
+			"    @Override",
+			"    public double price(int id, String currency) {",
+			"        Object key = new PriceKey(id, currency);",
+			"        Double value = priceCache.get(key);",
+			"        if (value == null) {",
+			"            value = this.delegate.price(id, currency);",
+			"            priceCache.put(key, value);",
+			"        }",
+			"        return value;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the cache statistics of every cached method by method name",
+			"     */",
+			"    public Map<String, CacheStats> getPricingCacheStats() {",
+			"        Map<String, CacheStats> stats = new LinkedHashMap<>();",
+			"        stats.put(\"name\", nameCache.stats());",
+			"        stats.put(\"price\", priceCache.stats());",
+			"        return stats;",
+			"    }",
+			"",
+			"    /**",
+			"     * Empties the caches of every cached method.",
+			"     */",
+			"    public void invalidatePricingCaches() {",
+			"        nameCache.invalidateAll();",
+			"        priceCache.invalidateAll();",
+			"    }",
+			"",
+			"    private static final class PriceKey {",
+			"        private final int id;",
+			"",
+			"        private final Object currency;",
+			"",
+			"        PriceKey(int id, Object currency) {",
+			"            this.id = id;",
+			"            this.currency = currency;",
+			"        }",
+			"",
+			"        @Override",
+			"        public boolean equals(Object object) {",
+			"            if (this == object) {",
+			"                return true;",
+			"            }",
+			"            if (!(object instanceof PriceKey)) {",
+			"                return false;",
+			"            }",
+			"            PriceKey that = (PriceKey) object;",
+			"            return this.id == that.id && CacheKeys.equal(this.currency, that.currency);",
+			"        }",
+			"",
+			"        @Override",
+			"        public int hashCode() {",
+			"            int hash = Integer.hashCode(this.id);",
+			"            hash = 31 * hash + CacheKeys.hash(this.currency);",
+			"            return hash;",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(generated);
+	}
+
+	@Test
+	public void shouldCopyArrayKeysAndKeepClearOfInterfaceMethods() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Lookup",
+			"package example;",
+			"",
+			"import reegnz.processor.api.Cacheable;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Lookup {",
+			"    @Cacheable",
+			"    String find(int[] ids);",
+			"",
+			"    void invalidateAll();",
+			"",
+			"    int cacheStats();",
+			"}");
+		JavaFileObject generated = JavaFileObjects.forSourceLines("example.CachingLookup",
+			"package example;",
+			"",
+			"import java.lang.Object;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.util.LinkedHashMap;",
+			"import java.util.Map;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.BoundedCache;",
+			"import reegnz.processor.runtime.CacheKeys;",
+			"import reegnz.processor.runtime.CacheStats;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class CachingLookup implements VirtualLookup {",
+			"    private final Lookup delegate;",
+			"",
+			"    private final BoundedCache<Object, String> findCache = new BoundedCache<>(1024, 0);",
+			"",
+			"    public CachingLookup(Lookup delegate) {",
+			"        this.delegate = delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public Lookup getLookup() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    @Override",
+			"    public String find(int[] ids) {",
+			"        Object key = new FindKey(ids);",
+			"        String value = findCache.get(key);",
+			"        if (value == null) {",
+			"            value = this.delegate.find(ids);",
+			"            findCache.put(key, value);",
+			"        }",
+			"        return value;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the cache statistics of every cached method by method name",
+			"     */",
+			"    public Map<String, CacheStats> getLookupCacheStats() {",
+			"        Map<String, CacheStats> stats = new LinkedHashMap<>();",
+			"        stats.put(\"find\", findCache.stats());",
+			"        return stats;",
+			"    }",
+			"",
+			"    /**",
+			"     * Empties the caches of every cached method.",
+			"     */",
+			"    public void invalidateLookupCaches() {",
+			"        findCache.invalidateAll();",
+			"    }",
+			"",
+			"    private static final class FindKey {",
+			"        private final Object ids;",
+			"",
+			"        FindKey(Object ids) {",
+			"            this.ids = CacheKeys.copy(ids);",
+			"        }",
+			"",
+			"        @Override",
+			"        public boolean equals(Object object) {",
+			"            if (this == object) {",
+			"                return true;",
+			"            }",
+			"            if (!(object instanceof FindKey)) {",
+			"                return false;",
+			"            }",
+			"            FindKey that = (FindKey) object;",
+			"            return CacheKeys.equal(this.ids, that.ids);",
+			"        }",
+			"",
+			"        @Override",
+			"        public int hashCode() {",
+			"            int hash = CacheKeys.hash(this.ids);",
+			"            return hash;",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(generated);
+	}
+
+	@Test
+	public void shouldRejectVoidMethod() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.MyIfc",
+			"package example;",
+			"",
+			"import reegnz.processor.api.Cacheable;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface MyIfc {",
+			"    @Cacheable",
+			"    void myMethod(String name);",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Methods returning void can not be @Cacheable.");
+	}
+
+	@Test
+	public void shouldRejectGenericMethod() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.MyIfc",
+			"package example;",
+			"",
+			"import reegnz.processor.api.Cacheable;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface MyIfc {",
+			"    @Cacheable",
+			"    <T> T myMethod(Class<T> type);",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Generic methods can not be @Cacheable.");
+	}
+}
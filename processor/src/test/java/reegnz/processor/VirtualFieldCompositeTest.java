@@ -0,0 +1,184 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldCompositeTest {
+
+	@Test
+	public void shouldGenerateComposite() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Listener",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(composite = true)",
+			"public interface Listener<T> {",
+			"    void onEvent(T event) throws IOException;",
+			"",
+			"    List<String> names(String prefix);",
+			"",
+			"    int count();",
+			"",
+			"    <Z extends Iterable<T>> Z all(String... keys);",
+			"}");
+		JavaFileObject composite = JavaFileObjects.forSourceLines("example.CompositeListener",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.lang.IllegalStateException;",
+			"import java.lang.Integer;",
+			"import java.lang.Iterable;",
+			"import java.lang.Override;",
+			"import java.lang.SafeVarargs;",
+			"import java.lang.String;",
+			"import java.lang.System;",
+			"import java.util.Arrays;",
+			"import java.util.Collections;",
+			"import java.util.List;",
+			"import java.util.Objects;",
+			"import java.util.concurrent.Executor;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.Broadcast;",
+			"import reegnz.processor.runtime.Reducer;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class CompositeListener<T> implements Listener<T> {",
+			"    private final Executor executor;",
+			"",
+			"    private volatile Listener<T>[] delegates;",
+			"",
+			"    /**",
+			"     * Calls the delegates one after the other on the calling thread.",
+			"     */",
+			"    @SafeVarargs",
+			"    public CompositeListener(Listener<T>... delegates) {",
+			"        this(null, delegates);",
+			"    }",
+			"",
+			"    /**",
+			"     * Broadcasts void methods to the delegates in parallel on the executor.",
+			"     */",
+			"    @SafeVarargs",
+			"    public CompositeListener(Executor executor, Listener<T>... delegates) {",
+			"        this.executor = executor;",
+			"        this.delegates = delegates.clone();",
+			"    }",
+			"",
+			"    public synchronized void addDelegate(Listener<T> delegate) {",
+			"        Listener<T>[] current = this.delegates;",
+			"        Listener<T>[] updated = Arrays.copyOf(current, current.length + 1);",
+			"        updated[current.length] = delegate;",
+			"        this.delegates = updated;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return whether the delegate was found and removed",
+			"     */",
+			"    public synchronized boolean removeDelegate(Listener<T> delegate) {",
+			"        Listener<T>[] current = this.delegates;",
+			"        for (int i = 0; i < current.length; i++) {",
+			"            if (Objects.equals(current[i], delegate)) {",
+			"                Listener<T>[] updated = Arrays.copyOf(current, current.length - 1);",
+			"                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);",
+			"                this.delegates = updated;",
+			"                return true;",
+			"            }",
+			"        }",
+			"        return false;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return a snapshot of the current delegates",
+			"     */",
+			"    public List<Listener<T>> getDelegates() {",
+			"        return Collections.unmodifiableList(Arrays.asList(this.delegates));",
+			"    }",
+			"",
+			"    @Override",
+			"    public void onEvent(T event) throws IOException {",
+			"        if (this.executor == null) {",
+			"            Broadcast.sequential(this.delegates, delegate -> delegate.onEvent(event));",
+			"        } else {",
+			"            Broadcast.parallel(this.delegates, this.executor, delegate -> delegate.onEvent(event));",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public List<String> names(String prefix) {",
+			"        Listener<T>[] delegates = this.delegates;",
+			"        if (delegates.length == 0) {",
+			"            throw new IllegalStateException(\"No delegates to call names on\");",
+			"        }",
+			"        Reducer<List<String>> reducer = namesReducer();",
+			"        List<String> result = reducer.start(delegates[0].names(prefix));",
+			"        for (int i = 1; i < delegates.length; i++) {",
+			"            result = reducer.reduce(result, delegates[i].names(prefix));",
+			"        }",
+			"        return result;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the reducer of the results of {@code names}, the first result by default",
+			"     */",
+			"    protected Reducer<List<String>> namesReducer() {",
+			"        return Reducer.first();",
+			"    }",
+			"",
+			"    @Override",
+			"    public int count() {",
+			"        Listener<T>[] delegates = this.delegates;",
+			"        if (delegates.length == 0) {",
+			"            throw new IllegalStateException(\"No delegates to call count on\");",
+			"        }",
+			"        Reducer<Integer> reducer = countReducer();",
+			"        Integer result = reducer.start(delegates[0].count());",
+			"        for (int i = 1; i < delegates.length; i++) {",
+			"            result = reducer.reduce(result, delegates[i].count());",
+			"        }",
+			"        return result;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the reducer of the results of {@code count}, the first result by default",
+			"     */",
+			"    protected Reducer<Integer> countReducer() {",
+			"        return Reducer.first();",
+			"    }",
+			"",
+			"    @Override",
+			"    public <Z extends Iterable<T>> Z all(String... keys) {",
+			"        Listener<T>[] delegates = this.delegates;",
+			"        if (delegates.length == 0) {",
+			"            throw new IllegalStateException(\"No delegates to call all on\");",
+			"        }",
+			"        Reducer<Z> reducer = allReducer();",
+			"        Z result = reducer.start(delegates[0].all(keys));",
+			"        for (int i = 1; i < delegates.length; i++) {",
+			"            result = reducer.reduce(result, delegates[i].all(keys));",
+			"        }",
+			"        return result;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the reducer of the results of {@code all}, the first result by default",
+			"     */",
+			"    protected <Z extends Iterable<T>> Reducer<Z> allReducer() {",
+			"        return Reducer.first();",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(composite);
+	}
+}
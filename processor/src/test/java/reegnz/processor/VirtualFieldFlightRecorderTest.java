@@ -0,0 +1,229 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class VirtualFieldFlightRecorderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldGenerateRecordedInterface() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Repository",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(flightRecorder = true)",
+			"public interface Repository<T> {",
+			"    T find(long id, String tenant);",
+			"",
+			"    void save(T entity, long duration);",
+			"}");
+		JavaFileObject generated = JavaFileObjects.forSourceLines("example.RecordedRepository",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.lang.RuntimeException;",
+			"import java.lang.String;",
+			"import javax.annotation.Generated;",
+			"import jdk.jfr.Category;",
+			"import jdk.jfr.Event;",
+			"import jdk.jfr.Label;",
+			"import jdk.jfr.Name;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public interface RecordedRepository<T> extends VirtualRepository<T> {",
+			"    @Override",
+			"    default T find(long id, String tenant) {",
+			"        FindEvent event = new FindEvent();",
+			"        event.begin();",
+			"        try {",
+			"            return getRepository().find(id, tenant);",
+			"        } finally {",
+			"            if (event.shouldCommit()) {",
+			"                event.id = id;",
+			"                event.tenant = tenant;",
+			"                event.commit();",
+			"            }",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    default void save(T entity, long duration) {",
+			"        SaveEvent event = new SaveEvent();",
+			"        event.begin();",
+			"        try {",
+			"            getRepository().save(entity, duration);",
+			"        } finally {",
+			"            if (event.shouldCommit()) {",
+			"                event.durationArgument = duration;",
+			"                try {",
+			"                    event.entity = String.valueOf(entity);",
+			"                } catch (RuntimeException e) {",
+			"                    // a failing toString() leaves the remaining arguments empty",
+			"                }",
+			"                event.commit();",
+			"            }",
+			"        }",
+			"    }",
+			"",
+			"    @Name(\"example.Repository.find\")",
+			"    @Label(\"Repository.find\")",
+			"    @Category({\"Virtual Field\", \"Repository\"})",
+			"    final class FindEvent extends Event {",
+			"        @Label(\"id\")",
+			"        long id;",
+			"",
+			"        @Label(\"tenant\")",
+			"        String tenant;",
+			"    }",
+			"",
+			"    @Name(\"example.Repository.save\")",
+			"    @Label(\"Repository.save\")",
+			"    @Category({\"Virtual Field\", \"Repository\"})",
+			"    final class SaveEvent extends Event {",
+			"        @Label(\"entity\")",
+			"        String entity;",
+			"",
+			"        @Label(\"duration\")",
+			"        long durationArgument;",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(generated);
+	}
+
+	@Test
+	public void shouldRecordNullArrayArguments() throws Exception {
+		File sources = folder.newFolder("src");
+		File output = folder.newFolder("out");
+		File text = write(sources, "Text",
+				"package example;",
+				"import reegnz.processor.api.VirtualField;",
+				"@VirtualField(flightRecorder = true)",
+				"public interface Text {",
+				"    String join(char[] chars, int[] ints, String[][] strings);",
+				"}");
+		File echo = write(sources, "EchoText",
+				"package example;",
+				"public class EchoText implements RecordedText {",
+				"    public Text getText() {",
+				"        return (chars, ints, strings) -> \"joined\";",
+				"    }",
+				"}");
+		compile(output, text, echo);
+		Path dump = folder.getRoot().toPath().resolve("recording.jfr");
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { output.toURI().toURL() },
+				getClass().getClassLoader()); Recording recording = new Recording()) {
+			recording.enable("example.Text.join");
+			recording.start();
+			Class<?> type = loader.loadClass("example.Text");
+			Object instance = loader.loadClass("example.EchoText").newInstance();
+			Method join = type.getMethod("join", char[].class, int[].class, String[][].class);
+			assertEquals("joined", join.invoke(instance, null, new int[] { 1, 2 }, new String[][] { { "a" } }));
+			recording.stop();
+			recording.dump(dump);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+		assertEquals(1, events.size());
+		assertEquals("null", events.get(0).getString("chars"));
+		assertEquals("[1, 2]", events.get(0).getString("ints"));
+		assertEquals("[[a]]", events.get(0).getString("strings"));
+	}
+
+	@Test
+	public void shouldKeepResultWhenArgumentFailsToConvert() throws Exception {
+		File sources = folder.newFolder("src");
+		File output = folder.newFolder("out");
+		File text = write(sources, "Text",
+				"package example;",
+				"import reegnz.processor.api.VirtualField;",
+				"@VirtualField(flightRecorder = true)",
+				"public interface Text {",
+				"    String describe(Object value, int count);",
+				"}");
+		File echo = write(sources, "EchoText",
+				"package example;",
+				"public class EchoText implements RecordedText {",
+				"    public Text getText() {",
+				"        return (value, count) -> \"described\";",
+				"    }",
+				"    public static Object unprintable() {",
+				"        return new Object() {",
+				"            public String toString() {",
+				"                throw new IllegalStateException();",
+				"            }",
+				"        };",
+				"    }",
+				"}");
+		compile(output, text, echo);
+		Path dump = folder.getRoot().toPath().resolve("recording.jfr");
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { output.toURI().toURL() },
+				getClass().getClassLoader()); Recording recording = new Recording()) {
+			recording.enable("example.Text.describe");
+			recording.start();
+			Class<?> type = loader.loadClass("example.Text");
+			Class<?> echoType = loader.loadClass("example.EchoText");
+			Object value = echoType.getMethod("unprintable").invoke(null);
+			Method describe = type.getMethod("describe", Object.class, int.class);
+			assertEquals("described", describe.invoke(echoType.newInstance(), value, 3));
+			recording.stop();
+			recording.dump(dump);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+		assertEquals(1, events.size());
+		assertEquals(3, events.get(0).getInt("count"));
+	}
+
+	private File write(File directory, String name, String... lines) throws IOException {
+		File file = new File(directory, name + ".java");
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+	private void compile(File output, File... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+			List<String> options = Arrays.asList("-d", output.getPath(), "-s", output.getPath(), "-classpath",
+					System.getProperty("java.class.path"));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+					fileManager.getJavaFileObjects(sources));
+			task.setProcessors(Collections.singletonList(new VirtualFieldProcessor()));
+			assertTrue(task.call());
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+import java.util.Arrays;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldForTest {
+
+	@Test
+	public void shouldGenerateForListedInterfaces() {
+		JavaFileObject packageInfo = JavaFileObjects.forSourceLines("example.package-info",
+			"@VirtualFieldFor({ BiFunction.class, Source.class })",
+			"package example;",
+			"",
+			"import java.util.function.BiFunction;",
+			"import lib.Source;",
+			"import reegnz.processor.api.VirtualFieldFor;");
+		JavaFileObject source = JavaFileObjects.forSourceLines("lib.Source",
+			"package lib;",
+			"",
+			"import java.util.function.Supplier;",
+			"",
+			"public interface Source extends Supplier<String>, AutoCloseable {",
+			"    @Override",
+			"    void close();",
+			"",
+			"    default int size() {",
+			"        return get().length();",
+			"    }",
+			"}");
+		JavaFileObject virtualSource = JavaFileObjects.forSourceLines("example.VirtualSource",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import javax.annotation.Generated;",
+			"import lib.Source;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public interface VirtualSource extends Source {",
+			"    Source getSource();",
+			"",
+			"    @Override",
+			"    default String get() {",
+			"        return getSource().get();",
+			"    }",
+			"",
+			"    @Override",
+			"    default void close() {",
+			"        getSource().close();",
+			"    }",
+			"",
+			"    @Override",
+			"    default int size() {",
+			"        return getSource().size();",
+			"    }",
+			"}");
+		JavaFileObject virtualBiFunction = JavaFileObjects.forSourceLines("example.VirtualBiFunction",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.util.function.BiFunction;",
+			"import java.util.function.Function;",
+			"import javax.annotation.Generated;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public interface VirtualBiFunction<T, U, R> extends BiFunction<T, U, R> {",
+			"    BiFunction<T, U, R> getBiFunction();",
+			"",
+			"    @Override",
+			"    default R apply(T arg0, U arg1) {",
+			"        return getBiFunction().apply(arg0, arg1);",
+			"    }",
+			"",
+			"    @Override",
+			"    default <V> BiFunction<T, U, V> andThen(Function<? super R, ? extends V> arg0) {",
+			"        return getBiFunction().andThen(arg0);",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSources())
+			.that(Arrays.asList(packageInfo, source))
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(virtualSource, virtualBiFunction);
+	}
+
+	@Test
+	public void shouldOnlyAcceptInterfaces() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Lists",
+			"package example;",
+			"",
+			"import java.util.ArrayList;",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualFieldFor;",
+			"",
+			"@VirtualFieldFor({ ArrayList.class, List.class })",
+			"public class Lists {",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Only interfaces can be listed in @VirtualFieldFor, java.util.ArrayList is not one.");
+	}
+
+	@Test
+	public void shouldRejectInterfaceListedTwice() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Lists",
+			"package example;",
+			"",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualFieldFor;",
+			"",
+			"@VirtualFieldFor({ List.class, List.class })",
+			"public class Lists {",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("java.util.List is listed more than once in @VirtualFieldFor.");
+	}
+
+	@Test
+	public void shouldFailWhenTwoElementsListSameInterface() {
+		JavaFileObject first = JavaFileObjects.forSourceLines("example.Lists",
+			"package example;",
+			"",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualFieldFor;",
+			"",
+			"@VirtualFieldFor(List.class)",
+			"public class Lists {",
+			"}");
+		JavaFileObject second = JavaFileObjects.forSourceLines("example.MoreLists",
+			"package example;",
+			"",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualFieldFor;",
+			"",
+			"@VirtualFieldFor(List.class)",
+			"public class MoreLists {",
+			"}");
+		Truth.assertAbout(javaSources())
+			.that(Arrays.asList(first, second))
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Failed to write class example.VirtualList.");
+	}
+}
@@ -0,0 +1,116 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldHedgedTest {
+
+	@Test
+	public void shouldGenerateHedged() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Catalog",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.util.List;",
+			"",
+			"import reegnz.processor.api.Idempotent;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Catalog<K> {",
+			"    @Idempotent",
+			"    String find(K key) throws IOException;",
+			"",
+			"    @Idempotent",
+			"    int count();",
+			"",
+			"    @Idempotent",
+			"    <T extends K> List<T> sorted(List<T> keys);",
+			"",
+			"    @Idempotent",
+			"    void refresh(K key);",
+			"",
+			"    void remove(K key);",
+			"}");
+		JavaFileObject hedged = JavaFileObjects.forSourceLines("example.HedgedCatalog",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.util.List;",
+			"import java.util.concurrent.Executor;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.AsyncExecutors;",
+			"import reegnz.processor.runtime.Hedging;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class HedgedCatalog<K> implements VirtualCatalog<K> {",
+			"    private final Hedging<Catalog<K>> hedging;",
+			"",
+			"    /**",
+			"     * Hedges on the default executor of the {@code Async*Adapter} classes, at the",
+			"     * 95th percentile of the latencies.",
+			"     */",
+			"    public HedgedCatalog(Catalog<K> primary, Catalog<K> backup) {",
+			"        this(primary, backup, AsyncExecutors.defaultExecutor(), Hedging.DEFAULT_PERCENTILE,",
+			"                Hedging.DEFAULT_INITIAL_DELAY_NANOS);",
+			"    }",
+			"",
+			"    public HedgedCatalog(Catalog<K> primary, Catalog<K> backup, Executor executor,",
+			"            double percentile, long initialDelayNanos) {",
+			"        this.hedging = new Hedging<>(primary, backup, executor, percentile, initialDelayNanos,",
+			"                \"find\", \"count\", \"sorted\", \"refresh\");",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the primary",
+			"     */",
+			"    @Override",
+			"    public Catalog<K> getCatalog() {",
+			"        return this.hedging.getPrimary();",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the hedging of the calls, for its statistics",
+			"     */",
+			"    public Hedging<Catalog<K>> getCatalogHedging() {",
+			"        return this.hedging;",
+			"    }",
+			"",
+			"    @Override",
+			"    public String find(K key) throws IOException {",
+			"        return this.hedging.call(0, delegate -> delegate.find(key));",
+			"    }",
+			"",
+			"    @Override",
+			"    public int count() {",
+			"        return this.hedging.call(1, delegate -> delegate.count());",
+			"    }",
+			"",
+			"    @Override",
+			"    public <T extends K> List<T> sorted(List<T> keys) {",
+			"        return this.hedging.call(2, delegate -> delegate.sorted(keys));",
+			"    }",
+			"",
+			"    @Override",
+			"    public void refresh(K key) {",
+			"        this.hedging.call(3, delegate -> {",
+			"            delegate.refresh(key);",
+			"            return null;",
+			"        });",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(hedged);
+	}
+}
@@ -0,0 +1,331 @@
+package reegnz.processor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VirtualFieldIncrementalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Set<String> supportedOptions;
+
+	@Test
+	public void shouldShipDynamicDescriptor() throws IOException {
+		InputStream descriptor = getClass().getClassLoader()
+				.getResourceAsStream("META-INF/gradle/incremental.annotation.processors");
+		assertNotNull(descriptor);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(descriptor, StandardCharsets.UTF_8))) {
+			assertEquals(VirtualFieldProcessor.class.getName() + ",dynamic", reader.readLine());
+		}
+	}
+
+	@Test
+	public void shouldOnlyAggregateWhenWritingIndex() throws IOException {
+		File sources = folder.newFolder("src");
+		File first = source(sources, "FirstIfc", "void first();");
+
+		compile(Collections.emptyList(), folder.newFolder("out"), null, first);
+		assertTrue(supportedOptions.contains("org.gradle.annotation.processing.isolating"));
+
+		compile(Arrays.asList("-Aindex"), folder.newFolder("indexed"), null, first);
+		assertTrue(supportedOptions.contains("org.gradle.annotation.processing.aggregating"));
+
+		compile(Arrays.asList("-AnativeImage"), folder.newFolder("native"), null, first);
+		assertTrue(supportedOptions.contains("org.gradle.annotation.processing.aggregating"));
+	}
+
+	@Test
+	public void shouldMergeIndexOfRecompiledInterfaces() throws IOException {
+		File sources = folder.newFolder("src");
+		File first = source(sources, "FirstIfc", "void first();");
+		File second = source(sources, "SecondIfc", "String second(String value);");
+		File output = folder.newFolder("out");
+		compile(Arrays.asList("-Aindex"), output, null, first, second);
+
+		File touched = source(sources, "FirstIfc", "void first();", "int added();");
+		compile(Arrays.asList("-Aindex"), output, output, touched);
+
+		assertEquals(Arrays.asList(
+				"example.FirstIfc example.VirtualFirstIfc getFirstIfc",
+				"example.SecondIfc example.VirtualSecondIfc getSecondIfc"),
+				Files.readAllLines(new File(output, "META-INF/virtual-fields.index").toPath()));
+	}
+
+	@Test
+	public void shouldMergeClassListOfRecompiledInterfaces() throws IOException {
+		File sources = folder.newFolder("src");
+		File first = source(sources, "FirstIfc", "void first();");
+		File second = source(sources, "SecondIfc", "String second(String value);");
+		File output = folder.newFolder("out");
+		compile(Arrays.asList("-AnativeImage"), output, null, first, second);
+
+		File touched = source(sources, "FirstIfc", "void first();", "int added();");
+		compile(Arrays.asList("-AnativeImage"), output, output, touched);
+
+		assertEquals(Arrays.asList(
+				"example/FirstIfc",
+				"example/SecondIfc",
+				"example/VirtualFirstIfc",
+				"example/VirtualSecondIfc"),
+				Files.readAllLines(new File(output, "META-INF/virtual-fields.classlist").toPath()));
+	}
+
+	@Test
+	public void shouldUseSingleOriginatingElementPerGeneratedType() throws IOException {
+		File sources = folder.newFolder("src");
+		File first = source(sources, "FirstIfc", "void first();");
+		File second = source(sources, "SecondIfc", "String second(String value);");
+
+		Map<String, List<String>> generated = compile(folder.newFolder("out"), null, first, second);
+
+		assertEquals(2, generated.size());
+		assertEquals(Arrays.asList("example.FirstIfc"), generated.get("example.VirtualFirstIfc"));
+		assertEquals(Arrays.asList("example.SecondIfc"), generated.get("example.VirtualSecondIfc"));
+	}
+
+	@Test
+	public void shouldOnlyRegenerateTouchedInterface() throws IOException {
+		File sources = folder.newFolder("src");
+		File first = source(sources, "FirstIfc", "void first();");
+		File second = source(sources, "SecondIfc", "String second(String value);");
+		File output = folder.newFolder("out");
+		Map<String, List<String>> initial = compile(output, null, first, second);
+		assertEquals(Arrays.asList("example.VirtualFirstIfc", "example.VirtualSecondIfc"),
+				new ArrayList<>(initial.keySet()));
+
+		// like Gradle, only remove what was generated from the touched source
+		for (Map.Entry<String, List<String>> entry : initial.entrySet()) {
+			if (entry.getValue().contains("example.FirstIfc")) {
+				String path = entry.getKey().replace('.', '/');
+				Files.delete(new File(output, path + ".java").toPath());
+				Files.delete(new File(output, path + ".class").toPath());
+			}
+		}
+		File untouched = new File(output, "example/VirtualSecondIfc.java");
+		byte[] untouchedSource = Files.readAllBytes(untouched.toPath());
+		assertTrue(untouched.setLastModified(1000L));
+
+		File touched = source(sources, "FirstIfc", "void first();", "int added();");
+		Map<String, List<String>> generated = compile(output, output, touched);
+
+		assertEquals(Collections.singletonMap("example.VirtualFirstIfc", Arrays.asList("example.FirstIfc")),
+				generated);
+		assertTrue(new String(Files.readAllBytes(new File(output, "example/VirtualFirstIfc.java").toPath()),
+				StandardCharsets.UTF_8).contains("added()"));
+		assertEquals(1000L, untouched.lastModified());
+		assertArrayEquals(untouchedSource, Files.readAllBytes(untouched.toPath()));
+	}
+
+	private File source(File directory, String name, String... methods) throws IOException {
+		File file = new File(directory, name + ".java");
+		StringBuilder source = new StringBuilder()
+				.append("package example;\n")
+				.append("import reegnz.processor.api.VirtualField;\n")
+				.append("@VirtualField\n")
+				.append("public interface ").append(name).append(" {\n");
+		for (String method : methods) {
+			source.append("    ").append(method).append("\n");
+		}
+		source.append("}\n");
+		Files.write(file.toPath(), source.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private Map<String, List<String>> compile(File output, File classpath, File... sources) throws IOException {
+		return compile(Collections.emptyList(), output, classpath, sources);
+	}
+
+	private Map<String, List<String>> compile(List<String> processorOptions, File output, File classpath,
+			File... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+			String path = System.getProperty("java.class.path");
+			if (classpath != null) {
+				path = classpath.getPath() + File.pathSeparator + path;
+			}
+			List<String> options = new ArrayList<>(processorOptions);
+			options.addAll(Arrays.asList("-d", output.getPath(), "-s", output.getPath(), "-classpath", path));
+			RecordingProcessor processor = new RecordingProcessor(new VirtualFieldProcessor());
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+					fileManager.getJavaFileObjects(sources));
+			task.setProcessors(Arrays.asList(processor));
+			assertTrue(task.call());
+			supportedOptions = processor.getSupportedOptions();
+			return processor.generated;
+		}
+	}
+
+	/**
+	 * Records the originating elements of every source file created by the
+	 * wrapped processor, the way Gradle tracks isolating processors.
+	 */
+	private static class RecordingProcessor implements Processor {
+
+		private final Processor delegate;
+		private final Map<String, List<String>> generated = new LinkedHashMap<>();
+
+		RecordingProcessor(Processor delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Set<String> getSupportedOptions() {
+			return delegate.getSupportedOptions();
+		}
+
+		@Override
+		public Set<String> getSupportedAnnotationTypes() {
+			return delegate.getSupportedAnnotationTypes();
+		}
+
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return delegate.getSupportedSourceVersion();
+		}
+
+		@Override
+		public void init(ProcessingEnvironment processingEnv) {
+			delegate.init(new RecordingEnvironment(processingEnv, generated));
+		}
+
+		@Override
+		public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+			return delegate.process(annotations, roundEnv);
+		}
+
+		@Override
+		public Iterable<? extends Completion> getCompletions(Element element,
+				AnnotationMirror annotation, ExecutableElement member, String userText) {
+			return delegate.getCompletions(element, annotation, member, userText);
+		}
+	}
+
+	private static class RecordingEnvironment implements ProcessingEnvironment {
+
+		private final ProcessingEnvironment delegate;
+		private final Filer filer;
+
+		RecordingEnvironment(ProcessingEnvironment delegate, Map<String, List<String>> generated) {
+			this.delegate = delegate;
+			this.filer = new RecordingFiler(delegate.getFiler(), generated);
+		}
+
+		@Override
+		public Map<String, String> getOptions() {
+			return delegate.getOptions();
+		}
+
+		@Override
+		public Messager getMessager() {
+			return delegate.getMessager();
+		}
+
+		@Override
+		public Filer getFiler() {
+			return filer;
+		}
+
+		@Override
+		public Elements getElementUtils() {
+			return delegate.getElementUtils();
+		}
+
+		@Override
+		public Types getTypeUtils() {
+			return delegate.getTypeUtils();
+		}
+
+		@Override
+		public SourceVersion getSourceVersion() {
+			return delegate.getSourceVersion();
+		}
+
+		@Override
+		public Locale getLocale() {
+			return delegate.getLocale();
+		}
+	}
+
+	private static class RecordingFiler implements Filer {
+
+		private final Filer delegate;
+		private final Map<String, List<String>> generated;
+
+		RecordingFiler(Filer delegate, Map<String, List<String>> generated) {
+			this.delegate = delegate;
+			this.generated = generated;
+		}
+
+		@Override
+		public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements)
+				throws IOException {
+			String[] origins = new String[originatingElements.length];
+			for (int i = 0; i < originatingElements.length; i++) {
+				origins[i] = ((TypeElement) originatingElements[i]).getQualifiedName().toString();
+			}
+			generated.put(name.toString(), Arrays.asList(origins));
+			return delegate.createSourceFile(name, originatingElements);
+		}
+
+		@Override
+		public JavaFileObject createClassFile(CharSequence name, Element... originatingElements)
+				throws IOException {
+			return delegate.createClassFile(name, originatingElements);
+		}
+
+		@Override
+		public FileObject createResource(Location location, CharSequence pkg, CharSequence relativeName,
+				Element... originatingElements) throws IOException {
+			return delegate.createResource(location, pkg, relativeName, originatingElements);
+		}
+
+		@Override
+		public FileObject getResource(Location location, CharSequence pkg, CharSequence relativeName)
+				throws IOException {
+			return delegate.getResource(location, pkg, relativeName);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteSource;
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldIndexTest {
+
+	@Test
+	public void shouldIndexAllGeneratedTypes() {
+		JavaFileObject source = JavaFileObjects.forSourceLines("example.Source",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Source {",
+			"    String read();",
+			"}");
+		JavaFileObject outer = JavaFileObjects.forSourceLines("example.Outer",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"public class Outer {",
+			"    @VirtualField(\"Sink\")",
+			"    public interface Inner {",
+			"        void write(String value);",
+			"    }",
+			"}");
+		JavaFileObject packageInfo = JavaFileObjects.forSourceLines("example.package-info",
+			"@VirtualFieldFor(Runnable.class)",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualFieldFor;");
+		String index = "example.Outer$Inner example.Sink getInner\n"
+				+ "example.Source example.VirtualSource getSource\n"
+				+ "java.lang.Runnable example.VirtualRunnable getRunnable\n";
+		Truth.assertAbout(javaSources())
+			.that(Arrays.asList(source, outer, packageInfo))
+			.withCompilerOptions("-Aindex")
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/virtual-fields.index")
+			.withContents(ByteSource.wrap(index.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,84 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldInstrumentedTest {
+
+	@Test
+	public void shouldGenerateInstrumentedInterface() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Pricing",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(instrumented = true)",
+			"public interface Pricing {",
+			"    double price(int id, String currency) throws IOException;",
+			"",
+			"    void reset(long start);",
+			"}");
+		JavaFileObject generated = JavaFileObjects.forSourceLines("example.InstrumentedPricing",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.lang.System;",
+			"import java.lang.Throwable;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.MethodMetrics;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public interface InstrumentedPricing extends VirtualPricing {",
+			"    MethodMetrics getPricingMetrics();",
+			"",
+			"    /**",
+			"     * @return empty metrics with a slot for every delegated method",
+			"     */",
+			"    static MethodMetrics createMetrics() {",
+			"        return new MethodMetrics(\"price\", \"reset\");",
+			"    }",
+			"",
+			"    @Override",
+			"    default double price(int id, String currency) throws IOException {",
+			"        MethodMetrics metrics = getPricingMetrics();",
+			"        long start = System.nanoTime();",
+			"        try {",
+			"            return getPricing().price(id, currency);",
+			"        } catch (Throwable e) {",
+			"            metrics.error(0);",
+			"            throw e;",
+			"        } finally {",
+			"            metrics.record(0, System.nanoTime() - start);",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    default void reset(long start) {",
+			"        MethodMetrics metrics = getPricingMetrics();",
+			"        long start1 = System.nanoTime();",
+			"        try {",
+			"            getPricing().reset(start);",
+			"        } catch (Throwable e) {",
+			"            metrics.error(1);",
+			"            throw e;",
+			"        } finally {",
+			"            metrics.record(1, System.nanoTime() - start1);",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(generated);
+	}
+}
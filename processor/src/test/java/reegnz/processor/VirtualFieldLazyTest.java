@@ -0,0 +1,131 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldLazyTest {
+
+	@Test
+	public void shouldGenerateLazy() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Repository",
+			"package example;",
+			"",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(lazy = true)",
+			"public interface Repository<T> {",
+			"    List<T> findAll();",
+			"",
+			"    void save(T entity);",
+			"}");
+		JavaFileObject lazy = JavaFileObjects.forSourceLines("example.LazyRepository",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.util.Objects;",
+			"import java.util.concurrent.CompletableFuture;",
+			"import java.util.concurrent.Executor;",
+			"import java.util.function.Supplier;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.Initialized;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class LazyRepository<T> implements VirtualRepository<T> {",
+			"    private Supplier<? extends Repository<T>> supplier;",
+			"",
+			"    private Initialized<Repository<T>> initialized;",
+			"",
+			"    /**",
+			"     * @param supplier creates the delegate on the first call",
+			"     */",
+			"    public LazyRepository(Supplier<? extends Repository<T>> supplier) {",
+			"        this.supplier = Objects.requireNonNull(supplier);",
+			"    }",
+			"",
+			"    @Override",
+			"    public Repository<T> getRepository() {",
+			"        Initialized<Repository<T>> initialized = this.initialized;",
+			"        if (initialized == null) {",
+			"            initialized = initializeRepository();",
+			"        }",
+			"        return initialized.get();",
+			"    }",
+			"",
+			"    private synchronized Initialized<Repository<T>> initializeRepository() {",
+			"        if (this.initialized == null) {",
+			"            Repository<T> delegate = Objects.requireNonNull(supplier.get(), \"The supplier of the delegate returned null\");",
+			"            this.initialized = new Initialized<>(delegate);",
+			"            this.supplier = null;",
+			"        }",
+			"        return this.initialized;",
+			"    }",
+			"",
+			"    public boolean isInitialized() {",
+			"        return initialized != null;",
+			"    }",
+			"",
+			"    /**",
+			"     * Creates the delegate on the executor unless it already exists, for example to warm up",
+			"     * delegates in the background after startup.",
+			"     */",
+			"    public CompletableFuture<Repository<T>> prewarm(Executor executor) {",
+			"        return CompletableFuture.supplyAsync(this::getRepository, executor);",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(lazy);
+	}
+
+	@Test
+	public void shouldAllowInitializeMethod() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Engine",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(lazy = true)",
+			"public interface Engine {",
+			"    void initialize();",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError();
+	}
+
+	@Test
+	public void shouldRejectMethodsOfLazyDelegate() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Engine",
+			"package example;",
+			"",
+			"import java.util.concurrent.Executor;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(lazy = true)",
+			"public interface Engine {",
+			"    boolean isInitialized();",
+			"",
+			"    void prewarm(Executor executor);",
+			"",
+			"    void prewarm(int threads);",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("isInitialized() clashes with the method of the same signature of the lazy delegate.")
+			.and()
+			.withErrorContaining("prewarm(java.util.concurrent.Executor) clashes with the method of the same "
+					+ "signature of the lazy delegate.");
+	}
+}
@@ -0,0 +1,84 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteSource;
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldNativeImageTest {
+
+	private final JavaFileObject source = JavaFileObjects.forSourceLines("example.Source",
+		"package example;",
+		"",
+		"import reegnz.processor.api.Cacheable;",
+		"import reegnz.processor.api.VirtualField;",
+		"",
+		"@VirtualField",
+		"public interface Source {",
+		"    @Cacheable",
+		"    String read(int offset, int length);",
+		"}");
+
+	@Test
+	public void shouldWriteNativeImageConfigOfGeneratedTypes() {
+		String reflectConfig = "[\n"
+				+ entry("example.CachingSource") + ",\n"
+				+ entry("example.CachingSource$ReadKey") + ",\n"
+				+ entry("example.Source") + ",\n"
+				+ entry("example.VirtualSource") + "\n"
+				+ "]\n";
+		String proxyConfig = "[\n"
+				+ "  {\"interfaces\": [\"example.Source\"]},\n"
+				+ "  {\"interfaces\": [\"example.VirtualSource\"]}\n"
+				+ "]\n";
+		String classList = "example/CachingSource\n"
+				+ "example/CachingSource$ReadKey\n"
+				+ "example/Source\n"
+				+ "example/VirtualSource\n";
+		Truth.assertAbout(javaSource())
+			.that(source)
+			.withCompilerOptions("-AnativeImage=example/app")
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+					"META-INF/native-image/example/app/reflect-config.json")
+			.withContents(utf8(reflectConfig)).and()
+			.generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+					"META-INF/native-image/example/app/proxy-config.json")
+			.withContents(utf8(proxyConfig)).and()
+			.generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/virtual-fields.classlist")
+			.withContents(utf8(classList));
+	}
+
+	@Test
+	public void shouldIncludeIndexInResourceConfig() {
+		String resourceConfig = "{\n"
+				+ "  \"resources\": {\"includes\": [{\"pattern\": \"\\\\QMETA-INF/virtual-fields.index\\\\E\"}]}\n"
+				+ "}\n";
+		Truth.assertAbout(javaSource())
+			.that(source)
+			.withCompilerOptions("-AnativeImage", "-Aindex")
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+					"META-INF/native-image/virtual-fields/resource-config.json")
+			.withContents(utf8(resourceConfig));
+	}
+
+	private static String entry(String name) {
+		return "  {\"name\": \"" + name + "\", \"allDeclaredConstructors\": true, \"allPublicMethods\": true, "
+				+ "\"allDeclaredFields\": true}";
+	}
+
+	private static ByteSource utf8(String contents) {
+		return ByteSource.wrap(contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
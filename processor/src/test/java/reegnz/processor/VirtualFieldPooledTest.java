@@ -0,0 +1,84 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldPooledTest {
+
+	@Test
+	public void shouldGeneratePooled() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Codec",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(pooled = true)",
+			"public interface Codec<T> {",
+			"    byte[] encode(T delegate);",
+			"",
+			"    void reset();",
+			"}");
+		JavaFileObject pooled = JavaFileObjects.forSourceLines("example.PooledCodec",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.util.function.Supplier;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.DelegatePool;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class PooledCodec<T> implements Codec<T> {",
+			"    private final DelegatePool<Codec<T>> pool;",
+			"",
+			"    /**",
+			"     * Pools up to {@code maxSize} delegates, calls wait for one when all of them",
+			"     * are borrowed.",
+			"     */",
+			"    public PooledCodec(Supplier<? extends Codec<T>> factory, int maxSize) {",
+			"        this(new DelegatePool<>(factory, maxSize));",
+			"    }",
+			"",
+			"    public PooledCodec(DelegatePool<Codec<T>> pool) {",
+			"        this.pool = pool;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the pool of the delegates, for its statistics or to close it",
+			"     */",
+			"    public DelegatePool<Codec<T>> getCodecPool() {",
+			"        return this.pool;",
+			"    }",
+			"",
+			"    @Override",
+			"    public byte[] encode(T delegate) {",
+			"        Codec<T> delegate1 = this.pool.borrow();",
+			"        try {",
+			"            return delegate1.encode(delegate);",
+			"        } finally {",
+			"            this.pool.release(delegate1);",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public void reset() {",
+			"        Codec<T> delegate = this.pool.borrow();",
+			"        try {",
+			"            delegate.reset();",
+			"        } finally {",
+			"            this.pool.release(delegate);",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(pooled);
+	}
+}
@@ -0,0 +1,128 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldRecordingTest {
+
+	@Test
+	public void shouldGenerateRecording() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Store",
+			"package example;",
+			"",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(recording = true)",
+			"public interface Store<K> {",
+			"    void put(K key, String value, long version);",
+			"",
+			"    boolean remove(K key, int[] versions);",
+			"",
+			"    <T extends Comparable<T>> List<T> sorted(List<T> values, double ratio);",
+			"",
+			"    int size();",
+			"}");
+		JavaFileObject recording = JavaFileObjects.forSourceLines("example.RecordingStore",
+			"package example;",
+			"",
+			"import java.lang.Comparable;",
+			"import java.lang.IllegalArgumentException;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.lang.SuppressWarnings;",
+			"import java.util.List;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.CallLog;",
+			"import reegnz.processor.runtime.CallTrace;",
+			"import reegnz.processor.runtime.CallWriter;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class RecordingStore<K> implements VirtualStore<K> {",
+			"    private final Store<K> delegate;",
+			"",
+			"    private final CallLog log;",
+			"",
+			"    public RecordingStore(Store<K> delegate, CallLog log) {",
+			"        this.delegate = delegate;",
+			"        this.log = log;",
+			"    }",
+			"",
+			"    @Override",
+			"    public Store<K> getStore() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return a dispatcher that replays the calls recorded by this class against the target",
+			"     */",
+			"    @SuppressWarnings({\"unchecked\", \"rawtypes\"})",
+			"    public static <K> CallTrace.Dispatcher dispatcher(Store<K> target) {",
+			"        return (method, arguments) -> {",
+			"            switch (method) {",
+			"                case 0:",
+			"                    target.put((K) arguments.readObject(), arguments.readString(), arguments.readLong());",
+			"                    break;",
+			"                case 1:",
+			"                    target.remove((K) arguments.readObject(), (int[]) arguments.readObject());",
+			"                    break;",
+			"                case 2:",
+			"                    target.sorted((List) arguments.readObject(), arguments.readDouble());",
+			"                    break;",
+			"                case 3:",
+			"                    target.size();",
+			"                    break;",
+			"                default:",
+			"                    throw new IllegalArgumentException(\"Unknown method \" + method);",
+			"            }",
+			"        };",
+			"    }",
+			"",
+			"    @Override",
+			"    public void put(K key, String value, long version) {",
+			"        CallWriter call = this.log.begin(0);",
+			"        call.writeObject(key);",
+			"        call.writeString(value);",
+			"        call.writeLong(version);",
+			"        call.end();",
+			"        this.delegate.put(key, value, version);",
+			"    }",
+			"",
+			"    @Override",
+			"    public boolean remove(K key, int[] versions) {",
+			"        CallWriter call = this.log.begin(1);",
+			"        call.writeObject(key);",
+			"        call.writeObject(versions);",
+			"        call.end();",
+			"        return this.delegate.remove(key, versions);",
+			"    }",
+			"",
+			"    @Override",
+			"    public <T extends Comparable<T>> List<T> sorted(List<T> values, double ratio) {",
+			"        CallWriter call = this.log.begin(2);",
+			"        call.writeObject(values);",
+			"        call.writeDouble(ratio);",
+			"        call.end();",
+			"        return this.delegate.sorted(values, ratio);",
+			"    }",
+			"",
+			"    @Override",
+			"    public int size() {",
+			"        CallWriter call = this.log.begin(3);",
+			"        call.end();",
+			"        return this.delegate.size();",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(recording);
+	}
+}
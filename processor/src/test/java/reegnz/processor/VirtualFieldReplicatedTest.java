@@ -0,0 +1,98 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldReplicatedTest {
+
+	@Test
+	public void shouldGenerateReplicated() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Store",
+			"package example;",
+			"",
+			"import java.util.List;",
+			"import reegnz.processor.api.ReadOnly;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Store<K, V> {",
+			"    @ReadOnly",
+			"    V get(K key);",
+			"",
+			"    @ReadOnly",
+			"    List<V> scan(K from, int replica);",
+			"",
+			"    void put(K key, V value);",
+			"}");
+		JavaFileObject replicated = JavaFileObjects.forSourceLines("example.ReplicatedStore",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.util.List;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.ReplicaPool;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class ReplicatedStore<K, V> implements VirtualStore<K, V> {",
+			"    private final Store<K, V> primary;",
+			"",
+			"    private final ReplicaPool<Store<K, V>> replicas;",
+			"",
+			"    /**",
+			"     * Routes the reads round-robin.",
+			"     */",
+			"    public ReplicatedStore(Store<K, V> primary, List<? extends Store<K, V>> replicas) {",
+			"        this(primary, replicas, ReplicaPool.Routing.ROUND_ROBIN);",
+			"    }",
+			"",
+			"    public ReplicatedStore(Store<K, V> primary, List<? extends Store<K, V>> replicas,",
+			"            ReplicaPool.Routing routing) {",
+			"        this.primary = primary;",
+			"        this.replicas = new ReplicaPool<>(replicas, routing);",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the primary",
+			"     */",
+			"    @Override",
+			"    public Store<K, V> getStore() {",
+			"        return primary;",
+			"    }",
+			"",
+			"    public ReplicaPool<Store<K, V>> getReplicas() {",
+			"        return replicas;",
+			"    }",
+			"",
+			"    @Override",
+			"    public V get(K key) {",
+			"        int replica = this.replicas.acquire();",
+			"        try {",
+			"            return this.replicas.get(replica).get(key);",
+			"        } finally {",
+			"            this.replicas.release(replica);",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public List<V> scan(K from, int replica) {",
+			"        int replica1 = this.replicas.acquire();",
+			"        try {",
+			"            return this.replicas.get(replica1).scan(from, replica);",
+			"        } finally {",
+			"            this.replicas.release(replica1);",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(replicated);
+	}
+}
@@ -0,0 +1,132 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldShardedTest {
+
+	@Test
+	public void shouldGenerateSharded() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Counter",
+			"package example;",
+			"",
+			"import reegnz.processor.api.ShardKey;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Counter<K> {",
+			"    void add(@ShardKey K key, long delta);",
+			"",
+			"    long get(@ShardKey K key);",
+			"",
+			"    long sum(@ShardKey int shard, String name);",
+			"}");
+		JavaFileObject sharded = JavaFileObjects.forSourceLines("example.ShardedCounter",
+			"package example;",
+			"",
+			"import java.lang.IllegalArgumentException;",
+			"import java.lang.Integer;",
+			"import java.lang.Override;",
+			"import java.lang.SafeVarargs;",
+			"import java.lang.String;",
+			"import java.lang.SuppressWarnings;",
+			"import java.util.Arrays;",
+			"import java.util.Collections;",
+			"import java.util.List;",
+			"import java.util.function.Supplier;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.ShardKeys;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class ShardedCounter<K> implements Counter<K> {",
+			"    private final Counter<K>[] shards;",
+			"",
+			"    private final int mask;",
+			"",
+			"    /**",
+			"     * @param shards the delegates, their number must be a power of two",
+			"     */",
+			"    @SafeVarargs",
+			"    public ShardedCounter(Counter<K>... shards) {",
+			"        if (Integer.bitCount(shards.length) != 1) {",
+			"            throw new IllegalArgumentException(\"The number of shards must be a power of two: \" + shards.length);",
+			"        }",
+			"        this.shards = shards.clone();",
+			"        this.mask = shards.length - 1;",
+			"    }",
+			"",
+			"    /**",
+			"     * Creates the delegates with the factory, the count rounded up to a power of two.",
+			"     */",
+			"    @SuppressWarnings({\"unchecked\", \"rawtypes\"})",
+			"    public ShardedCounter(int count, Supplier<? extends Counter<K>> factory) {",
+			"        this.shards = (Counter<K>[]) new Counter[ShardKeys.shardCount(count)];",
+			"        for (int i = 0; i < shards.length; i++) {",
+			"            shards[i] = factory.get();",
+			"        }",
+			"        this.mask = shards.length - 1;",
+			"    }",
+			"",
+			"    public List<Counter<K>> getShards() {",
+			"        return Collections.unmodifiableList(Arrays.asList(this.shards));",
+			"    }",
+			"",
+			"    @Override",
+			"    public void add(K key, long delta) {",
+			"        Counter<K> shard = this.shards[ShardKeys.hash(key) & this.mask];",
+			"        synchronized (shard) {",
+			"            shard.add(key, delta);",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public long get(K key) {",
+			"        Counter<K> shard = this.shards[ShardKeys.hash(key) & this.mask];",
+			"        synchronized (shard) {",
+			"            return shard.get(key);",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public long sum(int shard, String name) {",
+			"        Counter<K> shard1 = this.shards[ShardKeys.hash(shard) & this.mask];",
+			"        synchronized (shard1) {",
+			"            return shard1.sum(shard, name);",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(sharded);
+	}
+
+	@Test
+	public void shouldRequireOneShardKeyPerMethod() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Counter",
+			"package example;",
+			"",
+			"import reegnz.processor.api.ShardKey;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField",
+			"public interface Counter {",
+			"    void add(@ShardKey String key, @ShardKey String other);",
+			"",
+			"    int size();",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Methods can only have one @ShardKey parameter.").and()
+			.withErrorContaining("Every method of a sharded interface needs a @ShardKey parameter.");
+	}
+}
@@ -0,0 +1,175 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+import java.util.Arrays;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldSpecializationTest {
+
+	@Test
+	public void shouldGenerateSpecialization() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Accumulator",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.util.List;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(specializations = { int.class, int.class })",
+			"public interface Accumulator<T extends Comparable<T>> {",
+			"    T add(T left, T right);",
+			"",
+			"    void put(String key, T value) throws IOException;",
+			"",
+			"    T get(String key);",
+			"",
+			"    List<T> all();",
+			"}");
+		JavaFileObject specialized = JavaFileObjects.forSourceLines("example.IntAccumulator",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.lang.Integer;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import javax.annotation.Generated;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public interface IntAccumulator extends Accumulator<Integer> {",
+			"    int add(int left, int right);",
+			"",
+			"    @Override",
+			"    default Integer add(Integer left, Integer right) {",
+			"        return add((int) left, (int) right);",
+			"    }",
+			"",
+			"    void put(String key, int value) throws IOException;",
+			"",
+			"    @Override",
+			"    default void put(String key, Integer value) throws IOException {",
+			"        put(key, (int) value);",
+			"    }",
+			"",
+			"    int getAsInt(String key);",
+			"",
+			"    @Override",
+			"    default Integer get(String key) {",
+			"        return getAsInt(key);",
+			"    }",
+			"}");
+		JavaFileObject virtual = JavaFileObjects.forSourceLines("example.VirtualIntAccumulator",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.lang.Integer;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.util.List;",
+			"import javax.annotation.Generated;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public interface VirtualIntAccumulator extends IntAccumulator {",
+			"    IntAccumulator getAccumulator();",
+			"",
+			"    @Override",
+			"    default int add(int left, int right) {",
+			"        return getAccumulator().add(left, right);",
+			"    }",
+			"",
+			"    @Override",
+			"    default void put(String key, int value) throws IOException {",
+			"        getAccumulator().put(key, value);",
+			"    }",
+			"",
+			"    @Override",
+			"    default int getAsInt(String key) {",
+			"        return getAccumulator().getAsInt(key);",
+			"    }",
+			"",
+			"    @Override",
+			"    default List<Integer> all() {",
+			"        return getAccumulator().all();",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(specialized, virtual);
+	}
+
+	@Test
+	public void shouldOnlySpecializeForPrimitivesWithinBounds() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Gauge",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(specializations = { long.class, boolean.class })",
+			"public interface Gauge<N extends Number> {",
+			"    N read();",
+			"}");
+		JavaFileObject boxed = JavaFileObjects.forSourceLines("example.Meter",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(specializations = { int.class, Integer.class })",
+			"public interface Meter<N> {",
+			"    void mark(N count);",
+			"}");
+		Truth.assertAbout(javaSources())
+			.that(Arrays.asList(input, boxed))
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Can not specialize for boolean, java.lang.Boolean does not satisfy the bounds of N.")
+			.and()
+			.withErrorContaining("Only primitive types can be listed in specializations, java.lang.Integer is not one.");
+	}
+
+	@Test
+	public void shouldOnlySpecializeGenericInterfaces() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Counter",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(specializations = int.class)",
+			"public interface Counter {",
+			"    int next();",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Only generic interfaces can be specialized.");
+	}
+
+	@Test
+	public void shouldRejectPrimitiveNameTakenByInterface() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Holder",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(specializations = int.class)",
+			"public interface Holder<T> {",
+			"    T get();",
+			"    int getAsInt();",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.failsToCompile()
+			.withErrorContaining("Can not specialize get for int, the signature of getAsInt is already taken.");
+	}
+}
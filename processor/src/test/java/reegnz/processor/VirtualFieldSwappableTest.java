@@ -0,0 +1,126 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldSwappableTest {
+
+	@Test
+	public void shouldGenerateSwappable() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Pricing",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(swappable = true)",
+			"public interface Pricing<C> {",
+			"    long price(C item, int quantity);",
+			"",
+			"    void reload(String source) throws IOException;",
+			"}");
+		JavaFileObject swappable = JavaFileObjects.forSourceLines("example.SwappablePricing",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.util.concurrent.atomic.AtomicReference;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.InFlightCounter;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class SwappablePricing<C> implements VirtualPricing<C> {",
+			"    private final AtomicReference<Pricing<C>> delegate;",
+			"",
+			"    private final InFlightCounter inFlight;",
+			"",
+			"    public SwappablePricing(Pricing<C> delegate) {",
+			"        this(delegate, false);",
+			"    }",
+			"",
+			"    /**",
+			"     * @param drain whether swaps wait until the calls in flight on the replaced delegate return",
+			"     */",
+			"    public SwappablePricing(Pricing<C> delegate, boolean drain) {",
+			"        this.delegate = new AtomicReference<>(delegate);",
+			"        this.inFlight = drain ? new InFlightCounter() : null;",
+			"    }",
+			"",
+			"    @Override",
+			"    public Pricing<C> getPricing() {",
+			"        return delegate.get();",
+			"    }",
+			"",
+			"    /**",
+			"     * Replaces the delegate.",
+			"     *",
+			"     * @return the replaced delegate",
+			"     */",
+			"    public Pricing<C> swap(Pricing<C> delegate) {",
+			"        Pricing<C> previous = this.delegate.getAndSet(delegate);",
+			"        awaitReplaced();",
+			"        return previous;",
+			"    }",
+			"",
+			"    /**",
+			"     * Replaces the delegate if it is the expected one.",
+			"     *",
+			"     * @return whether the delegate was replaced",
+			"     */",
+			"    public boolean compareAndSwap(Pricing<C> expected, Pricing<C> delegate) {",
+			"        if (!this.delegate.compareAndSet(expected, delegate)) {",
+			"            return false;",
+			"        }",
+			"        awaitReplaced();",
+			"        return true;",
+			"    }",
+			"",
+			"    private void awaitReplaced() {",
+			"        if (inFlight != null) {",
+			"            inFlight.drain();",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public long price(C item, int quantity) {",
+			"        InFlightCounter inFlight = this.inFlight;",
+			"        if (inFlight == null) {",
+			"            return this.delegate.get().price(item, quantity);",
+			"        }",
+			"        int token = inFlight.enter();",
+			"        try {",
+			"            return this.delegate.get().price(item, quantity);",
+			"        } finally {",
+			"            inFlight.exit(token);",
+			"        }",
+			"    }",
+			"",
+			"    @Override",
+			"    public void reload(String source) throws IOException {",
+			"        InFlightCounter inFlight = this.inFlight;",
+			"        if (inFlight == null) {",
+			"            this.delegate.get().reload(source);",
+			"            return;",
+			"        }",
+			"        int token = inFlight.enter();",
+			"        try {",
+			"            this.delegate.get().reload(source);",
+			"        } finally {",
+			"            inFlight.exit(token);",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(swappable);
+	}
+}
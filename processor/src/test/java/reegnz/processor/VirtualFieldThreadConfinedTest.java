@@ -0,0 +1,72 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldThreadConfinedTest {
+
+	@Test
+	public void shouldGenerateThreadConfined() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.Formatter",
+			"package example;",
+			"",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(threadConfined = true)",
+			"public interface Formatter<T> {",
+			"    String format(T value);",
+			"}");
+		JavaFileObject threadConfined = JavaFileObjects.forSourceLines("example.ThreadConfinedFormatter",
+			"package example;",
+			"",
+			"import java.lang.Override;",
+			"import java.util.function.Consumer;",
+			"import java.util.function.Supplier;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.ThreadConfined;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class ThreadConfinedFormatter<T> implements VirtualFormatter<T> {",
+			"    private final ThreadConfined<Formatter<T>> delegates;",
+			"",
+			"    /**",
+			"     * @param factory creates the delegate of every thread on its first call",
+			"     */",
+			"    public ThreadConfinedFormatter(Supplier<? extends Formatter<T>> factory) {",
+			"        this.delegates = new ThreadConfined<>(factory);",
+			"    }",
+			"",
+			"    /**",
+			"     * @param factory creates the delegate of every thread on its first call",
+			"     * @param cleanup releases a delegate that is no longer used",
+			"     */",
+			"    public ThreadConfinedFormatter(Supplier<? extends Formatter<T>> factory,",
+			"            Consumer<? super Formatter<T>> cleanup) {",
+			"        this.delegates = new ThreadConfined<>(factory, cleanup);",
+			"    }",
+			"",
+			"    @Override",
+			"    public Formatter<T> getFormatter() {",
+			"        return delegates.get();",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the delegates of all threads, to release or close them",
+			"     */",
+			"    public ThreadConfined<Formatter<T>> getFormatterDelegates() {",
+			"        return delegates;",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(threadConfined);
+	}
+}
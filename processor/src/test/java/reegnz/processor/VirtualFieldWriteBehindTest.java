@@ -0,0 +1,150 @@
+package reegnz.processor;
+
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+import com.google.testing.compile.JavaFileObjects;
+
+public class VirtualFieldWriteBehindTest {
+
+	@Test
+	public void shouldGenerateWriteBehind() {
+		JavaFileObject input = JavaFileObjects.forSourceLines("example.AuditLog",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.util.List;",
+			"import reegnz.processor.api.VirtualField;",
+			"",
+			"@VirtualField(writeBehind = true)",
+			"public interface AuditLog<E> {",
+			"    void record(long time, int user, double amount);",
+			"",
+			"    void append(E event, boolean urgent, String... tags) throws IOException;",
+			"",
+			"    <T extends Comparable<T>> void sorted(List<T> values);",
+			"",
+			"    int size();",
+			"}");
+		JavaFileObject writeBehind = JavaFileObjects.forSourceLines("example.WriteBehindAuditLog",
+			"package example;",
+			"",
+			"import java.io.IOException;",
+			"import java.lang.Comparable;",
+			"import java.lang.IllegalArgumentException;",
+			"import java.lang.Override;",
+			"import java.lang.String;",
+			"import java.lang.SuppressWarnings;",
+			"import java.lang.Throwable;",
+			"import java.util.List;",
+			"import javax.annotation.Generated;",
+			"import reegnz.processor.runtime.WriteBehindQueue;",
+			"",
+			"@Generated(\"reegnz.processor.VirtualFieldProcessor\")",
+			"public class WriteBehindAuditLog<E> implements VirtualAuditLog<E> {",
+			"    private final AuditLog<E> delegate;",
+			"",
+			"    private final WriteBehindQueue queue;",
+			"",
+			"    /**",
+			"     * Queues up to {@code capacity} calls, callers wait for room when the queue",
+			"     * is full.",
+			"     */",
+			"    public WriteBehindAuditLog(AuditLog<E> delegate, int capacity) {",
+			"        this(delegate, capacity, WriteBehindQueue.WaitStrategy.SLEEPING, WriteBehindQueue.Overflow.BLOCK);",
+			"    }",
+			"",
+			"    /**",
+			"     * Starts the consumer thread of the queue.",
+			"     */",
+			"    public WriteBehindAuditLog(AuditLog<E> delegate, int capacity,",
+			"            WriteBehindQueue.WaitStrategy waitStrategy, WriteBehindQueue.Overflow overflow) {",
+			"        this.delegate = delegate;",
+			"        this.queue = new WriteBehindQueue(\"AuditLog\", capacity, 3, 2, waitStrategy, overflow,",
+			"                (method, arguments) -> dispatch(delegate, method, arguments));",
+			"    }",
+			"",
+			"    @Override",
+			"    public AuditLog<E> getAuditLog() {",
+			"        return delegate;",
+			"    }",
+			"",
+			"    /**",
+			"     * @return the queue of the calls, to flush or close it",
+			"     */",
+			"    public WriteBehindQueue getAuditLogQueue() {",
+			"        return this.queue;",
+			"    }",
+			"",
+			"    @Override",
+			"    public void record(long time, int user, double amount) {",
+			"        long sequence = this.queue.claim(0);",
+			"        if (sequence < 0) {",
+			"            if (sequence == WriteBehindQueue.RUN_ON_CALLER) {",
+			"                this.delegate.record(time, user, amount);",
+			"            }",
+			"            return;",
+			"        }",
+			"        this.queue.putLong(sequence, 0, time);",
+			"        this.queue.putInt(sequence, 1, user);",
+			"        this.queue.putDouble(sequence, 2, amount);",
+			"        this.queue.publish(sequence);",
+			"    }",
+			"",
+			"    @Override",
+			"    public void append(E event, boolean urgent, String... tags) throws IOException {",
+			"        long sequence = this.queue.claim(1);",
+			"        if (sequence < 0) {",
+			"            if (sequence == WriteBehindQueue.RUN_ON_CALLER) {",
+			"                this.delegate.append(event, urgent, tags);",
+			"            }",
+			"            return;",
+			"        }",
+			"        this.queue.putReference(sequence, 0, event);",
+			"        this.queue.putBoolean(sequence, 0, urgent);",
+			"        this.queue.putReference(sequence, 1, tags);",
+			"        this.queue.publish(sequence);",
+			"    }",
+			"",
+			"    @Override",
+			"    public <T extends Comparable<T>> void sorted(List<T> values) {",
+			"        long sequence = this.queue.claim(2);",
+			"        if (sequence < 0) {",
+			"            if (sequence == WriteBehindQueue.RUN_ON_CALLER) {",
+			"                this.delegate.sorted(values);",
+			"            }",
+			"            return;",
+			"        }",
+			"        this.queue.putReference(sequence, 0, values);",
+			"        this.queue.publish(sequence);",
+			"    }",
+			"",
+			"    @SuppressWarnings({\"unchecked\", \"rawtypes\"})",
+			"    private static <E> void dispatch(AuditLog<E> delegate, int method,",
+			"            WriteBehindQueue.Arguments arguments) throws Throwable {",
+			"        switch (method) {",
+			"            case 0:",
+			"                delegate.record(arguments.getLong(0), arguments.getInt(1), arguments.getDouble(2));",
+			"                break;",
+			"            case 1:",
+			"                delegate.append((E) arguments.getReference(0), arguments.getBoolean(0), (String[]) arguments.getReference(1));",
+			"                break;",
+			"            case 2:",
+			"                delegate.sorted((List) arguments.getReference(0));",
+			"                break;",
+			"            default:",
+			"                throw new IllegalArgumentException(\"Unknown method \" + method);",
+			"        }",
+			"    }",
+			"}");
+		Truth.assertAbout(javaSource())
+			.that(input)
+			.processedWith(new VirtualFieldProcessor())
+			.compilesWithoutError().and()
+			.generatesSources(writeBehind);
+	}
+}
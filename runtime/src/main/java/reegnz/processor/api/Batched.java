@@ -0,0 +1,47 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ties a single-item method of a {@link VirtualField} interface to its bulk
+ * counterpart, for example {@code save(T)} to {@code saveAll(List<T>)}. The
+ * processor generates a {@code Batching<Name>} class that buffers the calls
+ * of every marked method and passes them to the bulk method together.
+ * <p>
+ * The marked method takes a single item and returns either {@code void} or a
+ * {@code CompletableFuture} of its result. In the latter case the bulk method
+ * returns a {@code List} with the results of the items, in order.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Batched {
+
+	/**
+	 * @return the name of the bulk method, which takes a {@code List} of the
+	 *         items
+	 */
+	String value();
+
+	/**
+	 * @return the number of items that are passed to the bulk method at most,
+	 *         a full batch is passed on immediately
+	 */
+	int maxSize() default 100;
+
+	/**
+	 * @return how long the first item of a batch waits for more items
+	 */
+	long maxDelay() default 10;
+
+	TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+
+	/**
+	 * @return the number of items that may be waiting for or in a bulk call,
+	 *         callers block when it is reached
+	 */
+	int capacity() default 10000;
+}
@@ -0,0 +1,32 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the concurrent calls of a method of a {@link VirtualField}
+ * interface. The processor generates a {@code Bulkhead<Name>} class that
+ * passes calls on only while the limit is not reached, so a slow delegate can
+ * not tie up more threads than allowed. On the interface the limit is shared
+ * by all of its methods that have none of their own.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface Bulkhead {
+
+	/**
+	 * @return the number of calls that may run at the same time
+	 */
+	int maxConcurrent();
+
+	/**
+	 * @return how long a call waits for one of the others to return once the
+	 *         limit is reached, {@code 0} rejects it at once
+	 */
+	long maxWait() default 0;
+
+	TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,32 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a method of a {@link VirtualField} interface as a pure lookup whose
+ * results may be memoized. The processor generates a {@code Caching<Name>}
+ * class that keeps the results of every marked method in its own bounded
+ * cache, keyed by the method arguments.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+
+	/**
+	 * @return the maximum number of results kept, least recently used results
+	 *         are evicted first
+	 */
+	int maximumSize() default 1024;
+
+	/**
+	 * @return how long a result is kept after it was loaded, {@code 0} keeps it
+	 *         until it is evicted
+	 */
+	long expireAfterWrite() default 0;
+
+	TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,18 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a {@link VirtualField} interface as safe to call on more
+ * than one delegate for a single call. The processor generates a
+ * {@code Hedged<Name>} class that passes the calls of marked methods to a
+ * backup as well when the primary is slow to answer, and returns the first
+ * result. All other calls go to the primary.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Idempotent {
+}
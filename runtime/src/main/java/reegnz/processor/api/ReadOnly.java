@@ -0,0 +1,17 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a {@link VirtualField} interface as a read that any
+ * replica can serve. The processor generates a {@code Replicated<Name>} class
+ * that spreads the calls of marked methods across a pool of replicas and
+ * passes all other calls to the primary.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface ReadOnly {
+}
@@ -0,0 +1,18 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter of a {@link VirtualField} interface method that selects
+ * the delegate a call is routed to. The processor generates a
+ * {@code Sharded<Name>} class that hashes the marked argument to pick one of
+ * a power-of-two number of delegates, so every method of the interface needs
+ * exactly one marked parameter.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {
+}
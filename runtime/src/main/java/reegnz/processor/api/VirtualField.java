@@ -0,0 +1,103 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface VirtualField {
+	String value() default "";
+
+	/**
+	 * Also generate an {@code Abstract<VirtualName>} class that holds the
+	 * delegate in a {@code protected final} field and delegates through final
+	 * methods, so calls load the field directly instead of dispatching through
+	 * the abstract accessor.
+	 */
+	boolean abstractClass() default false;
+
+	/**
+	 * Also generate an {@code Async<Name>} interface whose methods return a
+	 * {@code CompletableFuture} of the delegated result, and an
+	 * {@code Async<Name>Adapter} that runs the delegate on an {@code Executor}.
+	 */
+	boolean async() default false;
+
+	/**
+	 * Also generate an {@code Instrumented<Name>} interface that extends the
+	 * generated one and records call counts, error counts and latency
+	 * histograms per method into the metrics returned by its
+	 * {@code get<Name>Metrics()} accessor.
+	 */
+	boolean instrumented() default false;
+
+	/**
+	 * Also generate a {@code Recorded<Name>} interface that extends the
+	 * generated one and emits a JDK Flight Recorder event with the arguments
+	 * and duration of every delegated call. Needs a JDK with the
+	 * {@code jdk.jfr} API, 8u262 or later.
+	 */
+	boolean flightRecorder() default false;
+
+	/**
+	 * Also generate a {@code Composite<Name>} class that implements the
+	 * annotated interface by calling all delegates of a copy-on-write array.
+	 * Void methods are broadcast, sequentially or in parallel on an executor,
+	 * the results of other methods are combined by an overridable reducer.
+	 */
+	boolean composite() default false;
+
+	/**
+	 * Also generate a {@code Swappable<Name>} class whose delegate can be
+	 * replaced atomically at runtime, optionally waiting until the calls in
+	 * flight on the replaced delegate have returned.
+	 */
+	boolean swappable() default false;
+
+	/**
+	 * Also generate a {@code Lazy<Name>} class that creates its delegate with
+	 * a {@code Supplier} on the first call, or in the background when it is
+	 * pre-warmed.
+	 */
+	boolean lazy() default false;
+
+	/**
+	 * Also generate a {@code Recording<Name>} class that appends every call
+	 * with its arguments to a memory-mapped {@code CallLog}, and a dispatcher
+	 * that replays the recorded calls against any delegate.
+	 */
+	boolean recording() default false;
+
+	/**
+	 * Also generate a {@code ThreadConfined<Name>} class that gives every
+	 * thread a delegate of its own, created by a factory on its first call,
+	 * for delegates that are not thread-safe.
+	 */
+	boolean threadConfined() default false;
+
+	/**
+	 * Also generate a {@code Pooled<Name>} class that borrows a delegate from
+	 * a bounded pool for every call, for delegates that are not thread-safe
+	 * and too expensive to keep one of per thread.
+	 */
+	boolean pooled() default false;
+
+	/**
+	 * Also generate a {@code WriteBehind<Name>} class that queues the calls of
+	 * void methods in a ring buffer and returns at once, while a consumer
+	 * thread runs them on the delegate. Methods returning a value are
+	 * delegated on the calling thread.
+	 */
+	boolean writeBehind() default false;
+
+	/**
+	 * Also generate, for every primitive type listed, such as {@code int.class},
+	 * an {@code Int<Name>} interface that binds all type variables of the
+	 * generic interface to the box of the primitive and adds overloads taking
+	 * and returning the primitive, and a {@code VirtualInt<Name>} interface
+	 * that delegates it without boxing.
+	 */
+	Class<?>[] specializations() default {};
+}
@@ -0,0 +1,19 @@
+package reegnz.processor.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a {@code Virtual<Name>} interface for every listed interface into
+ * the package of the annotated package or type, for interfaces that can not
+ * be annotated with {@link VirtualField} themselves, such as those of the JDK
+ * or of libraries. Inherited methods are delegated as well, with the type
+ * arguments of the superinterfaces applied.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({ ElementType.PACKAGE, ElementType.TYPE })
+public @interface VirtualFieldFor {
+	Class<?>[] value();
+}
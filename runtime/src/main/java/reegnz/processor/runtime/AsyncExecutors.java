@@ -0,0 +1,56 @@
+package reegnz.processor.runtime;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default executor of the generated {@code Async*Adapter} classes.
+ * <p>
+ * Delegated calls are expected to block, so they should not run on the common
+ * fork-join pool. On a JDK with virtual threads every call gets its own virtual
+ * thread, on older JDKs the calls run on a shared, unbounded pool of daemon
+ * threads.
+ * <p>
+ * The executor is created on first use in a holder class, so this class does
+ * no reflection when it is initialized. The native-image configuration in the
+ * jar registers the lookup of virtual threads and initializes the holder at
+ * run time, so no threads end up in the image heap.
+ */
+public final class AsyncExecutors {
+
+	private AsyncExecutors() {
+	}
+
+	public static Executor defaultExecutor() {
+		return Holder.EXECUTOR;
+	}
+
+	private static final class Holder {
+		static final Executor EXECUTOR = createExecutor();
+	}
+
+	private static Executor createExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(new DaemonThreadFactory());
+		}
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "virtual-field-async-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
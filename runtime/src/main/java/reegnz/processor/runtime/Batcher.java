@@ -0,0 +1,220 @@
+package reegnz.processor.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffers the items of a single-item method of a generated
+ * {@code Batching*} class and passes them to the bulk method in batches.
+ * <p>
+ * A batch is passed on when it is full, or when its first item has waited for
+ * the maximum delay. Bulk calls run on the scheduler, so they may overlap if
+ * it has more than one thread. The number of items waiting for or in a bulk
+ * call is bounded: callers block until a bulk call returns once it is reached.
+ *
+ * @param <T> the type of the items
+ * @param <R> the type of the results
+ */
+public final class Batcher<T, R> {
+
+	@FunctionalInterface
+	public interface BulkCall<T, R> {
+		/**
+		 * @return the results of the items in order, or {@code null} if the
+		 *         items have no results
+		 */
+		List<? extends R> call(List<T> items) throws Exception;
+	}
+
+	private final BulkCall<T, R> bulkCall;
+	private final int maxSize;
+	private final long maxDelayNanos;
+	private final Semaphore capacity;
+	private final ScheduledExecutorService scheduler;
+	private final Object lock = new Object();
+	private Batch<T, R> current;
+
+	public Batcher(BulkCall<T, R> bulkCall, int maxSize, long maxDelayNanos, int capacity,
+			ScheduledExecutorService scheduler) {
+		if (maxSize <= 0 || capacity < maxSize) {
+			throw new IllegalArgumentException(
+					"The capacity must be at least the positive maximum size: " + capacity + " < " + maxSize);
+		}
+		this.bulkCall = bulkCall;
+		this.maxSize = maxSize;
+		this.maxDelayNanos = maxDelayNanos;
+		this.capacity = new Semaphore(capacity);
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * The scheduler of the generated classes that are not given one: a shared
+	 * pool of daemon threads, one per processor.
+	 */
+	public static ScheduledExecutorService defaultScheduler() {
+		return Holder.SCHEDULER;
+	}
+
+	/**
+	 * Adds an item without a result. If its bulk call fails, the failure is
+	 * passed to the uncaught exception handler of the thread it ran on.
+	 */
+	public void add(T item) {
+		enqueue(item, null);
+	}
+
+	/**
+	 * @return the result of the item, completed when its bulk call returns
+	 */
+	public CompletableFuture<R> submit(T item) {
+		CompletableFuture<R> result = new CompletableFuture<>();
+		enqueue(item, result);
+		return result;
+	}
+
+	/**
+	 * Passes the buffered items on without waiting for more.
+	 *
+	 * @return completed when the bulk call of the buffered items returns
+	 */
+	public CompletableFuture<Void> flush() {
+		Batch<T, R> batch;
+		synchronized (lock) {
+			batch = current;
+			current = null;
+		}
+		if (batch == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		dispatch(batch);
+		return batch.done;
+	}
+
+	private void enqueue(T item, CompletableFuture<R> result) {
+		capacity.acquireUninterruptibly();
+		Batch<T, R> full = null;
+		synchronized (lock) {
+			Batch<T, R> batch = current;
+			if (batch == null) {
+				batch = new Batch<>(maxSize);
+				current = batch;
+				batch.timer = schedule(batch);
+			}
+			batch.items.add(item);
+			batch.results.add(result);
+			if (batch.items.size() >= maxSize || batch.timer == null) {
+				current = null;
+				full = batch;
+			}
+		}
+		if (full != null) {
+			if (full.timer != null) {
+				full.timer.cancel(false);
+			}
+			dispatch(full);
+		}
+	}
+
+	/**
+	 * @return the timer of the batch, or {@code null} if the scheduler
+	 *         rejected it, in which case the batch is passed on at once, like
+	 *         a bulk call the scheduler rejects runs on the calling thread
+	 */
+	private ScheduledFuture<?> schedule(Batch<T, R> batch) {
+		try {
+			return scheduler.schedule(() -> flush(batch), maxDelayNanos, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			return null;
+		}
+	}
+
+	private void flush(Batch<T, R> expected) {
+		synchronized (lock) {
+			if (current != expected) {
+				return;
+			}
+			current = null;
+		}
+		dispatch(expected);
+	}
+
+	private void dispatch(Batch<T, R> batch) {
+		try {
+			scheduler.execute(() -> run(batch));
+		} catch (RejectedExecutionException e) {
+			run(batch);
+		}
+	}
+
+	private void run(Batch<T, R> batch) {
+		try {
+			List<? extends R> results = bulkCall.call(batch.items);
+			if (results != null && results.size() != batch.items.size()) {
+				throw new IllegalStateException(
+						"The bulk call returned " + results.size() + " results for " + batch.items.size() + " items");
+			}
+			for (int i = 0; i < batch.results.size(); i++) {
+				CompletableFuture<R> result = batch.results.get(i);
+				if (result != null) {
+					result.complete(results == null ? null : results.get(i));
+				}
+			}
+		} catch (Throwable e) {
+			fail(batch, e);
+		} finally {
+			capacity.release(batch.items.size());
+			batch.done.complete(null);
+		}
+	}
+
+	private static <R> void fail(Batch<?, R> batch, Throwable failure) {
+		boolean reported = false;
+		for (CompletableFuture<R> result : batch.results) {
+			if (result != null) {
+				result.completeExceptionally(failure);
+			} else if (!reported) {
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+				reported = true;
+			}
+		}
+	}
+
+	private static final class Batch<T, R> {
+		final List<T> items;
+		final List<CompletableFuture<R>> results;
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+		ScheduledFuture<?> timer;
+
+		Batch(int size) {
+			items = new ArrayList<>(size);
+			results = new ArrayList<>(size);
+		}
+	}
+
+	private static final class Holder {
+		static final ScheduledExecutorService SCHEDULER = createScheduler();
+	}
+
+	private static ScheduledExecutorService createScheduler() {
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "virtual-field-batcher-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+				Runtime.getRuntime().availableProcessors(), threadFactory);
+		scheduler.setRemoveOnCancelPolicy(true);
+		return scheduler;
+	}
+}
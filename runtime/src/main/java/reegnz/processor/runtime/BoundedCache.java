@@ -0,0 +1,156 @@
+package reegnz.processor.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A size bounded, thread-safe cache with least recently used eviction and an
+ * optional time to live.
+ * <p>
+ * The entries are split over a power of two number of segments by key hash,
+ * each segment is an access ordered map guarded by its own lock, so threads
+ * working on different keys rarely contend. Every segment evicts its own least
+ * recently used entry, which keeps the total size within the maximum.
+ * <p>
+ * {@code null} values are not cached, {@link #get(Object)} returning
+ * {@code null} means the value has to be loaded.
+ */
+public final class BoundedCache<K, V> {
+
+	private static final int MAX_SEGMENTS = 16;
+
+	private final Segment<K, V>[] segments;
+	private final long expireAfterWriteNanos;
+	private final LongSupplier ticker;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maximumSize the maximum number of entries kept
+	 * @param expireAfterWriteNanos the time to live of an entry, {@code 0} to
+	 *            keep entries until they get evicted
+	 */
+	public BoundedCache(int maximumSize, long expireAfterWriteNanos) {
+		this(maximumSize, expireAfterWriteNanos, System::nanoTime);
+	}
+
+	@SuppressWarnings("unchecked")
+	BoundedCache(int maximumSize, long expireAfterWriteNanos, LongSupplier ticker) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+		}
+		if (expireAfterWriteNanos < 0) {
+			throw new IllegalArgumentException("expireAfterWriteNanos must not be negative: " + expireAfterWriteNanos);
+		}
+		int segmentCount = 1;
+		while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maximumSize) {
+			segmentCount *= 2;
+		}
+		this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			int capacity = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+			segments[i] = new Segment<>(capacity, evictions);
+		}
+		this.expireAfterWriteNanos = expireAfterWriteNanos;
+		this.ticker = ticker;
+	}
+
+	/**
+	 * @return the cached value, or {@code null} if it is absent or expired
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Entry<V> entry = segment.get(key);
+			if (entry != null && isExpired(entry)) {
+				segment.remove(key);
+				entry = null;
+			}
+			if (entry == null) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.value;
+		}
+	}
+
+	public void put(K key, V value) {
+		if (value == null) {
+			return;
+		}
+		long writeTime = expireAfterWriteNanos == 0 ? 0 : ticker.getAsLong();
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, new Entry<>(value, writeTime));
+		}
+	}
+
+	public void invalidateAll() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public long size() {
+		long size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public CacheStats stats() {
+		return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size());
+	}
+
+	private boolean isExpired(Entry<V> entry) {
+		return expireAfterWriteNanos != 0 && ticker.getAsLong() - entry.writeTime >= expireAfterWriteNanos;
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int hash = key == null ? 0 : key.hashCode();
+		hash ^= hash >>> 16;
+		return segments[hash & (segments.length - 1)];
+	}
+
+	private static final class Entry<V> {
+		final V value;
+		final long writeTime;
+
+		Entry(V value, long writeTime) {
+			this.value = value;
+			this.writeTime = writeTime;
+		}
+	}
+
+	private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+		private final transient LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
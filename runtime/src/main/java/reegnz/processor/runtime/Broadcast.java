@@ -0,0 +1,108 @@
+package reegnz.processor.runtime;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Calls a void method on every delegate of a generated {@code Composite*}
+ * class, one after the other or in parallel.
+ * <p>
+ * In parallel, the first delegate is called on the calling thread, the others
+ * on the executor, and the call returns when all of them are done. Either way
+ * every delegate is called even if some of them fail, and the first failure is
+ * rethrown as is, with the later ones added as suppressed exceptions. Checked exceptions are rethrown without wrapping:
+ * the call can only throw what the delegated method declares, and the
+ * generated method declares the same.
+ */
+public final class Broadcast {
+
+	private Broadcast() {
+	}
+
+	@FunctionalInterface
+	public interface Call<T> {
+		void call(T delegate) throws Throwable;
+	}
+
+	public static <T> void sequential(T[] delegates, Call<? super T> call) {
+		Failure failure = new Failure();
+		for (T delegate : delegates) {
+			failure.run(call, delegate);
+		}
+		failure.rethrow();
+	}
+
+	public static <T> void parallel(T[] delegates, Executor executor, Call<? super T> call) {
+		if (delegates.length == 0) {
+			return;
+		}
+		Failure failure = new Failure();
+		CountDownLatch done = new CountDownLatch(delegates.length - 1);
+		for (int i = 1; i < delegates.length; i++) {
+			T delegate = delegates[i];
+			Runnable task = () -> {
+				try {
+					failure.run(call, delegate);
+				} finally {
+					done.countDown();
+				}
+			};
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.run();
+			}
+		}
+		failure.run(call, delegates[0]);
+		awaitUninterruptibly(done);
+		failure.rethrow();
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static final class Failure {
+
+		private Throwable first;
+
+		<T> void run(Call<? super T> call, T delegate) {
+			try {
+				call.call(delegate);
+			} catch (Throwable e) {
+				add(e);
+			}
+		}
+
+		synchronized void add(Throwable failure) {
+			if (first == null) {
+				first = failure;
+			} else if (first != failure) {
+				first.addSuppressed(failure);
+			}
+		}
+
+		synchronized void rethrow() {
+			if (first != null) {
+				Broadcast.<RuntimeException>sneakyThrow(first);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E extends Throwable> void sneakyThrow(Throwable e) throws E {
+		throw (E) e;
+	}
+}
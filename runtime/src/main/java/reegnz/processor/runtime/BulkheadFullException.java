@@ -0,0 +1,14 @@
+package reegnz.processor.runtime;
+
+/**
+ * Thrown by a {@link ConcurrencyLimiter} for calls that found the limit
+ * reached, and did not get a permit within the maximum wait.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public BulkheadFullException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,82 @@
+package reegnz.processor.runtime;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Equality and hashing of reference arguments in the cache keys generated for
+ * {@code Caching*} classes. Arrays are compared by content.
+ */
+public final class CacheKeys {
+
+	/**
+	 * The key of methods without arguments.
+	 */
+	public static final Object NO_ARGS = new Object();
+
+	private CacheKeys() {
+	}
+
+	public static boolean equal(Object a, Object b) {
+		return Objects.deepEquals(a, b);
+	}
+
+	/**
+	 * @return a copy of an array and of the arrays nested in it, so a caller
+	 *         changing its array later does not change the key; other values
+	 *         as they are
+	 */
+	public static Object copy(Object value) {
+		if (value == null || !value.getClass().isArray()) {
+			return value;
+		}
+		if (value instanceof Object[]) {
+			Object[] copy = ((Object[]) value).clone();
+			for (int i = 0; i < copy.length; i++) {
+				copy[i] = copy(copy[i]);
+			}
+			return copy;
+		} else if (value instanceof int[]) {
+			return ((int[]) value).clone();
+		} else if (value instanceof long[]) {
+			return ((long[]) value).clone();
+		} else if (value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		} else if (value instanceof char[]) {
+			return ((char[]) value).clone();
+		} else if (value instanceof short[]) {
+			return ((short[]) value).clone();
+		} else if (value instanceof double[]) {
+			return ((double[]) value).clone();
+		} else if (value instanceof float[]) {
+			return ((float[]) value).clone();
+		} else {
+			return ((boolean[]) value).clone();
+		}
+	}
+
+	public static int hash(Object value) {
+		if (value == null || !value.getClass().isArray()) {
+			return Objects.hashCode(value);
+		}
+		if (value instanceof Object[]) {
+			return Arrays.deepHashCode((Object[]) value);
+		} else if (value instanceof int[]) {
+			return Arrays.hashCode((int[]) value);
+		} else if (value instanceof long[]) {
+			return Arrays.hashCode((long[]) value);
+		} else if (value instanceof byte[]) {
+			return Arrays.hashCode((byte[]) value);
+		} else if (value instanceof char[]) {
+			return Arrays.hashCode((char[]) value);
+		} else if (value instanceof short[]) {
+			return Arrays.hashCode((short[]) value);
+		} else if (value instanceof double[]) {
+			return Arrays.hashCode((double[]) value);
+		} else if (value instanceof float[]) {
+			return Arrays.hashCode((float[]) value);
+		} else {
+			return Arrays.hashCode((boolean[]) value);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package reegnz.processor.runtime;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An append-only binary log of the calls of a generated {@code Recording*}
+ * class, written through a memory-mapped file of a fixed capacity.
+ * <p>
+ * Every thread reserves a chunk of the file at a time with a single atomic
+ * add and appends its calls to that chunk, so threads never write the same
+ * memory and recording takes no locks. A call is encoded into a buffer of the
+ * thread first and copied into the chunk when it is complete. Calls that do
+ * not fit into the remaining capacity are dropped and counted.
+ * <p>
+ * A chunk is never shared, so every thread that records takes at least one
+ * chunk of the capacity, even for a single call. Recording from many threads
+ * that make few calls each needs a capacity of at least the number of
+ * threads times the chunk size, or a smaller chunk size.
+ * <p>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes, followed by
+ * the chunks. A call is stored as its length, the index of the method, the
+ * nanoseconds since the log was created and the encoded arguments. A length
+ * of zero ends the calls of a chunk. {@link #close()} stores the end of the
+ * reserved chunks in the header, it must only be called once the recorded
+ * calls returned.
+ *
+ * @see CallTrace
+ */
+public final class CallLog implements Closeable {
+
+	static final int MAGIC = 0x5646434C;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 64;
+	static final int END_OFFSET = 16;
+	static final int CALL_HEADER_SIZE = 16;
+
+	/**
+	 * The default size of a chunk, large enough for hundreds of small calls.
+	 * A thousand recording threads take 64 MiB of the log with it.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer mapped;
+	private final int chunkSize;
+	private final long startNanos = System.nanoTime();
+	private final AtomicLong nextChunk = new AtomicLong(HEADER_SIZE);
+	private final LongAdder dropped = new LongAdder();
+	private final ThreadLocal<CallWriter> writers = ThreadLocal.withInitial(() -> new CallWriter(this));
+
+	private CallLog(FileChannel channel, long capacity, int chunkSize) throws IOException {
+		this.channel = channel;
+		this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		this.chunkSize = chunkSize;
+		mapped.putInt(0, MAGIC);
+		mapped.putInt(4, VERSION);
+		mapped.putInt(8, chunkSize);
+	}
+
+	/**
+	 * Creates the file, or truncates it if it exists.
+	 *
+	 * @param capacity the size of the file, at most 2 GiB
+	 */
+	public static CallLog create(Path file, long capacity) throws IOException {
+		return create(file, capacity, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param chunkSize the number of bytes a thread reserves at a time, calls
+	 *        larger than that are dropped
+	 */
+	public static CallLog create(Path file, long capacity, int chunkSize) throws IOException {
+		if (capacity > Integer.MAX_VALUE || capacity < HEADER_SIZE + chunkSize || chunkSize <= CALL_HEADER_SIZE) {
+			throw new IllegalArgumentException("The capacity must fit a chunk of " + chunkSize
+					+ " bytes and at most 2 GiB: " + capacity);
+		}
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			return new CallLog(channel, capacity, chunkSize);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts recording a call on the current thread. The arguments are
+	 * written to the returned writer, {@link CallWriter#end()} appends the
+	 * call to the log.
+	 *
+	 * @param method the index of the method
+	 */
+	public CallWriter begin(int method) {
+		CallWriter writer = writers.get();
+		writer.begin(method, System.nanoTime() - startNanos);
+		return writer;
+	}
+
+	/**
+	 * @return the number of calls dropped because the log was full
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	@Override
+	public void close() throws IOException {
+		mapped.putLong(END_OFFSET, Math.min(nextChunk.get(), mapped.capacity()));
+		mapped.force();
+		channel.close();
+	}
+
+	/**
+	 * @return a view of the mapped file for a single thread to write to
+	 */
+	ByteBuffer view() {
+		return mapped.duplicate();
+	}
+
+	int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * @return the offset of a chunk reserved for the calling thread, or
+	 *         {@code -1} if the log is full
+	 */
+	int reserveChunk() {
+		long offset = nextChunk.getAndAdd(chunkSize);
+		return offset + chunkSize <= mapped.capacity() ? (int) offset : -1;
+	}
+
+	void drop() {
+		dropped.increment();
+	}
+}
@@ -0,0 +1,111 @@
+package reegnz.processor.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the arguments of a recorded call, in the order and with the types
+ * they were written by a {@link CallWriter}.
+ */
+public final class CallReader {
+
+	private final ByteBuffer arguments;
+
+	CallReader(ByteBuffer arguments) {
+		this.arguments = arguments;
+	}
+
+	public boolean readBoolean() {
+		return arguments.get() != 0;
+	}
+
+	public byte readByte() {
+		return arguments.get();
+	}
+
+	public char readChar() {
+		return arguments.getChar();
+	}
+
+	public short readShort() {
+		return arguments.getShort();
+	}
+
+	public int readInt() {
+		return arguments.getInt();
+	}
+
+	public long readLong() {
+		return arguments.getLong();
+	}
+
+	public float readFloat() {
+		return arguments.getFloat();
+	}
+
+	public double readDouble() {
+		return arguments.getDouble();
+	}
+
+	public String readString() {
+		byte[] bytes = readBytes();
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public Object readObject() {
+		byte tag = readByte();
+		switch (tag) {
+		case CallWriter.NULL:
+		case CallWriter.UNSUPPORTED:
+			return null;
+		case CallWriter.STRING:
+			return readString();
+		case CallWriter.BOOLEAN:
+			return readBoolean();
+		case CallWriter.BYTE:
+			return readByte();
+		case CallWriter.CHAR:
+			return readChar();
+		case CallWriter.SHORT:
+			return readShort();
+		case CallWriter.INT:
+			return readInt();
+		case CallWriter.LONG:
+			return readLong();
+		case CallWriter.FLOAT:
+			return readFloat();
+		case CallWriter.DOUBLE:
+			return readDouble();
+		case CallWriter.BYTES:
+			return readBytes();
+		case CallWriter.SERIALIZED:
+			return readSerialized();
+		default:
+			throw new IllegalStateException("Unknown tag " + tag);
+		}
+	}
+
+	private Object readSerialized() {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes()))) {
+			return in.readObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Can not replay an argument", e);
+		}
+	}
+
+	private byte[] readBytes() {
+		int length = readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		arguments.get(bytes);
+		return bytes;
+	}
+}
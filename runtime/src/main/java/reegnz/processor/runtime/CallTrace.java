@@ -0,0 +1,155 @@
+package reegnz.processor.runtime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The calls recorded in a {@link CallLog}, in the order they were made, which
+ * can be replayed against any delegate through the dispatcher generated by
+ * the {@code Recording*} class of its interface.
+ * <p>
+ * The calls of all threads are replayed on the calling thread, at the pace
+ * they were recorded at or as fast as possible. Benchmarks can replay a
+ * single call per operation with {@link #replay(int, Dispatcher)}.
+ */
+public final class CallTrace {
+
+	/**
+	 * Passes a recorded call on to a delegate, decoding its arguments.
+	 */
+	@FunctionalInterface
+	public interface Dispatcher {
+		void dispatch(int method, CallReader arguments) throws Throwable;
+	}
+
+	public enum Pace {
+		/**
+		 * Waits between calls as long as was waited between them when they
+		 * were recorded.
+		 */
+		ORIGINAL,
+		/**
+		 * Replays the calls back to back.
+		 */
+		MAXIMUM
+	}
+
+	private final ByteBuffer file;
+	private final int[] offsets;
+	private final int[] methods;
+	private final long[] nanos;
+
+	private CallTrace(ByteBuffer file, List<Integer> offsets) {
+		this.file = file;
+		offsets.sort((first, second) -> Long.compare(nanosAt(first), nanosAt(second)));
+		this.offsets = new int[offsets.size()];
+		this.methods = new int[offsets.size()];
+		this.nanos = new long[offsets.size()];
+		for (int i = 0; i < this.offsets.length; i++) {
+			int offset = offsets.get(i);
+			this.offsets[i] = offset;
+			this.methods[i] = file.getInt(offset + 4);
+			this.nanos[i] = nanosAt(offset);
+		}
+	}
+
+	/**
+	 * Reads a log written by {@link CallLog}. A log that was not closed is
+	 * read up to its capacity.
+	 */
+	public static CallTrace read(Path path) throws IOException {
+		MappedByteBuffer file;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (file.capacity() < CallLog.HEADER_SIZE || file.getInt(0) != CallLog.MAGIC) {
+			throw new IOException("Not a call log: " + path);
+		}
+		if (file.getInt(4) != CallLog.VERSION) {
+			throw new IOException("Unsupported version " + file.getInt(4) + " of the call log " + path);
+		}
+		int chunkSize = file.getInt(8);
+		long end = file.getLong(CallLog.END_OFFSET);
+		int limit = end == 0 ? file.capacity() : (int) end;
+		List<Integer> offsets = new ArrayList<>();
+		for (int chunk = CallLog.HEADER_SIZE; chunk + chunkSize <= limit; chunk += chunkSize) {
+			int offset = chunk;
+			int length;
+			while (offset + CallLog.CALL_HEADER_SIZE <= chunk + chunkSize && (length = file.getInt(offset)) != 0) {
+				offsets.add(offset);
+				offset += length;
+			}
+		}
+		return new CallTrace(file, offsets);
+	}
+
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * @return the index of the method of the call
+	 */
+	public int getMethod(int call) {
+		return methods[call];
+	}
+
+	/**
+	 * @return when the call was made, in nanoseconds since the log was created
+	 */
+	public long getNanos(int call) {
+		return nanos[call];
+	}
+
+	/**
+	 * Replays a single call, passing on whatever the delegate throws.
+	 */
+	public void replay(int call, Dispatcher dispatcher) throws Throwable {
+		dispatcher.dispatch(methods[call], arguments(call));
+	}
+
+	/**
+	 * Replays all calls in order. Failing calls do not stop the replay.
+	 *
+	 * @return the number of calls that threw
+	 */
+	public int replay(Dispatcher dispatcher, Pace pace) {
+		int failures = 0;
+		long start = System.nanoTime();
+		for (int call = 0; call < offsets.length; call++) {
+			if (pace == Pace.ORIGINAL) {
+				awaitNanos(start + nanos[call] - nanos[0]);
+			}
+			try {
+				replay(call, dispatcher);
+			} catch (Throwable e) {
+				failures++;
+			}
+		}
+		return failures;
+	}
+
+	private static void awaitNanos(long deadline) {
+		for (long remaining; (remaining = deadline - System.nanoTime()) > 0;) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	private CallReader arguments(int call) {
+		ByteBuffer arguments = file.duplicate();
+		int offset = offsets[call];
+		arguments.limit(offset + file.getInt(offset)).position(offset + CallLog.CALL_HEADER_SIZE);
+		return new CallReader(arguments);
+	}
+
+	private long nanosAt(int offset) {
+		return file.getLong(offset + 8);
+	}
+}
@@ -0,0 +1,202 @@
+package reegnz.processor.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes the arguments of a call into a {@link CallLog}. Every thread has a
+ * writer of its own, obtained from {@link CallLog#begin(int)}.
+ * <p>
+ * Primitives and strings are written as is. Other values are written with a
+ * tag: boxed primitives, strings and byte arrays compactly, other
+ * serializable values with Java serialization. Values that can not be
+ * serialized are recorded as unsupported and replayed as {@code null}.
+ * <p>
+ * Calls begun on the same thread before the previous one ended, such as a
+ * recorded call made while serializing an argument, are encoded into a
+ * buffer of their own and must end in the reverse order.
+ */
+public final class CallWriter {
+
+	static final byte NULL = 0;
+	static final byte STRING = 1;
+	static final byte BOOLEAN = 2;
+	static final byte BYTE = 3;
+	static final byte CHAR = 4;
+	static final byte SHORT = 5;
+	static final byte INT = 6;
+	static final byte LONG = 7;
+	static final byte FLOAT = 8;
+	static final byte DOUBLE = 9;
+	static final byte BYTES = 10;
+	static final byte SERIALIZED = 11;
+	static final byte UNSUPPORTED = 12;
+
+	private final CallLog log;
+	private final ByteBuffer chunk;
+	private ByteBuffer[] calls = new ByteBuffer[1];
+	private ByteBuffer call;
+	private int depth;
+	private int chunkEnd;
+	private boolean full;
+
+	CallWriter(CallLog log) {
+		this.log = log;
+		this.chunk = log.view();
+	}
+
+	void begin(int method, long nanos) {
+		if (depth == calls.length) {
+			calls = Arrays.copyOf(calls, depth * 2);
+		}
+		if (calls[depth] == null) {
+			calls[depth] = ByteBuffer.allocate(256);
+		}
+		call = calls[depth++];
+		call.clear();
+		call.putInt(0).putInt(method).putLong(nanos);
+	}
+
+	/**
+	 * Appends the call to the chunk of the thread, reserving a new chunk if it
+	 * does not fit.
+	 */
+	public void end() {
+		try {
+			append();
+		} finally {
+			depth--;
+			call = depth == 0 ? null : calls[depth - 1];
+		}
+	}
+
+	private void append() {
+		int length = call.position();
+		if (full || length > log.getChunkSize()) {
+			log.drop();
+			return;
+		}
+		call.putInt(0, length);
+		if (chunk.position() + length > chunkEnd) {
+			int offset = log.reserveChunk();
+			if (offset < 0) {
+				full = true;
+				log.drop();
+				return;
+			}
+			chunk.limit(offset + log.getChunkSize()).position(offset);
+			chunkEnd = chunk.limit();
+		}
+		call.flip();
+		chunk.put(call);
+	}
+
+	public void writeBoolean(boolean value) {
+		ensure(1).put(value ? (byte) 1 : 0);
+	}
+
+	public void writeByte(byte value) {
+		ensure(1).put(value);
+	}
+
+	public void writeChar(char value) {
+		ensure(2).putChar(value);
+	}
+
+	public void writeShort(short value) {
+		ensure(2).putShort(value);
+	}
+
+	public void writeInt(int value) {
+		ensure(4).putInt(value);
+	}
+
+	public void writeLong(long value) {
+		ensure(8).putLong(value);
+	}
+
+	public void writeFloat(float value) {
+		ensure(4).putFloat(value);
+	}
+
+	public void writeDouble(double value) {
+		ensure(8).putDouble(value);
+	}
+
+	public void writeString(String value) {
+		if (value == null) {
+			writeInt(-1);
+		} else {
+			writeBytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	public void writeObject(Object value) {
+		if (value == null) {
+			writeByte(NULL);
+		} else if (value instanceof String) {
+			writeByte(STRING);
+			writeString((String) value);
+		} else if (value instanceof Integer) {
+			writeByte(INT);
+			writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			writeByte(LONG);
+			writeLong((Long) value);
+		} else if (value instanceof Double) {
+			writeByte(DOUBLE);
+			writeDouble((Double) value);
+		} else if (value instanceof Boolean) {
+			writeByte(BOOLEAN);
+			writeBoolean((Boolean) value);
+		} else if (value instanceof Float) {
+			writeByte(FLOAT);
+			writeFloat((Float) value);
+		} else if (value instanceof Short) {
+			writeByte(SHORT);
+			writeShort((Short) value);
+		} else if (value instanceof Byte) {
+			writeByte(BYTE);
+			writeByte((Byte) value);
+		} else if (value instanceof Character) {
+			writeByte(CHAR);
+			writeChar((Character) value);
+		} else if (value instanceof byte[]) {
+			writeByte(BYTES);
+			writeBytes((byte[]) value);
+		} else {
+			writeSerialized(value);
+		}
+	}
+
+	private void writeSerialized(Object value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		} catch (IOException | RuntimeException e) {
+			writeByte(UNSUPPORTED);
+			return;
+		}
+		writeByte(SERIALIZED);
+		writeBytes(bytes.toByteArray());
+	}
+
+	private void writeBytes(byte[] bytes) {
+		writeInt(bytes.length);
+		ensure(bytes.length).put(bytes);
+	}
+
+	private ByteBuffer ensure(int bytes) {
+		if (call.remaining() < bytes) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(call.capacity() * 2, call.position() + bytes));
+			call.flip();
+			call = grown.put(call);
+			calls[depth - 1] = call;
+		}
+		return call;
+	}
+}
@@ -0,0 +1,158 @@
+package reegnz.processor.runtime;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limits the concurrent calls of a method of a generated {@code Bulkhead*}
+ * class.
+ * <p>
+ * Permits are counted with compare-and-set on a single counter, so calls below
+ * the limit never block. A call that finds the limit reached is rejected with
+ * a {@link BulkheadFullException} at once, or after waiting up to the maximum
+ * wait. Waiting calls queue up and park; a returning call unparks the first of
+ * them, which passes the wake-up on when it leaves the queue without taking
+ * the permit. The limit and the maximum wait can be changed at runtime.
+ * <p>
+ * The permits are an {@link AtomicInteger} rather than a field updater, so
+ * the class needs no reflection when it is initialized and can be initialized
+ * at build time by GraalVM native-image.
+ */
+public final class ConcurrencyLimiter {
+
+	private final String name;
+	private final LongAdder rejected = new LongAdder();
+	private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger inUse = new AtomicInteger();
+	private volatile int maxConcurrent;
+	private volatile long maxWaitNanos;
+
+	/**
+	 * @param name the name of the limited calls, used in the messages of
+	 *        rejections
+	 */
+	public ConcurrencyLimiter(String name, int maxConcurrent, long maxWaitNanos) {
+		this.name = name;
+		setMaxConcurrent(maxConcurrent);
+		setMaxWaitNanos(maxWaitNanos);
+	}
+
+	/**
+	 * Takes a permit, waiting up to the maximum wait for one. A thread that is
+	 * interrupted while it waits is rejected with its interrupt status kept.
+	 *
+	 * @throws BulkheadFullException if there is no permit
+	 */
+	public void acquire() {
+		if (tryAcquire()) {
+			return;
+		}
+		long maxWait = maxWaitNanos;
+		if (maxWait == 0 || !await(maxWait)) {
+			rejected.increment();
+			throw new BulkheadFullException("The limit of " + maxConcurrent + " concurrent calls of " + name
+					+ " is reached");
+		}
+	}
+
+	/**
+	 * @return whether a permit was taken, without waiting for one
+	 */
+	public boolean tryAcquire() {
+		for (;;) {
+			int current = inUse.get();
+			if (current >= maxConcurrent) {
+				return false;
+			}
+			if (inUse.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void release() {
+		inUse.decrementAndGet();
+		wakeUpWaiter();
+	}
+
+	private boolean await(long maxWait) {
+		Thread current = Thread.currentThread();
+		long deadline = System.nanoTime() + maxWait;
+		waiters.add(current);
+		try {
+			for (;;) {
+				if (tryAcquire()) {
+					return true;
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0 || current.isInterrupted()) {
+					return false;
+				}
+				LockSupport.parkNanos(this, remaining);
+			}
+		} finally {
+			waiters.remove(current);
+			if (inUse.get() < maxConcurrent) {
+				wakeUpWaiter();
+			}
+		}
+	}
+
+	private void wakeUpWaiter() {
+		Thread waiter = waiters.peek();
+		if (waiter != null) {
+			LockSupport.unpark(waiter);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * Changes the limit. Calls over a lowered limit run to completion, new
+	 * calls only get a permit once enough of them returned.
+	 */
+	public void setMaxConcurrent(int maxConcurrent) {
+		if (maxConcurrent <= 0) {
+			throw new IllegalArgumentException("The limit must be positive: " + maxConcurrent);
+		}
+		this.maxConcurrent = maxConcurrent;
+		wakeUpWaiter();
+	}
+
+	public long getMaxWaitNanos() {
+		return maxWaitNanos;
+	}
+
+	/**
+	 * @param maxWaitNanos how long calls wait for a permit, {@code 0} rejects
+	 *        them at once
+	 */
+	public void setMaxWaitNanos(long maxWaitNanos) {
+		if (maxWaitNanos < 0) {
+			throw new IllegalArgumentException("The maximum wait must not be negative: " + maxWaitNanos);
+		}
+		this.maxWaitNanos = maxWaitNanos;
+	}
+
+	/**
+	 * @return the number of calls holding a permit
+	 */
+	public int getInUse() {
+		return inUse.get();
+	}
+
+	/**
+	 * @return the number of calls rejected since the limiter was created
+	 */
+	public long getRejected() {
+		return rejected.sum();
+	}
+}
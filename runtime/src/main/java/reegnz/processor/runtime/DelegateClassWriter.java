@@ -0,0 +1,302 @@
+package reegnz.processor.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the class file of a delegating implementation of an interface: a
+ * final class with a final {@code delegate} field, a constructor taking it and
+ * one method per interface method that passes its arguments on. The methods
+ * have no branches, so the class needs no stack map frames.
+ */
+final class DelegateClassWriter {
+
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final int JAVA_8 = 52;
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+	private static final int ACC_VARARGS = 0x0080;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private static final int ILOAD = 0x15;
+	private static final int LLOAD = 0x16;
+	private static final int FLOAD = 0x17;
+	private static final int DLOAD = 0x18;
+	private static final int ALOAD = 0x19;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int IRETURN = 0xac;
+	private static final int LRETURN = 0xad;
+	private static final int FRETURN = 0xae;
+	private static final int DRETURN = 0xaf;
+	private static final int ARETURN = 0xb0;
+	private static final int RETURN = 0xb1;
+	private static final int GETFIELD = 0xb4;
+	private static final int PUTFIELD = 0xb5;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKEINTERFACE = 0xb9;
+
+	private static final String DELEGATE = "delegate";
+	private static final String OBJECT = "java/lang/Object";
+
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream poolOut = new DataOutputStream(pool);
+	private final Map<String, Integer> constants = new HashMap<>();
+	private int poolSize = 1;
+
+	private final String className;
+	private final String interfaceName;
+	private final String delegateDescriptor;
+
+	/**
+	 * @param className the binary name of the written class
+	 */
+	DelegateClassWriter(String className, Class<?> type) {
+		this.className = internalName(className);
+		this.interfaceName = internalName(type.getName());
+		this.delegateDescriptor = descriptor(type);
+	}
+
+	/**
+	 * @param methods the methods to delegate, with distinct names and
+	 *        descriptors
+	 */
+	byte[] write(Collection<Method> methods) {
+		try {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(body);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(classRef(className));
+			out.writeShort(classRef(OBJECT));
+			out.writeShort(1);
+			out.writeShort(classRef(interfaceName));
+			out.writeShort(1);
+			out.writeShort(ACC_PRIVATE | ACC_FINAL);
+			out.writeShort(utf8(DELEGATE));
+			out.writeShort(utf8(delegateDescriptor));
+			out.writeShort(0);
+			out.writeShort(methods.size() + 1);
+			writeConstructor(out);
+			for (Method method : methods) {
+				writeMethod(out, method);
+			}
+			out.writeShort(0);
+
+			ByteArrayOutputStream classFile = new ByteArrayOutputStream(8 + pool.size() + body.size());
+			DataOutputStream header = new DataOutputStream(classFile);
+			header.writeInt(MAGIC);
+			header.writeShort(0);
+			header.writeShort(JAVA_8);
+			header.writeShort(poolSize);
+			pool.writeTo(classFile);
+			body.writeTo(classFile);
+			return classFile.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeConstructor(DataOutputStream out) throws IOException {
+		ByteArrayOutputStream code = new ByteArrayOutputStream();
+		code.write(ALOAD_0);
+		writeRef(code, INVOKESPECIAL, memberRef(CONSTANT_METHODREF, OBJECT, "<init>", "()V"));
+		code.write(ALOAD_0);
+		code.write(ALOAD_1);
+		writeRef(code, PUTFIELD, delegateField());
+		code.write(RETURN);
+		writeMethodInfo(out, ACC_PUBLIC, "<init>", "(" + delegateDescriptor + ")V", 2, 2, code);
+	}
+
+	private void writeMethod(DataOutputStream out, Method method) throws IOException {
+		ByteArrayOutputStream code = new ByteArrayOutputStream();
+		code.write(ALOAD_0);
+		writeRef(code, GETFIELD, delegateField());
+		int slot = 1;
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			code.write(loadOpcode(parameterType));
+			code.write(slot);
+			slot += slots(parameterType);
+		}
+		String descriptor = descriptor(method);
+		writeRef(code, INVOKEINTERFACE, memberRef(CONSTANT_INTERFACE_METHODREF, interfaceName, method.getName(),
+				descriptor));
+		code.write(slot);
+		code.write(0);
+		code.write(returnOpcode(method.getReturnType()));
+		int access = ACC_PUBLIC | ACC_FINAL | (method.isVarArgs() ? ACC_VARARGS : 0);
+		int maxStack = Math.max(slot, slots(method.getReturnType()));
+		writeMethodInfo(out, access, method.getName(), descriptor, maxStack, slot, code);
+	}
+
+	private void writeMethodInfo(DataOutputStream out, int access, String name, String descriptor, int maxStack,
+			int maxLocals, ByteArrayOutputStream code) throws IOException {
+		out.writeShort(access);
+		out.writeShort(utf8(name));
+		out.writeShort(utf8(descriptor));
+		out.writeShort(1);
+		out.writeShort(utf8("Code"));
+		out.writeInt(12 + code.size());
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.size());
+		code.writeTo(out);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	private static void writeRef(ByteArrayOutputStream code, int opcode, int index) {
+		code.write(opcode);
+		code.write(index >>> 8);
+		code.write(index);
+	}
+
+	private int delegateField() throws IOException {
+		return memberRef(CONSTANT_FIELDREF, className, DELEGATE, delegateDescriptor);
+	}
+
+	private int utf8(String value) throws IOException {
+		Integer index = constants.get("U" + value);
+		if (index == null) {
+			poolOut.writeByte(CONSTANT_UTF8);
+			poolOut.writeUTF(value);
+			index = add("U" + value);
+		}
+		return index;
+	}
+
+	private int classRef(String internalName) throws IOException {
+		Integer index = constants.get("C" + internalName);
+		if (index == null) {
+			int name = utf8(internalName);
+			poolOut.writeByte(CONSTANT_CLASS);
+			poolOut.writeShort(name);
+			index = add("C" + internalName);
+		}
+		return index;
+	}
+
+	private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+		String key = tag + owner + '.' + name + descriptor;
+		Integer index = constants.get(key);
+		if (index == null) {
+			int ownerRef = classRef(owner);
+			int nameAndTypeRef = nameAndType(name, descriptor);
+			poolOut.writeByte(tag);
+			poolOut.writeShort(ownerRef);
+			poolOut.writeShort(nameAndTypeRef);
+			index = add(key);
+		}
+		return index;
+	}
+
+	private int nameAndType(String name, String descriptor) throws IOException {
+		String key = "N" + name + descriptor;
+		Integer index = constants.get(key);
+		if (index == null) {
+			int nameRef = utf8(name);
+			int descriptorRef = utf8(descriptor);
+			poolOut.writeByte(CONSTANT_NAME_AND_TYPE);
+			poolOut.writeShort(nameRef);
+			poolOut.writeShort(descriptorRef);
+			index = add(key);
+		}
+		return index;
+	}
+
+	private int add(String key) {
+		int index = poolSize++;
+		constants.put(key, index);
+		return index;
+	}
+
+	static String descriptor(Method method) {
+		StringBuilder builder = new StringBuilder("(");
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			builder.append(descriptor(parameterType));
+		}
+		return builder.append(')').append(descriptor(method.getReturnType())).toString();
+	}
+
+	private static String descriptor(Class<?> type) {
+		if (type.isArray()) {
+			return internalName(type.getName());
+		}
+		if (!type.isPrimitive()) {
+			return "L" + internalName(type.getName()) + ";";
+		}
+		if (type == void.class) {
+			return "V";
+		} else if (type == boolean.class) {
+			return "Z";
+		} else if (type == byte.class) {
+			return "B";
+		} else if (type == char.class) {
+			return "C";
+		} else if (type == short.class) {
+			return "S";
+		} else if (type == int.class) {
+			return "I";
+		} else if (type == long.class) {
+			return "J";
+		} else if (type == float.class) {
+			return "F";
+		}
+		return "D";
+	}
+
+	private static String internalName(String binaryName) {
+		return binaryName.replace('.', '/');
+	}
+
+	private static int slots(Class<?> type) {
+		if (type == void.class) {
+			return 0;
+		}
+		return type == long.class || type == double.class ? 2 : 1;
+	}
+
+	private static int loadOpcode(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return ALOAD;
+		}
+		if (type == long.class) {
+			return LLOAD;
+		} else if (type == float.class) {
+			return FLOAD;
+		} else if (type == double.class) {
+			return DLOAD;
+		}
+		return ILOAD;
+	}
+
+	private static int returnOpcode(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return ARETURN;
+		}
+		if (type == void.class) {
+			return RETURN;
+		} else if (type == long.class) {
+			return LRETURN;
+		} else if (type == float.class) {
+			return FRETURN;
+		} else if (type == double.class) {
+			return DRETURN;
+		}
+		return IRETURN;
+	}
+}
@@ -0,0 +1,308 @@
+package reegnz.processor.runtime;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of delegates that are not thread-safe, which a generated
+ * {@code Pooled*} class borrows one of for every call.
+ * <p>
+ * Idle delegates are kept in stripes, one slot per processor, and a shared
+ * overflow queue. A thread borrows from and returns to the slot its id hashes
+ * to, so threads mostly find a delegate without contending with each other,
+ * and fall back to the overflow queue when the slot is taken. Nothing is
+ * locked: the slots are swapped with compare-and-set, the overflow is a
+ * lock-free queue and the size of the pool is a counter raised with
+ * compare-and-set up to the maximum. What happens when all delegates are
+ * borrowed is up to the {@link Exhaustion} policy.
+ */
+public final class DelegatePool<T> implements AutoCloseable {
+
+	/**
+	 * What a borrow does when all delegates of a full pool are borrowed.
+	 */
+	public enum Exhaustion {
+		/**
+		 * Fails with a {@link PoolExhaustedException} at once.
+		 */
+		FAIL,
+		/**
+		 * Waits up to the maximum wait for a delegate to be returned, then fails.
+		 */
+		WAIT,
+		/**
+		 * Creates a delegate over the maximum size, which is cleaned up
+		 * instead of pooled when it is returned.
+		 */
+		CREATE
+	}
+
+	/**
+	 * Slots are spread 64 bytes apart, so neighbouring stripes do not share a
+	 * cache line.
+	 */
+	private static final int SPACING = 16;
+
+	private final Supplier<? extends T> factory;
+	private final Consumer<? super T> cleanup;
+	private final int maxSize;
+	private final Exhaustion exhaustion;
+	private final long maxWaitNanos;
+	private final int mask;
+	private final AtomicReferenceArray<T> stripes;
+	private final ConcurrentLinkedQueue<T> overflow = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder waited = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder discarded = new LongAdder();
+	private final AtomicInteger size = new AtomicInteger();
+	private volatile boolean closed;
+
+	/**
+	 * Creates a pool whose borrows wait for a delegate as long as it takes.
+	 */
+	public DelegatePool(Supplier<? extends T> factory, int maxSize) {
+		this(factory, delegate -> {
+		}, maxSize, Exhaustion.WAIT, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param factory creates delegates when none is idle
+	 * @param cleanup releases delegates that are not pooled any more
+	 * @param maxWaitNanos how long borrows wait with {@link Exhaustion#WAIT}
+	 */
+	public DelegatePool(Supplier<? extends T> factory, Consumer<? super T> cleanup, int maxSize,
+			Exhaustion exhaustion, long maxWaitNanos) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("The maximum size must be positive: " + maxSize);
+		}
+		if (maxWaitNanos < 0) {
+			throw new IllegalArgumentException("The maximum wait must not be negative: " + maxWaitNanos);
+		}
+		this.factory = Objects.requireNonNull(factory, "factory");
+		this.cleanup = Objects.requireNonNull(cleanup, "cleanup");
+		this.maxSize = maxSize;
+		this.exhaustion = Objects.requireNonNull(exhaustion, "exhaustion");
+		this.maxWaitNanos = maxWaitNanos;
+		int processors = Math.min(Runtime.getRuntime().availableProcessors(), maxSize);
+		int stripeCount = Integer.highestOneBit(processors * 2 - 1);
+		this.mask = stripeCount - 1;
+		this.stripes = new AtomicReferenceArray<>(stripeCount * SPACING);
+	}
+
+	/**
+	 * @return an idle delegate, or a new one when there is none and the pool
+	 *         is not full
+	 * @throws PoolExhaustedException if the pool is exhausted
+	 * @throws IllegalStateException if the pool is closed
+	 */
+	public T borrow() {
+		T delegate = poll();
+		return delegate != null ? delegate : borrowExhausted();
+	}
+
+	/**
+	 * Returns a borrowed delegate to the pool.
+	 */
+	public void release(T delegate) {
+		if (closed) {
+			size.decrementAndGet();
+			discard(delegate);
+			return;
+		}
+		if (shrink()) {
+			discard(delegate);
+			return;
+		}
+		int slot = slot();
+		if (stripes.get(slot) != null || !stripes.compareAndSet(slot, null, delegate)) {
+			overflow.offer(delegate);
+		}
+		wakeUpWaiter();
+		if (closed) {
+			cleanUpIdle();
+		}
+	}
+
+	private T poll() {
+		int slot = slot();
+		T delegate = stripes.get(slot);
+		if (delegate != null && stripes.compareAndSet(slot, delegate, null)) {
+			return delegate;
+		}
+		return overflow.poll();
+	}
+
+	private T borrowExhausted() {
+		if (closed) {
+			throw new IllegalStateException("The pool is closed");
+		}
+		if (reserve()) {
+			return create();
+		}
+		switch (exhaustion) {
+		case CREATE:
+			size.incrementAndGet();
+			return create();
+		case WAIT:
+			if (maxWaitNanos > 0) {
+				T delegate = await();
+				if (delegate != null) {
+					return delegate;
+				}
+			}
+			throw exhausted();
+		default:
+			throw exhausted();
+		}
+	}
+
+	private PoolExhaustedException exhausted() {
+		rejected.increment();
+		return new PoolExhaustedException("All " + maxSize + " delegates of the pool are borrowed");
+	}
+
+	private T await() {
+		waited.increment();
+		Thread current = Thread.currentThread();
+		long deadline = System.nanoTime() + maxWaitNanos;
+		waiters.add(current);
+		try {
+			for (;;) {
+				if (closed) {
+					throw new IllegalStateException("The pool is closed");
+				}
+				T delegate = poll();
+				if (delegate != null) {
+					return delegate;
+				}
+				if (reserve()) {
+					return create();
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0 || current.isInterrupted()) {
+					return null;
+				}
+				LockSupport.parkNanos(this, remaining);
+			}
+		} finally {
+			waiters.remove(current);
+			wakeUpWaiter();
+		}
+	}
+
+	private void wakeUpWaiter() {
+		Thread waiter = waiters.peek();
+		if (waiter != null) {
+			LockSupport.unpark(waiter);
+		}
+	}
+
+	private boolean reserve() {
+		for (;;) {
+			int current = size.get();
+			if (current >= maxSize) {
+				return false;
+			}
+			if (size.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return whether the pool was over its maximum size, and is one smaller
+	 *         now
+	 */
+	private boolean shrink() {
+		for (;;) {
+			int current = size.get();
+			if (current <= maxSize) {
+				return false;
+			}
+			if (size.compareAndSet(current, current - 1)) {
+				return true;
+			}
+		}
+	}
+
+	private T create() {
+		try {
+			T delegate = Objects.requireNonNull(factory.get(), "The factory of the delegates returned null");
+			created.increment();
+			return delegate;
+		} catch (RuntimeException | Error e) {
+			size.decrementAndGet();
+			wakeUpWaiter();
+			throw e;
+		}
+	}
+
+	private void discard(T delegate) {
+		discarded.increment();
+		cleanup.accept(delegate);
+	}
+
+	private int slot() {
+		long id = Thread.currentThread().getId();
+		return ((int) (id ^ id >>> 32) * 0x9E3779B9 >>> 16 & mask) * SPACING;
+	}
+
+	private int idle() {
+		int idle = overflow.size();
+		for (int i = 0; i <= mask; i++) {
+			if (stripes.get(i * SPACING) != null) {
+				idle++;
+			}
+		}
+		return idle;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public Exhaustion getExhaustion() {
+		return exhaustion;
+	}
+
+	public PoolStats getStats() {
+		return new PoolStats(size.get(), idle(), created.sum(), waited.sum(), rejected.sum(), discarded.sum());
+	}
+
+	/**
+	 * Cleans up the idle delegates and fails later borrows. Borrowed delegates
+	 * are cleaned up when they are returned.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		cleanUpIdle();
+		Thread waiter;
+		while ((waiter = waiters.poll()) != null) {
+			LockSupport.unpark(waiter);
+		}
+	}
+
+	private void cleanUpIdle() {
+		for (int i = 0; i <= mask; i++) {
+			T delegate = stripes.getAndSet(i * SPACING, null);
+			if (delegate != null) {
+				size.decrementAndGet();
+				discard(delegate);
+			}
+		}
+		T delegate;
+		while ((delegate = overflow.poll()) != null) {
+			size.decrementAndGet();
+			discard(delegate);
+		}
+	}
+}
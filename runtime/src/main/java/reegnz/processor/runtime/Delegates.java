@@ -0,0 +1,110 @@
+package reegnz.processor.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Creates delegating implementations of interfaces that can not be annotated
+ * with {@code @VirtualField}, as a faster replacement for
+ * {@link java.lang.reflect.Proxy}.
+ * <p>
+ * The first call for an interface writes a final class like the ones the
+ * processor generates: a final {@code delegate} field and one method per
+ * interface method that calls the same method of the delegate. Every method
+ * of the interface is delegated, including default methods, except for the
+ * methods of {@link Object}. The class is defined in a class loader of its own
+ * below the loader of the interface and cached per interface, later calls only
+ * invoke its constructor. Calls through it are plain interface calls, without
+ * the argument arrays, boxing and reflective dispatch of a proxy.
+ */
+public final class Delegates {
+
+	private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+		@Override
+		protected MethodHandle computeValue(Class<?> type) {
+			return constructor(type);
+		}
+	};
+
+	private Delegates() {
+	}
+
+	/**
+	 * @param type a public interface
+	 * @return an implementation of the interface that passes every call on to
+	 *         the delegate
+	 * @throws IllegalArgumentException if the type is not a public interface
+	 */
+	public static <T> T create(Class<T> type, T delegate) {
+		Objects.requireNonNull(delegate, "delegate");
+		if (!type.isInstance(delegate)) {
+			throw new ClassCastException("The delegate " + delegate.getClass().getName() + " is not a " + type.getName());
+		}
+		try {
+			return type.cast((Object) CONSTRUCTORS.get(type).invokeExact((Object) delegate));
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Failed to create a delegating " + type.getName(), e);
+		}
+	}
+
+	private static MethodHandle constructor(Class<?> type) {
+		if (!type.isInterface() || !Modifier.isPublic(type.getModifiers())) {
+			throw new IllegalArgumentException("Can only delegate public interfaces: " + type.getName());
+		}
+		String className = (type.getName().startsWith("java.") ? Delegates.class.getPackage().getName() + "." : "")
+				+ type.getName() + "$$Delegate";
+		byte[] classFile = new DelegateClassWriter(className, type).write(delegatedMethods(type).values());
+		Class<?> delegateClass = new DelegateClassLoader(type.getClassLoader()).define(className, classFile);
+		try {
+			return MethodHandles.publicLookup()
+					.findConstructor(delegateClass, MethodType.methodType(void.class, type))
+					.asType(FACTORY_TYPE);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to look up the constructor of " + className, e);
+		}
+	}
+
+	/**
+	 * @return the methods to delegate by name and descriptor, so methods
+	 *         inherited on more than one path are only delegated once
+	 */
+	private static Map<String, Method> delegatedMethods(Class<?> type) {
+		Map<String, Method> methods = new LinkedHashMap<>();
+		for (Method method : type.getMethods()) {
+			if (!Modifier.isStatic(method.getModifiers()) && !isObjectMethod(method)) {
+				methods.putIfAbsent(method.getName() + DelegateClassWriter.descriptor(method), method);
+			}
+		}
+		return methods;
+	}
+
+	private static boolean isObjectMethod(Method method) {
+		try {
+			Object.class.getMethod(method.getName(), method.getParameterTypes());
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static final class DelegateClassLoader extends ClassLoader {
+
+		DelegateClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package reegnz.processor.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedges the idempotent calls of a generated {@code Hedged*} class: a call is
+ * passed to the primary delegate, and if the primary has not answered within
+ * the delay of the method, to the backup as well. The first result wins and
+ * the other call is cancelled, which interrupts it.
+ * <p>
+ * Both calls run on the executor, so the caller can return as soon as either
+ * answers. The delay of every method follows a percentile of its recent
+ * latencies, kept in a lock-free {@link LatencyHistogram}: once a window has
+ * passed with enough calls, the percentile replaces the delay and the
+ * histogram starts over. With the 95th percentile about one in twenty calls
+ * is hedged. A call that fails while the other is still running waits for
+ * the other; if both fail, the first failure is rethrown as is, with the
+ * second added as a suppressed exception. As in {@link Broadcast}, checked
+ * exceptions are rethrown without wrapping.
+ */
+public final class Hedging<T> {
+
+	public static final double DEFAULT_PERCENTILE = 95;
+	public static final long DEFAULT_INITIAL_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long MIN_SAMPLES = 32;
+
+	@FunctionalInterface
+	public interface Call<T, R> {
+		R call(T delegate) throws Throwable;
+	}
+
+	private final T primary;
+	private final T backup;
+	private final Executor executor;
+	private final double percentile;
+	private final long windowNanos;
+	private final String[] methods;
+	private final LatencyHistogram[] latencies;
+	private final AtomicLongArray delays;
+	private final AtomicLongArray windowEnds;
+	private final LongAdder[] calls;
+	private final LongAdder[] hedged;
+	private final LongAdder[] backupWins;
+
+	/**
+	 * Hedges at the {@value #DEFAULT_PERCENTILE}th percentile, after 10
+	 * milliseconds until enough calls were timed.
+	 */
+	public Hedging(T primary, T backup, Executor executor, String... methods) {
+		this(primary, backup, executor, DEFAULT_PERCENTILE, DEFAULT_INITIAL_DELAY_NANOS, methods);
+	}
+
+	/**
+	 * @param percentile between 0 and 100, the percentile of the latencies
+	 *        after which a call is hedged
+	 * @param initialDelayNanos the delay until enough calls were timed
+	 * @param methods the names of the hedged methods, the slot of a method is
+	 *        its position
+	 */
+	public Hedging(T primary, T backup, Executor executor, double percentile, long initialDelayNanos,
+			String... methods) {
+		this(primary, backup, executor, percentile, initialDelayNanos, WINDOW_NANOS, methods);
+	}
+
+	Hedging(T primary, T backup, Executor executor, double percentile, long initialDelayNanos, long windowNanos,
+			String... methods) {
+		if (percentile <= 0 || percentile > 100) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 100: " + percentile);
+		}
+		this.primary = Objects.requireNonNull(primary, "primary");
+		this.backup = Objects.requireNonNull(backup, "backup");
+		this.executor = Objects.requireNonNull(executor, "executor");
+		this.percentile = percentile;
+		this.windowNanos = windowNanos;
+		this.methods = methods.clone();
+		this.latencies = new LatencyHistogram[methods.length];
+		this.delays = new AtomicLongArray(methods.length);
+		this.windowEnds = new AtomicLongArray(methods.length);
+		this.calls = new LongAdder[methods.length];
+		this.hedged = new LongAdder[methods.length];
+		this.backupWins = new LongAdder[methods.length];
+		long now = System.nanoTime();
+		for (int i = 0; i < methods.length; i++) {
+			latencies[i] = new LatencyHistogram();
+			delays.set(i, initialDelayNanos);
+			windowEnds.set(i, now + windowNanos);
+			calls[i] = new LongAdder();
+			hedged[i] = new LongAdder();
+			backupWins[i] = new LongAdder();
+		}
+	}
+
+	public <R> R call(int method, Call<? super T, R> call) {
+		calls[method].increment();
+		long start = System.nanoTime();
+		updateDelay(method, start);
+		Race<R> race = new Race<>();
+		if (!race.submitPrimary(call)) {
+			R result = invoke(primary, call);
+			latencies[method].record(System.nanoTime() - start);
+			return result;
+		}
+		try {
+			Future<R> done = race.next(delays.get(method));
+			if (done == null) {
+				if (race.submitBackup(call)) {
+					hedged[method].increment();
+				}
+				done = race.next(-1);
+			}
+			R result;
+			try {
+				result = result(done);
+			} catch (ExecutionException e) {
+				if (race.backupAttempt == null) {
+					throw Hedging.<RuntimeException>sneakyThrow(e.getCause());
+				}
+				Throwable failure = e.getCause();
+				done = race.next(-1);
+				try {
+					result = result(done);
+				} catch (ExecutionException second) {
+					failure.addSuppressed(second.getCause());
+					throw Hedging.<RuntimeException>sneakyThrow(failure);
+				}
+			}
+			if (done == race.backupAttempt) {
+				backupWins[method].increment();
+			}
+			latencies[method].record(System.nanoTime() - start);
+			return result;
+		} finally {
+			race.finish();
+		}
+	}
+
+	/**
+	 * Replaces the delay with the percentile of the latencies once the window
+	 * has passed and enough calls were timed. A single caller wins the update
+	 * of a window.
+	 */
+	private void updateDelay(int method, long now) {
+		long windowEnd = windowEnds.get(method);
+		if (now - windowEnd < 0 || !windowEnds.compareAndSet(method, windowEnd, now + windowNanos)) {
+			return;
+		}
+		long[] counts = latencies[method].copyCounts(false);
+		if (LatencyHistogram.total(counts) >= MIN_SAMPLES) {
+			delays.set(method, LatencyHistogram.percentile(counts, percentile));
+			latencies[method].reset();
+		}
+	}
+
+	/**
+	 * @return the result of a completed attempt, which never waits
+	 */
+	private static <R> R result(Future<R> done) throws ExecutionException {
+		try {
+			return done.get();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException("The attempt has completed", e);
+		}
+	}
+
+	private static <T, R> R invoke(T delegate, Call<? super T, R> call) {
+		try {
+			return call.call(delegate);
+		} catch (Throwable e) {
+			throw Hedging.<RuntimeException>sneakyThrow(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E extends Throwable> E sneakyThrow(Throwable e) throws E {
+		throw (E) e;
+	}
+
+	public T getPrimary() {
+		return primary;
+	}
+
+	public T getBackup() {
+		return backup;
+	}
+
+	public List<HedgingStats> getStats() {
+		List<HedgingStats> stats = new ArrayList<>(methods.length);
+		for (int i = 0; i < methods.length; i++) {
+			stats.add(new HedgingStats(methods[i], calls[i].sum(), hedged[i].sum(), backupWins[i].sum(),
+					delays.get(i)));
+		}
+		return stats;
+	}
+
+	/**
+	 * The attempts of a single call. Waiting for them ignores interrupts until
+	 * the call returns, like {@link Broadcast} does.
+	 */
+	private final class Race<R> {
+
+		private final ExecutorCompletionService<R> completion = new ExecutorCompletionService<>(executor);
+		private Future<R> primaryAttempt;
+		private Future<R> backupAttempt;
+		private boolean interrupted;
+
+		boolean submitPrimary(Call<? super T, R> call) {
+			primaryAttempt = submit(primary, call);
+			return primaryAttempt != null;
+		}
+
+		boolean submitBackup(Call<? super T, R> call) {
+			backupAttempt = submit(backup, call);
+			return backupAttempt != null;
+		}
+
+		private Future<R> submit(T delegate, Call<? super T, R> call) {
+			Callable<R> attempt = () -> invoke(delegate, call);
+			try {
+				return completion.submit(attempt);
+			} catch (RejectedExecutionException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * @return the next completed attempt, or {@code null} if none completed
+		 *         within the timeout, negative to wait without one
+		 */
+		Future<R> next(long timeoutNanos) {
+			long deadline = System.nanoTime() + timeoutNanos;
+			for (;;) {
+				try {
+					return timeoutNanos < 0
+							? completion.take()
+							: completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+
+		void finish() {
+			primaryAttempt.cancel(true);
+			if (backupAttempt != null) {
+				backupAttempt.cancel(true);
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
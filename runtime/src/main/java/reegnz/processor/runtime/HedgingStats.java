@@ -0,0 +1,58 @@
+package reegnz.processor.runtime;
+
+/**
+ * Point in time snapshot of the counters of a single method of a
+ * {@link Hedging}.
+ */
+public final class HedgingStats {
+
+	private final String method;
+	private final long calls;
+	private final long hedgedCalls;
+	private final long backupWins;
+	private final long delayNanos;
+
+	HedgingStats(String method, long calls, long hedgedCalls, long backupWins, long delayNanos) {
+		this.method = method;
+		this.calls = calls;
+		this.hedgedCalls = hedgedCalls;
+		this.backupWins = backupWins;
+		this.delayNanos = delayNanos;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return the number of calls that were passed to the backup as well
+	 */
+	public long getHedgedCalls() {
+		return hedgedCalls;
+	}
+
+	/**
+	 * @return the number of hedged calls the backup answered first
+	 */
+	public long getBackupWins() {
+		return backupWins;
+	}
+
+	/**
+	 * @return how long calls currently wait for the primary before they are
+	 *         hedged
+	 */
+	public long getDelayNanos() {
+		return delayNanos;
+	}
+
+	@Override
+	public String toString() {
+		return method + "[calls=" + calls + ", hedged=" + hedgedCalls + ", backupWins=" + backupWins + ", delay="
+				+ delayNanos + "ns]";
+	}
+}
@@ -0,0 +1,101 @@
+package reegnz.processor.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Counts the calls in flight on the delegate of a generated
+ * {@code Swappable*} class, so a swap can wait until the replaced delegate is
+ * no longer in use.
+ * <p>
+ * Calls are counted in one of two epochs, on a stripe picked by the calling
+ * thread, so concurrent calls rarely write the same cache line. A call enters
+ * the current epoch before it reads the delegate. {@link #drain()} is called
+ * after the delegate was replaced: it moves new calls to the other epoch and
+ * waits for the stripes of the old one to drop to zero. A call counts itself
+ * in the epoch it read and reads the epoch again; if it moved on meanwhile,
+ * a drain may already have passed the stripe, so the call leaves and enters
+ * the new epoch. Every call that might still see the replaced delegate is
+ * counted in the old epoch, so when it is empty the replaced delegate is
+ * idle.
+ */
+public final class InFlightCounter {
+
+	/**
+	 * Longs between two counted slots, so every stripe has a cache line of
+	 * its own.
+	 */
+	private static final int PADDING = 16;
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int stripes;
+	private final AtomicLongArray counts;
+	private volatile int epoch;
+
+	public InFlightCounter() {
+		this(ShardKeys.shardCount(Runtime.getRuntime().availableProcessors() * 2));
+	}
+
+	InFlightCounter(int stripes) {
+		this.stripes = stripes;
+		this.counts = new AtomicLongArray(2 * stripes * PADDING);
+	}
+
+	/**
+	 * @return the token to exit with
+	 */
+	public int enter() {
+		return enter(epoch);
+	}
+
+	/**
+	 * Enters as a call that read the given epoch before it was counted.
+	 */
+	int enter(int observed) {
+		int stripe = ShardKeys.hash(Thread.currentThread().getId()) & (stripes - 1);
+		for (int current = observed;;) {
+			int index = ((current & 1) * stripes + stripe) * PADDING;
+			counts.getAndIncrement(index);
+			int now = epoch;
+			if (now == current) {
+				return index;
+			}
+			counts.getAndDecrement(index);
+			current = now;
+		}
+	}
+
+	int epoch() {
+		return epoch;
+	}
+
+	public void exit(int token) {
+		counts.getAndDecrement(token);
+	}
+
+	/**
+	 * Waits until every call that entered before this method was called has
+	 * exited. Must not be called from within a counted call, that call would
+	 * wait for itself.
+	 */
+	public synchronized void drain() {
+		int old = epoch;
+		epoch = old + 1;
+		int base = (old & 1) * stripes;
+		for (int stripe = 0; stripe < stripes; stripe++) {
+			int index = (base + stripe) * PADDING;
+			for (int spins = 0; counts.get(index) != 0; spins++) {
+				backOff(spins);
+			}
+		}
+	}
+
+	private static void backOff(int spins) {
+		if (spins < 64) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(spins - 64, 10)));
+		}
+	}
+}
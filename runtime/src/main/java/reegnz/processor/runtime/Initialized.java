@@ -0,0 +1,21 @@
+package reegnz.processor.runtime;
+
+/**
+ * Holds the delegate of a generated {@code Lazy*} class once it is created.
+ * <p>
+ * The holder is published through a plain field. Its value is final, so a
+ * thread that sees the holder also sees the fully constructed delegate,
+ * without the generated class reading a volatile field on every call.
+ */
+public final class Initialized<T> {
+
+	private final T value;
+
+	public Initialized(T value) {
+		this.value = value;
+	}
+
+	public T get() {
+		return value;
+	}
+}
@@ -0,0 +1,106 @@
+package reegnz.processor.runtime;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free log-linear histogram of non-negative latencies.
+ * <p>
+ * Every power of two range is split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, so a recorded value is off by at most 12.5% of its magnitude,
+ * while the whole positive {@code long} range fits into {@value #BUCKETS}
+ * counters. Values below {@value #SUB_BUCKETS} are recorded exactly.
+ * <p>
+ * Every bucket is a striped {@link LongAdder}, so threads recording the same
+ * latency do not contend on a single counter. Recording only allocates when a
+ * bucket sees contention for the first time.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	public void record(long value) {
+		counts[bucketIndex(value)].increment();
+	}
+
+	/**
+	 * Copies the bucket counts, optionally resetting every bucket after it was
+	 * read. Resetting is not atomic, a value recorded into a bucket while it is
+	 * being reset may be lost.
+	 */
+	long[] copyCounts(boolean reset) {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = reset ? counts[i].sumThenReset() : counts[i].sum();
+		}
+		return copy;
+	}
+
+	/**
+	 * Resets every bucket, values recorded while it runs may be lost.
+	 */
+	void reset() {
+		for (LongAdder count : counts) {
+			count.reset();
+		}
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the value that the given percentage of the counted values did
+	 *         not exceed, rounded up to its bucket, or 0 without values
+	 */
+	static long percentile(long[] counts, double percentile) {
+		long total = total(counts);
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return bucketUpperBound(i);
+			}
+		}
+		return bucketUpperBound(counts.length - 1);
+	}
+
+	static long total(long[] counts) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return value < 0 ? 0 : (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the largest value that is recorded into the bucket
+	 */
+	static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+}
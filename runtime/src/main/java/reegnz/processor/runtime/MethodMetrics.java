@@ -0,0 +1,78 @@
+package reegnz.processor.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts, error counts and latency histograms of the methods of an
+ * interface, one slot per method. Recording is lock-free and does not
+ * allocate, so it can stay enabled on hot paths.
+ */
+public final class MethodMetrics {
+
+	private final String[] methods;
+	private final LongAdder[] calls;
+	private final LongAdder[] errors;
+	private final LongAdder[] totalNanos;
+	private final LatencyHistogram[] latencies;
+
+	/**
+	 * @param methods the names of the methods, the slot of a method is its
+	 *            position
+	 */
+	public MethodMetrics(String... methods) {
+		this.methods = methods.clone();
+		this.calls = new LongAdder[methods.length];
+		this.errors = new LongAdder[methods.length];
+		this.totalNanos = new LongAdder[methods.length];
+		this.latencies = new LatencyHistogram[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			calls[i] = new LongAdder();
+			errors[i] = new LongAdder();
+			totalNanos[i] = new LongAdder();
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Records a completed call, whether it completed normally or not.
+	 */
+	public void record(int method, long nanos) {
+		calls[method].increment();
+		totalNanos[method].add(nanos);
+		latencies[method].record(nanos);
+	}
+
+	/**
+	 * Records that a call completed by throwing.
+	 */
+	public void error(int method) {
+		errors[method].increment();
+	}
+
+	public List<MethodSnapshot> snapshot() {
+		return snapshot(false);
+	}
+
+	/**
+	 * Takes a snapshot and resets every counter it read, so consecutive
+	 * snapshots cover disjoint intervals. Calls that complete while the
+	 * snapshot is taken may be counted only partially.
+	 */
+	public List<MethodSnapshot> snapshotAndReset() {
+		return snapshot(true);
+	}
+
+	private List<MethodSnapshot> snapshot(boolean reset) {
+		List<MethodSnapshot> snapshots = new ArrayList<>(methods.length);
+		for (int i = 0; i < methods.length; i++) {
+			snapshots.add(new MethodSnapshot(methods[i],
+					reset ? calls[i].sumThenReset() : calls[i].sum(),
+					reset ? errors[i].sumThenReset() : errors[i].sum(),
+					reset ? totalNanos[i].sumThenReset() : totalNanos[i].sum(),
+					latencies[i].copyCounts(reset)));
+		}
+		return snapshots;
+	}
+}
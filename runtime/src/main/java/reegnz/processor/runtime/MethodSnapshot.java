@@ -0,0 +1,61 @@
+package reegnz.processor.runtime;
+
+/**
+ * Point in time snapshot of the metrics of a single method, taken by
+ * {@link MethodMetrics}.
+ */
+public final class MethodSnapshot {
+
+	private final String method;
+	private final long calls;
+	private final long errors;
+	private final long totalNanos;
+	private final long[] latencyCounts;
+
+	MethodSnapshot(String method, long calls, long errors, long totalNanos, long[] latencyCounts) {
+		this.method = method;
+		this.calls = calls;
+		this.errors = errors;
+		this.totalNanos = totalNanos;
+		this.latencyCounts = latencyCounts;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public double getMeanNanos() {
+		return calls == 0 ? 0 : (double) totalNanos / calls;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the latency that the given percentage of calls did not exceed,
+	 *         rounded up to the bucket of the histogram, or 0 without calls
+	 */
+	public long getPercentileNanos(double percentile) {
+		return LatencyHistogram.percentile(latencyCounts, percentile);
+	}
+
+	public long getMaxNanos() {
+		return getPercentileNanos(100);
+	}
+
+	@Override
+	public String toString() {
+		return method + "[calls=" + calls + ", errors=" + errors + ", mean=" + getMeanNanos() + "ns, p50="
+				+ getPercentileNanos(50) + "ns, p99=" + getPercentileNanos(99) + "ns, max=" + getMaxNanos() + "ns]";
+	}
+}
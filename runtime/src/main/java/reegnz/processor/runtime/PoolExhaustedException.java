@@ -0,0 +1,14 @@
+package reegnz.processor.runtime;
+
+/**
+ * Thrown by a {@link DelegatePool} for borrows that found all delegates
+ * borrowed, and did not get one returned within the maximum wait.
+ */
+public class PoolExhaustedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public PoolExhaustedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,66 @@
+package reegnz.processor.runtime;
+
+/**
+ * Point in time snapshot of the counters of a {@link DelegatePool}.
+ */
+public final class PoolStats {
+
+	private final int size;
+	private final int idle;
+	private final long createdCount;
+	private final long waitCount;
+	private final long rejectedCount;
+	private final long discardedCount;
+
+	PoolStats(int size, int idle, long createdCount, long waitCount, long rejectedCount, long discardedCount) {
+		this.size = size;
+		this.idle = idle;
+		this.createdCount = createdCount;
+		this.waitCount = waitCount;
+		this.rejectedCount = rejectedCount;
+		this.discardedCount = discardedCount;
+	}
+
+	/**
+	 * @return the number of delegates, idle or borrowed
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public int getIdle() {
+		return idle;
+	}
+
+	public int getBorrowed() {
+		return Math.max(size - idle, 0);
+	}
+
+	public long getCreatedCount() {
+		return createdCount;
+	}
+
+	/**
+	 * @return the number of borrows that found the pool exhausted and waited
+	 */
+	public long getWaitCount() {
+		return waitCount;
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * @return the number of delegates cleaned up instead of pooled
+	 */
+	public long getDiscardedCount() {
+		return discardedCount;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStats[size=" + size + ", idle=" + idle + ", created=" + createdCount + ", waits=" + waitCount
+				+ ", rejections=" + rejectedCount + ", discards=" + discardedCount + "]";
+	}
+}
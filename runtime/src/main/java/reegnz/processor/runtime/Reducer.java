@@ -0,0 +1,63 @@
+package reegnz.processor.runtime;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Combines the results of a method called on every delegate of a generated
+ * {@code Composite*} class into the single result the method returns.
+ * <p>
+ * The result of the first delegate is passed to {@link #start}, the results
+ * of the others are folded into it with {@link #reduce}, in delegate order.
+ *
+ * @param <T> the (boxed) return type of the method
+ */
+@FunctionalInterface
+public interface Reducer<T> {
+
+	/**
+	 * @return the result of the first delegate, or a container to collect into
+	 */
+	default T start(T first) {
+		return first;
+	}
+
+	T reduce(T result, T next);
+
+	/**
+	 * @return a reducer that returns the result of the first delegate
+	 */
+	static <T> Reducer<T> first() {
+		return (result, next) -> result;
+	}
+
+	/**
+	 * @return a reducer that returns the result of the last delegate
+	 */
+	static <T> Reducer<T> last() {
+		return (result, next) -> next;
+	}
+
+	/**
+	 * @return a reducer that adds the elements of all results to a single
+	 *         collection created by the factory, null results are skipped
+	 */
+	static <E, C extends Collection<E>> Reducer<C> collecting(Supplier<? extends C> factory) {
+		return new Reducer<C>() {
+
+			@Override
+			public C start(C first) {
+				C result = factory.get();
+				return reduce(result, first);
+			}
+
+			@Override
+			public C reduce(C result, C next) {
+				if (next != null) {
+					result.addAll(next);
+				}
+				return result;
+			}
+		};
+	}
+}
@@ -0,0 +1,98 @@
+package reegnz.processor.runtime;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The replicas of a generated {@code Replicated*} class, which picks the
+ * replica of every read.
+ * <p>
+ * Round-robin routing takes the replicas in turn from a shared counter.
+ * Least-loaded routing counts the calls in flight on every replica, each
+ * counter on a cache line of its own, and picks the replica with the fewest.
+ * The scan starts at the next replica in turn, so ties are spread evenly.
+ * The counts are only kept for least-loaded routing.
+ *
+ * @param <T> the type of the replicas
+ */
+public final class ReplicaPool<T> {
+
+	public enum Routing {
+		ROUND_ROBIN, LEAST_LOADED
+	}
+
+	/**
+	 * Longs between two counters, so every counter has a cache line of its
+	 * own.
+	 */
+	private static final int PADDING = 16;
+
+	private final Object[] replicas;
+	private final Routing routing;
+	private final AtomicInteger next = new AtomicInteger();
+	private final AtomicLongArray inFlight;
+
+	public ReplicaPool(List<? extends T> replicas, Routing routing) {
+		if (replicas.isEmpty()) {
+			throw new IllegalArgumentException("A pool needs at least one replica");
+		}
+		this.replicas = replicas.toArray();
+		this.routing = routing;
+		this.inFlight = routing == Routing.LEAST_LOADED ? new AtomicLongArray(this.replicas.length * PADDING) : null;
+	}
+
+	/**
+	 * Picks the replica of a call, which must be released when it returns.
+	 *
+	 * @return the index of the replica
+	 */
+	public int acquire() {
+		int start = (next.getAndIncrement() & Integer.MAX_VALUE) % replicas.length;
+		if (inFlight == null) {
+			return start;
+		}
+		int least = start;
+		long leastCount = inFlight.get(start * PADDING);
+		for (int i = 1; i < replicas.length && leastCount > 0; i++) {
+			int index = (start + i) % replicas.length;
+			long count = inFlight.get(index * PADDING);
+			if (count < leastCount) {
+				least = index;
+				leastCount = count;
+			}
+		}
+		inFlight.getAndIncrement(least * PADDING);
+		return least;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int replica) {
+		return (T) replicas[replica];
+	}
+
+	public void release(int replica) {
+		if (inFlight != null) {
+			inFlight.getAndDecrement(replica * PADDING);
+		}
+	}
+
+	public Routing getRouting() {
+		return routing;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<T> getReplicas() {
+		return (List<T>) Collections.unmodifiableList(Arrays.asList(replicas));
+	}
+
+	/**
+	 * @return the number of calls in flight on the replica, always {@code 0}
+	 *         for round-robin routing
+	 */
+	public long getInFlight(int replica) {
+		return inFlight == null ? 0 : inFlight.get(replica * PADDING);
+	}
+}
@@ -0,0 +1,55 @@
+package reegnz.processor.runtime;
+
+/**
+ * Hashes the shard keys of the generated {@code Sharded*} classes. There is
+ * an overload for every primitive type, so primitive keys are never boxed.
+ * The hashes are spread so that their low bits, which select the shard, depend
+ * on all bits of the key.
+ */
+public final class ShardKeys {
+
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+	private ShardKeys() {
+	}
+
+	/**
+	 * @return the smallest power of two that is not less than the count, at
+	 *         least one
+	 */
+	public static int shardCount(int count) {
+		if (count > 1 << 30) {
+			throw new IllegalArgumentException("Too many shards: " + count);
+		}
+		return count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+	}
+
+	public static int hash(int key) {
+		int h = key * GOLDEN_RATIO;
+		return h ^ (h >>> 16);
+	}
+
+	public static int hash(long key) {
+		return hash((int) (key ^ (key >>> 32)));
+	}
+
+	public static int hash(float key) {
+		return hash(Float.floatToIntBits(key));
+	}
+
+	public static int hash(double key) {
+		return hash(Double.doubleToLongBits(key));
+	}
+
+	public static int hash(boolean key) {
+		return hash(key ? 1 : 0);
+	}
+
+	/**
+	 * @return the spread hash code of the key, {@code null} keys go to the
+	 *         same shard as zero
+	 */
+	public static int hash(Object key) {
+		return hash(key == null ? 0 : key.hashCode());
+	}
+}
@@ -0,0 +1,242 @@
+package reegnz.processor.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Gives every thread a delegate of its own, created by a factory on the
+ * first call of the thread, so delegates that are not thread-safe can be
+ * shared without locking.
+ * <p>
+ * Delegates are kept in a fixed number of slots, each owned by a thread
+ * through a weak reference. A thread finds its delegate in the slot its id
+ * hashes to, or in one of the few slots after it, so the lookup is a read of
+ * an array and no per-thread map is kept, which short-lived virtual threads
+ * would fill up. A slot whose thread died is taken over by the next thread
+ * that probes it, and the delegates of threads that were garbage collected
+ * are cleaned up from a {@link ReferenceQueue} when the next delegate is
+ * created, so nothing is scanned. A thread that finds all of its slots taken
+ * by live threads gets a new delegate for every call, which is never cleaned
+ * up; {@link #getOverflowCount()} counts them, size the slots for the threads
+ * that call at the same time. {@link #close()} cleans up all delegates.
+ */
+public final class ThreadConfined<T> implements AutoCloseable {
+
+	/**
+	 * Slots a thread looks at, from the one its id hashes to.
+	 */
+	private static final int PROBES = 8;
+
+	private final Supplier<? extends T> factory;
+	private final Consumer<? super T> cleanup;
+	private final int mask;
+	private final int probes;
+	private final AtomicReferenceArray<Owned<T>> slots;
+	private final ReferenceQueue<Thread> collected = new ReferenceQueue<>();
+	private final LongAdder overflow = new LongAdder();
+	private volatile boolean closed;
+
+	/**
+	 * @param factory creates the delegate of every thread on its first call
+	 */
+	public ThreadConfined(Supplier<? extends T> factory) {
+		this(factory, delegate -> {
+		});
+	}
+
+	/**
+	 * @param factory creates the delegate of every thread on its first call
+	 * @param cleanup releases a delegate that is no longer used
+	 */
+	public ThreadConfined(Supplier<? extends T> factory, Consumer<? super T> cleanup) {
+		this(factory, cleanup, Math.max(256, 8 * Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * @param factory creates the delegate of every thread on its first call
+	 * @param cleanup releases a delegate that is no longer used
+	 * @param maxDelegates the number of threads that can keep a delegate at
+	 *        the same time, rounded up to a power of two
+	 */
+	public ThreadConfined(Supplier<? extends T> factory, Consumer<? super T> cleanup, int maxDelegates) {
+		if (maxDelegates <= 0) {
+			throw new IllegalArgumentException("The maximum number of delegates must be positive: " + maxDelegates);
+		}
+		this.factory = Objects.requireNonNull(factory, "factory");
+		this.cleanup = Objects.requireNonNull(cleanup, "cleanup");
+		int capacity = ShardKeys.shardCount(maxDelegates);
+		this.mask = capacity - 1;
+		this.probes = Math.min(PROBES, capacity);
+		this.slots = new AtomicReferenceArray<>(capacity);
+	}
+
+	/**
+	 * @return the delegate of the calling thread
+	 * @throws IllegalStateException if closed
+	 */
+	public T get() {
+		Thread thread = Thread.currentThread();
+		int slot = ShardKeys.hash(thread.getId()) & mask;
+		Owned<T> owned = slots.get(slot);
+		if (owned != null && owned.get() == thread && !closed) {
+			return owned.delegate;
+		}
+		return find(thread, slot);
+	}
+
+	/**
+	 * Cleans up the delegate of the calling thread, for example before a
+	 * pooled thread goes back to its pool. The next call creates a new one.
+	 */
+	public void release() {
+		Thread thread = Thread.currentThread();
+		int start = ShardKeys.hash(thread.getId()) & mask;
+		for (int probe = 0; probe < probes; probe++) {
+			Owned<T> owned = slots.get(start + probe & mask);
+			if (owned != null && owned.get() == thread) {
+				cleanUp(owned);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of delegates that have not been cleaned up
+	 */
+	public int getDelegateCount() {
+		int count = 0;
+		for (int i = 0; i <= mask; i++) {
+			if (slots.get(i) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of delegates created for a single call because the
+	 *         slots of the calling thread were taken
+	 */
+	public long getOverflowCount() {
+		return overflow.sum();
+	}
+
+	public int getMaxDelegates() {
+		return mask + 1;
+	}
+
+	/**
+	 * Cleans up the delegates of all threads. Later calls fail.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		RuntimeException failure = null;
+		for (int i = 0; i <= mask; i++) {
+			Owned<T> owned = slots.get(i);
+			if (owned == null) {
+				continue;
+			}
+			try {
+				cleanUp(owned);
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Looks for the delegate of the thread in the slots after the one its id
+	 * hashes to, and otherwise takes the first of them that is free or owned
+	 * by a dead thread.
+	 */
+	private T find(Thread thread, int start) {
+		for (;;) {
+			if (closed) {
+				throw closedException();
+			}
+			expungeCollected();
+			int free = -1;
+			Owned<T> replaced = null;
+			for (int probe = 0; probe < probes; probe++) {
+				int slot = start + probe & mask;
+				Owned<T> owned = slots.get(slot);
+				Thread owner = owned != null ? owned.get() : null;
+				if (owner == thread) {
+					return owned.delegate;
+				}
+				if (free < 0 && (owner == null || !owner.isAlive())) {
+					free = slot;
+					replaced = owned;
+				}
+			}
+			if (free < 0) {
+				overflow.increment();
+				return newDelegate();
+			}
+			Owned<T> owned = new Owned<>(thread, newDelegate(), free, collected);
+			if (!slots.compareAndSet(free, replaced, owned)) {
+				cleanup.accept(owned.delegate);
+				continue;
+			}
+			if (replaced != null) {
+				cleanup.accept(replaced.delegate);
+			}
+			if (closed) {
+				cleanUp(owned);
+				throw closedException();
+			}
+			return owned.delegate;
+		}
+	}
+
+	private T newDelegate() {
+		return Objects.requireNonNull(factory.get(), "The factory of the delegates returned null");
+	}
+
+	@SuppressWarnings("unchecked")
+	private void expungeCollected() {
+		Owned<T> owned;
+		while ((owned = (Owned<T>) collected.poll()) != null) {
+			cleanUp(owned);
+		}
+	}
+
+	/**
+	 * Only the caller that empties the slot of the delegate cleans it up, so
+	 * it is cleaned up once even when closing races with its thread.
+	 */
+	private void cleanUp(Owned<T> owned) {
+		if (slots.compareAndSet(owned.slot, owned, null)) {
+			cleanup.accept(owned.delegate);
+		}
+	}
+
+	private static IllegalStateException closedException() {
+		return new IllegalStateException("The thread-confined delegates are closed");
+	}
+
+	private static final class Owned<T> extends WeakReference<Thread> {
+
+		final T delegate;
+		final int slot;
+
+		Owned(Thread thread, T delegate, int slot, ReferenceQueue<Thread> queue) {
+			super(thread, queue);
+			this.delegate = delegate;
+			this.slot = slot;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package reegnz.processor.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The interfaces the processor generated {@code Virtual*} types for, read
+ * from the index it writes with the {@code -Aindex} option, so frameworks can
+ * find and wire them without scanning the classpath.
+ * <p>
+ * Every line of the index names an annotated interface, its generated type
+ * and the accessor of the delegate, by their binary names. The indexes of all
+ * jars are read on first use; when an interface is listed more than once the
+ * first entry in class path order wins. Entries only hold names, the classes
+ * are not loaded until asked for.
+ */
+public final class VirtualFieldIndex {
+
+	public static final String RESOURCE = "META-INF/virtual-fields.index";
+
+	/**
+	 * An annotated interface and its generated type.
+	 */
+	public static final class Entry {
+
+		private final String interfaceName;
+		private final String virtualTypeName;
+		private final String accessorName;
+		private final ClassLoader classLoader;
+
+		Entry(String interfaceName, String virtualTypeName, String accessorName, ClassLoader classLoader) {
+			this.interfaceName = interfaceName;
+			this.virtualTypeName = virtualTypeName;
+			this.accessorName = accessorName;
+			this.classLoader = classLoader;
+		}
+
+		public String getInterfaceName() {
+			return interfaceName;
+		}
+
+		public String getVirtualTypeName() {
+			return virtualTypeName;
+		}
+
+		/**
+		 * @return the name of the method of the generated type that returns
+		 *         the delegate
+		 */
+		public String getAccessorName() {
+			return accessorName;
+		}
+
+		public Class<?> loadInterface() throws ClassNotFoundException {
+			return Class.forName(interfaceName, false, classLoader);
+		}
+
+		public Class<?> loadVirtualType() throws ClassNotFoundException {
+			return Class.forName(virtualTypeName, false, classLoader);
+		}
+
+		@Override
+		public String toString() {
+			return interfaceName + " " + virtualTypeName + " " + accessorName;
+		}
+	}
+
+	private final ClassLoader classLoader;
+	private volatile Map<String, Entry> entries;
+
+	private VirtualFieldIndex(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * @return the index of the class loader, which is read on first use
+	 */
+	public static VirtualFieldIndex load(ClassLoader classLoader) {
+		return new VirtualFieldIndex(Objects.requireNonNull(classLoader, "classLoader"));
+	}
+
+	public Collection<Entry> getEntries() {
+		return entries().values();
+	}
+
+	/**
+	 * @return the entry of the interface or {@code null} if it is not indexed
+	 */
+	public Entry find(String interfaceName) {
+		return entries().get(interfaceName);
+	}
+
+	public Entry find(Class<?> type) {
+		return find(type.getName());
+	}
+
+	private Map<String, Entry> entries() {
+		Map<String, Entry> result = entries;
+		if (result == null) {
+			synchronized (this) {
+				result = entries;
+				if (result == null) {
+					result = Collections.unmodifiableMap(read());
+					entries = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private Map<String, Entry> read() {
+		Map<String, Entry> result = new LinkedHashMap<>();
+		try {
+			Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+			while (resources.hasMoreElements()) {
+				read(resources.nextElement(), result);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return result;
+	}
+
+	private void read(URL resource, Map<String, Entry> result) throws IOException {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+			String line;
+			for (int number = 1; (line = reader.readLine()) != null; number++) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] names = line.split("\\s+");
+				if (names.length != 3) {
+					throw new IllegalStateException("Malformed line " + number + " of " + resource + ": " + line);
+				}
+				result.putIfAbsent(names[0], new Entry(names[0], names[1], names[2], classLoader));
+			}
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package reegnz.processor.runtime;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues the void calls of a generated {@code WriteBehind*} class and runs
+ * them on a consumer thread of its own, so callers do not wait for the
+ * delegate.
+ * <p>
+ * The queue is a ring of preallocated slots that any number of threads write
+ * to and one thread reads. A caller claims a slot by raising the tail with
+ * compare-and-set, writes the index of the method and its arguments into it,
+ * primitives into a {@code long[]} and references into an {@code Object[]},
+ * and publishes it with an ordered write of its sequence. Calls with only
+ * primitive arguments are queued without allocating. The consumer runs the
+ * published slots in order and waits for more with the {@link WaitStrategy};
+ * callers that find the ring full follow the {@link Overflow} strategy.
+ */
+public final class WriteBehindQueue implements AutoCloseable {
+
+	/**
+	 * Returned by {@link #claim(int)} when the call was not queued.
+	 */
+	public static final long REJECTED = -1;
+
+	/**
+	 * Returned by {@link #claim(int)} when the caller has to run the call
+	 * itself.
+	 */
+	public static final long RUN_ON_CALLER = -2;
+
+	/**
+	 * Runs a queued call on the delegate, decoding its arguments.
+	 */
+	@FunctionalInterface
+	public interface Dispatcher {
+		void dispatch(int method, Arguments arguments) throws Throwable;
+	}
+
+	/**
+	 * How the consumer waits for calls when the ring is empty.
+	 */
+	public enum WaitStrategy {
+		/**
+		 * Checks for calls in a loop, for the lowest latency at the cost of a
+		 * processor.
+		 */
+		BUSY_SPIN,
+		/**
+		 * Yields the processor between checks.
+		 */
+		YIELDING,
+		/**
+		 * Spins, then yields, then parks for up to a millisecond between checks.
+		 */
+		SLEEPING
+	}
+
+	/**
+	 * What a caller does when the ring is full.
+	 */
+	public enum Overflow {
+		/**
+		 * Waits for the consumer to make room.
+		 */
+		BLOCK,
+		/**
+		 * Drops the call and counts it.
+		 */
+		DROP,
+		/**
+		 * Runs the call on the calling thread, ahead of the queued ones.
+		 */
+		CALLER_RUNS
+	}
+
+	/**
+	 * The arguments of the call the consumer runs, valid during the dispatch.
+	 */
+	public final class Arguments {
+
+		private int primitive;
+		private int reference;
+
+		public boolean getBoolean(int index) {
+			return primitives[primitive + index] != 0;
+		}
+
+		public byte getByte(int index) {
+			return (byte) primitives[primitive + index];
+		}
+
+		public char getChar(int index) {
+			return (char) primitives[primitive + index];
+		}
+
+		public short getShort(int index) {
+			return (short) primitives[primitive + index];
+		}
+
+		public int getInt(int index) {
+			return (int) primitives[primitive + index];
+		}
+
+		public long getLong(int index) {
+			return primitives[primitive + index];
+		}
+
+		public float getFloat(int index) {
+			return Float.intBitsToFloat((int) primitives[primitive + index]);
+		}
+
+		public double getDouble(int index) {
+			return Double.longBitsToDouble(primitives[primitive + index]);
+		}
+
+		public Object getReference(int index) {
+			return references[reference + index];
+		}
+	}
+
+	/**
+	 * The cursors are spread 128 bytes apart, so callers raising the tail do
+	 * not invalidate the line of the head the consumer raises.
+	 */
+	private static final int TAIL = 15;
+	private static final int HEAD = 31;
+	private static final int SPINS = 100;
+	private static final int YIELDS = 100;
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final String name;
+	private final int mask;
+	private final int primitiveCount;
+	private final int referenceCount;
+	private final int[] methods;
+	private final long[] primitives;
+	private final Object[] references;
+	private final AtomicLongArray published;
+	private final AtomicLongArray cursors = new AtomicLongArray(HEAD + 16);
+	private final WaitStrategy waitStrategy;
+	private final Overflow overflow;
+	private final Dispatcher dispatcher;
+	private final Arguments arguments = new Arguments();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final Thread consumer;
+	private volatile boolean closed;
+	private volatile Error stoppedBy;
+
+	/**
+	 * Starts the consumer thread.
+	 *
+	 * @param name the name of the queued calls, used in the name of the
+	 *        consumer thread
+	 * @param capacity the number of calls the ring holds, rounded up to a
+	 *        power of two
+	 * @param primitiveCount the most primitive arguments of a queued call
+	 * @param referenceCount the most reference arguments of a queued call
+	 */
+	public WriteBehindQueue(String name, int capacity, int primitiveCount, int referenceCount,
+			WaitStrategy waitStrategy, Overflow overflow, Dispatcher dispatcher) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("The capacity must be between 1 and 2^30: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity * 2 - 1);
+		this.name = name;
+		this.mask = size - 1;
+		this.primitiveCount = primitiveCount;
+		this.referenceCount = referenceCount;
+		this.methods = new int[size];
+		this.primitives = new long[size * primitiveCount];
+		this.references = new Object[size * referenceCount];
+		this.published = new AtomicLongArray(size);
+		this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+		this.overflow = Objects.requireNonNull(overflow, "overflow");
+		this.dispatcher = Objects.requireNonNull(dispatcher, "dispatcher");
+		this.consumer = new Thread(this::consume, "write-behind-" + name);
+		this.consumer.setDaemon(true);
+		this.consumer.start();
+	}
+
+	/**
+	 * Claims the slot of a call, which the caller fills with the put methods
+	 * and then publishes.
+	 *
+	 * @return the sequence of the slot, or {@link #REJECTED} or
+	 *         {@link #RUN_ON_CALLER} when the call was not queued
+	 * @throws IllegalStateException if the queue is closed
+	 */
+	public long claim(int method) {
+		int waits = 0;
+		for (;;) {
+			if (closed) {
+				throw new IllegalStateException("The write-behind queue of " + name + " is closed", stoppedBy);
+			}
+			long tail = cursors.get(TAIL);
+			if (tail - cursors.get(HEAD) > mask) {
+				switch (overflow) {
+				case DROP:
+					dropped.increment();
+					return REJECTED;
+				case CALLER_RUNS:
+					return RUN_ON_CALLER;
+				default:
+					waits = backOff(waits);
+					continue;
+				}
+			}
+			if (cursors.compareAndSet(TAIL, tail, tail + 1)) {
+				methods[(int) tail & mask] = method;
+				return tail;
+			}
+		}
+	}
+
+	public void putBoolean(long sequence, int index, boolean value) {
+		putLong(sequence, index, value ? 1 : 0);
+	}
+
+	public void putByte(long sequence, int index, byte value) {
+		putLong(sequence, index, value);
+	}
+
+	public void putChar(long sequence, int index, char value) {
+		putLong(sequence, index, value);
+	}
+
+	public void putShort(long sequence, int index, short value) {
+		putLong(sequence, index, value);
+	}
+
+	public void putInt(long sequence, int index, int value) {
+		putLong(sequence, index, value);
+	}
+
+	public void putLong(long sequence, int index, long value) {
+		primitives[((int) sequence & mask) * primitiveCount + index] = value;
+	}
+
+	public void putFloat(long sequence, int index, float value) {
+		putLong(sequence, index, Float.floatToRawIntBits(value));
+	}
+
+	public void putDouble(long sequence, int index, double value) {
+		putLong(sequence, index, Double.doubleToRawLongBits(value));
+	}
+
+	public void putReference(long sequence, int index, Object value) {
+		references[((int) sequence & mask) * referenceCount + index] = value;
+	}
+
+	/**
+	 * Hands the filled slot over to the consumer.
+	 */
+	public void publish(long sequence) {
+		published.lazySet((int) sequence & mask, sequence + 1);
+	}
+
+	private void consume() {
+		long head = cursors.get(HEAD);
+		int waits = 0;
+		for (;;) {
+			int slot = (int) head & mask;
+			if (published.get(slot) == head + 1) {
+				dispatch(slot);
+				cursors.lazySet(HEAD, ++head);
+				waits = 0;
+			} else if (closed && head == cursors.get(TAIL)) {
+				return;
+			} else {
+				waits = await(waits);
+			}
+		}
+	}
+
+	/**
+	 * Failed calls are passed to the uncaught exception handler of the
+	 * consumer thread. An {@link Error} also stops the consumer, closing the
+	 * queue.
+	 */
+	private void dispatch(int slot) {
+		arguments.primitive = slot * primitiveCount;
+		arguments.reference = slot * referenceCount;
+		try {
+			dispatcher.dispatch(methods[slot], arguments);
+		} catch (Error e) {
+			failed.increment();
+			stoppedBy = e;
+			closed = true;
+			throw e;
+		} catch (Throwable e) {
+			failed.increment();
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		} finally {
+			for (int i = slot * referenceCount, end = i + referenceCount; i < end; i++) {
+				references[i] = null;
+			}
+		}
+	}
+
+	private int await(int waits) {
+		switch (waitStrategy) {
+		case BUSY_SPIN:
+			return waits;
+		case YIELDING:
+			Thread.yield();
+			return waits;
+		default:
+			return backOff(waits);
+		}
+	}
+
+	private static int backOff(int waits) {
+		if (waits < SPINS) {
+			return waits + 1;
+		}
+		if (waits < SPINS + YIELDS) {
+			Thread.yield();
+			return waits + 1;
+		}
+		int parks = waits - SPINS - YIELDS;
+		LockSupport.parkNanos(Math.min(1L << parks, MAX_PARK_NANOS));
+		return parks < 20 ? waits + 1 : waits;
+	}
+
+	/**
+	 * Waits until the calls queued before run.
+	 */
+	public void flush() {
+		long tail = cursors.get(TAIL);
+		for (int waits = 0; cursors.get(HEAD) < tail && consumer.isAlive();) {
+			waits = backOff(waits);
+		}
+	}
+
+	/**
+	 * @return the number of calls waiting to run
+	 */
+	public int size() {
+		return (int) Math.max(cursors.get(TAIL) - cursors.get(HEAD), 0);
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return the number of calls dropped because the queue was full
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return the number of calls that threw on the consumer thread, which
+	 *         are also passed to its uncaught exception handler
+	 */
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * Runs the queued calls and stops the consumer thread. Later calls fail,
+	 * calls racing with closing may be lost.
+	 * <p>
+	 * If the calling thread is interrupted while waiting for the consumer, it
+	 * returns with its interrupt status set and the consumer runs the rest of
+	 * the queued calls on its own.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			consumer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+public class AsyncExecutorsTest {
+
+	@Test
+	public void shouldShareDefaultExecutor() {
+		assertSame(AsyncExecutors.defaultExecutor(), AsyncExecutors.defaultExecutor());
+	}
+
+	@Test
+	public void shouldRunOffTheCallingThread() {
+		Thread caller = Thread.currentThread();
+		Thread worker = CompletableFuture.supplyAsync(Thread::currentThread, AsyncExecutors.defaultExecutor()).join();
+		assertNotEquals(caller, worker);
+	}
+}
@@ -0,0 +1,145 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BatcherTest {
+
+	private static final long LONG_DELAY = TimeUnit.HOURS.toNanos(1);
+
+	private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(2);
+	private final List<List<Integer>> calls = Collections.synchronizedList(new ArrayList<>());
+
+	@After
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void shouldPassFullBatchesOn() throws Exception {
+		Batcher<Integer, Integer> batcher = new Batcher<>(this::doubled, 2, LONG_DELAY, 10, scheduler);
+		CompletableFuture<Integer> first = batcher.submit(1);
+		CompletableFuture<Integer> second = batcher.submit(2);
+		CompletableFuture<Integer> third = batcher.submit(3);
+		assertEquals(2, (int) first.get(1, TimeUnit.SECONDS));
+		assertEquals(4, (int) second.get(1, TimeUnit.SECONDS));
+		assertFalse(third.isDone());
+		assertEquals(Collections.singletonList(Arrays.asList(1, 2)), calls);
+	}
+
+	@Test
+	public void shouldPassBatchesOnAfterTheMaximumDelay() throws Exception {
+		Batcher<Integer, Integer> batcher = new Batcher<>(this::doubled, 100, TimeUnit.MILLISECONDS.toNanos(10), 100,
+				scheduler);
+		CompletableFuture<Integer> result = batcher.submit(21);
+		assertEquals(42, (int) result.get(1, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList(Collections.singletonList(21)), calls);
+	}
+
+	@Test
+	public void shouldFlushBufferedItems() throws Exception {
+		Batcher<Integer, Void> batcher = new Batcher<>(items -> {
+			calls.add(new ArrayList<>(items));
+			return null;
+		}, 100, LONG_DELAY, 100, scheduler);
+		batcher.add(1);
+		batcher.add(2);
+		batcher.flush().get(1, TimeUnit.SECONDS);
+		assertEquals(Collections.singletonList(Arrays.asList(1, 2)), calls);
+		assertTrue(batcher.flush().isDone());
+	}
+
+	@Test
+	public void shouldFailEveryResultOfAFailedBatch() throws Exception {
+		IOException failure = new IOException("failed");
+		Batcher<Integer, Integer> batcher = new Batcher<>(items -> {
+			throw failure;
+		}, 2, LONG_DELAY, 10, scheduler);
+		for (CompletableFuture<Integer> result : Arrays.asList(batcher.submit(1), batcher.submit(2))) {
+			try {
+				result.get(1, TimeUnit.SECONDS);
+				fail();
+			} catch (ExecutionException e) {
+				assertSame(failure, e.getCause());
+			}
+		}
+	}
+
+	@Test
+	public void shouldFailResultsIfTheirCountDoesNotMatch() throws Exception {
+		Batcher<Integer, Integer> batcher = new Batcher<>(items -> Collections.singletonList(0), 2, LONG_DELAY, 10,
+				scheduler);
+		CompletableFuture<Integer> result = batcher.submit(1);
+		batcher.submit(2);
+		try {
+			result.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void shouldBlockCallersAtCapacity() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Batcher<Integer, Void> batcher = new Batcher<>(items -> {
+			release.await();
+			return null;
+		}, 1, LONG_DELAY, 1, scheduler);
+		batcher.add(1);
+		Thread blocked = new Thread(() -> batcher.add(2));
+		blocked.start();
+		blocked.join(100);
+		assertTrue(blocked.isAlive());
+		release.countDown();
+		blocked.join(1000);
+		assertFalse(blocked.isAlive());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectCapacityBelowMaximumSize() {
+		new Batcher<Integer, Void>(items -> null, 10, LONG_DELAY, 5, scheduler);
+	}
+
+	private List<Integer> doubled(List<Integer> items) {
+		calls.add(new ArrayList<>(items));
+		List<Integer> results = new ArrayList<>(items.size());
+		for (Integer item : items) {
+			results.add(item * 2);
+		}
+		return results;
+	}
+
+	@Test
+	public void shouldPassItemsOnAtOnceWhenSchedulerIsShutDown() throws Exception {
+		scheduler.shutdown();
+		Batcher<Integer, Integer> batcher = new Batcher<>(this::doubled, 2, LONG_DELAY, 2, scheduler);
+		List<CompletableFuture<Integer>> results = new ArrayList<>();
+		for (int i = 1; i <= 3; i++) {
+			results.add(batcher.submit(i));
+		}
+		for (int i = 0; i < results.size(); i++) {
+			assertTrue(results.get(i).isDone());
+			assertEquals(2 * (i + 1), (int) results.get(i).get());
+		}
+		assertEquals(Arrays.asList(Arrays.asList(1), Arrays.asList(2), Arrays.asList(3)), calls);
+	}
+}
@@ -0,0 +1,79 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class BoundedCacheTest {
+
+	@Test
+	public void shouldCountHitsAndMisses() {
+		BoundedCache<String, String> cache = new BoundedCache<>(16, 0);
+		assertNull(cache.get("a"));
+		cache.put("a", "A");
+		assertEquals("A", cache.get("a"));
+		assertEquals("A", cache.get("a"));
+
+		CacheStats stats = cache.stats();
+		assertEquals(2, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(1, stats.getSize());
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsed() {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(1, 0);
+		cache.put(1, 1);
+		cache.put(2, 2);
+		assertNull(cache.get(1));
+		assertEquals(Integer.valueOf(2), cache.get(2));
+		assertEquals(1, cache.stats().getEvictionCount());
+	}
+
+	@Test
+	public void shouldStayWithinMaximumSize() {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(100, 0);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, i);
+		}
+		assertTrue(cache.size() <= 100);
+		assertEquals(1000 - cache.size(), cache.stats().getEvictionCount());
+	}
+
+	@Test
+	public void shouldExpireAfterWrite() {
+		AtomicLong time = new AtomicLong();
+		BoundedCache<String, String> cache = new BoundedCache<>(16, 10, time::get);
+		cache.put("a", "A");
+		time.set(9);
+		assertEquals("A", cache.get("a"));
+		time.set(10);
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void shouldNotCacheNull() {
+		BoundedCache<String, String> cache = new BoundedCache<>(16, 0);
+		cache.put("a", null);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void shouldInvalidateAll() {
+		BoundedCache<String, String> cache = new BoundedCache<>(16, 0);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNonPositiveMaximumSize() {
+		new BoundedCache<>(0, 0);
+	}
+}
@@ -0,0 +1,88 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BroadcastTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldCallEveryDelegate() {
+		AtomicIntegerArray calls = new AtomicIntegerArray(4);
+		Integer[] delegates = { 0, 1, 2, 3 };
+		Broadcast.parallel(delegates, executor, delegate -> calls.incrementAndGet(delegate));
+		for (int i = 0; i < delegates.length; i++) {
+			assertEquals(1, calls.get(i));
+		}
+	}
+
+	@Test
+	public void shouldRethrowCheckedFailureWithOthersSuppressed() {
+		IOException first = new IOException("first");
+		IllegalStateException second = new IllegalStateException("second");
+		try {
+			Broadcast.parallel(new Exception[] { first, second }, executor, failure -> {
+				throw failure;
+			});
+			fail();
+		} catch (Exception e) {
+			// the calls run concurrently, so either of them can fail first
+			assertTrue(e == first || e == second);
+			assertArrayEquals(new Throwable[] { e == first ? second : first }, e.getSuppressed());
+		}
+	}
+
+	@Test
+	public void shouldCallEveryDelegateInOrderWhenSomeFail() {
+		List<Integer> calls = new ArrayList<>();
+		IOException first = new IOException("first");
+		IllegalStateException second = new IllegalStateException("second");
+		try {
+			Broadcast.sequential(new Integer[] { 0, 1, 2, 3 }, delegate -> {
+				calls.add(delegate);
+				if (delegate == 1) {
+					throw first;
+				}
+				if (delegate == 2) {
+					throw second;
+				}
+			});
+			fail();
+		} catch (Exception e) {
+			assertSame(first, e);
+			assertArrayEquals(new Throwable[] { second }, e.getSuppressed());
+		}
+		assertEquals(Arrays.asList(0, 1, 2, 3), calls);
+	}
+
+	@Test
+	public void shouldRunOnCallingThreadWhenRejected() {
+		executor.shutdown();
+		List<String> delegates = Arrays.asList("a", "b");
+		AtomicIntegerArray calls = new AtomicIntegerArray(2);
+		Broadcast.parallel(delegates.toArray(new String[0]), executor,
+				delegate -> calls.incrementAndGet(delegates.indexOf(delegate)));
+		assertEquals(1, calls.get(0));
+		assertEquals(1, calls.get(1));
+	}
+}
@@ -0,0 +1,35 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class CacheKeysTest {
+
+	@Test
+	public void shouldCopyArraysDeeply() {
+		int[][] values = { { 1, 2 }, { 3 } };
+		int[][] copy = (int[][]) CacheKeys.copy(values);
+		values[0][0] = 42;
+		values[1] = new int[0];
+		assertArrayEquals(new int[][] { { 1, 2 }, { 3 } }, copy);
+	}
+
+	@Test
+	public void shouldCopyPrimitiveArrays() {
+		char[] chars = { 'a', 'b' };
+		char[] copy = (char[]) CacheKeys.copy(chars);
+		assertNotSame(chars, copy);
+		assertArrayEquals(chars, copy);
+	}
+
+	@Test
+	public void shouldKeepOtherValues() {
+		String value = "value";
+		assertSame(value, CacheKeys.copy(value));
+		assertNull(CacheKeys.copy(null));
+	}
+}
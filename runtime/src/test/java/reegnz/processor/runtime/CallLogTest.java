@@ -0,0 +1,156 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import reegnz.processor.runtime.CallTrace.Pace;
+
+public class CallLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldReplayArgumentsOfEveryType() throws Throwable {
+		Path file = folder.newFile().toPath();
+		try (CallLog log = CallLog.create(file, 1 << 20)) {
+			CallWriter call = log.begin(3);
+			call.writeBoolean(true);
+			call.writeChar('c');
+			call.writeInt(42);
+			call.writeLong(Long.MIN_VALUE);
+			call.writeDouble(0.5);
+			call.writeString("árvíztűrő");
+			call.writeString(null);
+			call.writeObject(7L);
+			call.writeObject(new byte[] { 1, 2 });
+			call.writeObject(Arrays.asList("a", "b"));
+			call.writeObject(new Object());
+			call.end();
+		}
+		CallTrace trace = CallTrace.read(file);
+		assertEquals(1, trace.size());
+		trace.replay(0, (method, arguments) -> {
+			assertEquals(3, method);
+			assertTrue(arguments.readBoolean());
+			assertEquals('c', arguments.readChar());
+			assertEquals(42, arguments.readInt());
+			assertEquals(Long.MIN_VALUE, arguments.readLong());
+			assertEquals(0.5, arguments.readDouble(), 0);
+			assertEquals("árvíztűrő", arguments.readString());
+			assertNull(arguments.readString());
+			assertEquals(7L, arguments.readObject());
+			assertArrayEquals(new byte[] { 1, 2 }, (byte[]) arguments.readObject());
+			assertEquals(Arrays.asList("a", "b"), arguments.readObject());
+			assertNull(arguments.readObject());
+		});
+	}
+
+	@Test
+	public void shouldKeepOuterCallWhenRecordingNestedCall() throws Throwable {
+		Path file = folder.newFile().toPath();
+		try (CallLog log = CallLog.create(file, 1 << 20)) {
+			CallWriter outer = log.begin(0);
+			outer.writeInt(1);
+			CallWriter inner = log.begin(1);
+			inner.writeString("inner");
+			inner.end();
+			outer.writeString("outer");
+			outer.end();
+		}
+		CallTrace trace = CallTrace.read(file);
+		assertEquals(2, trace.size());
+		int outer = trace.getMethod(0) == 0 ? 0 : 1;
+		trace.replay(outer, (method, arguments) -> {
+			assertEquals(0, method);
+			assertEquals(1, arguments.readInt());
+			assertEquals("outer", arguments.readString());
+		});
+		trace.replay(1 - outer, (method, arguments) -> {
+			assertEquals(1, method);
+			assertEquals("inner", arguments.readString());
+		});
+	}
+
+	@Test
+	public void shouldReplayCallsOfAllThreadsInOrder() throws Exception {
+		Path file = folder.newFile().toPath();
+		try (CallLog log = CallLog.create(file, 1 << 20, 256)) {
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				threads.add(new Thread(() -> {
+					for (int i = 0; i < 100; i++) {
+						CallWriter call = log.begin(thread);
+						call.writeInt(i);
+						call.end();
+					}
+				}));
+			}
+			threads.forEach(Thread::start);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(0, log.getDropped());
+		}
+		CallTrace trace = CallTrace.read(file);
+		assertEquals(400, trace.size());
+		for (int i = 1; i < trace.size(); i++) {
+			assertTrue(trace.getNanos(i - 1) <= trace.getNanos(i));
+		}
+		int[] next = new int[4];
+		assertEquals(0, trace.replay((method, arguments) -> {
+			assertEquals(next[method]++, arguments.readInt());
+		}, Pace.MAXIMUM));
+		assertArrayEquals(new int[] { 100, 100, 100, 100 }, next);
+	}
+
+	@Test
+	public void shouldReplayAtTheOriginalPace() throws Exception {
+		Path file = folder.newFile().toPath();
+		try (CallLog log = CallLog.create(file, 1 << 20)) {
+			log.begin(0).end();
+			TimeUnit.MILLISECONDS.sleep(50);
+			log.begin(1).end();
+		}
+		CallTrace trace = CallTrace.read(file);
+		long start = System.nanoTime();
+		List<Integer> methods = Collections.synchronizedList(new ArrayList<>());
+		assertEquals(1, trace.replay((method, arguments) -> {
+			methods.add(method);
+			if (method == 1) {
+				throw new IOException();
+			}
+		}, Pace.ORIGINAL));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(Arrays.asList(0, 1), methods);
+	}
+
+	@Test
+	public void shouldDropCallsWhenFull() throws IOException {
+		Path file = folder.newFile().toPath();
+		try (CallLog log = CallLog.create(file, CallLog.HEADER_SIZE + 64, 64)) {
+			for (int i = 0; i < 5; i++) {
+				CallWriter call = log.begin(0);
+				call.writeInt(i);
+				call.end();
+			}
+			assertEquals(2, log.getDropped());
+		}
+		assertEquals(3, CallTrace.read(file).size());
+	}
+}
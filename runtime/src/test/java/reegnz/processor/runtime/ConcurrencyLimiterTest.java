@@ -0,0 +1,84 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+	@Test
+	public void shouldRejectCallsOverTheLimitAtOnce() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("Service.call", 2, 0);
+		limiter.acquire();
+		limiter.acquire();
+		try {
+			limiter.acquire();
+			fail();
+		} catch (BulkheadFullException e) {
+			assertEquals("The limit of 2 concurrent calls of Service.call is reached", e.getMessage());
+		}
+		assertEquals(2, limiter.getInUse());
+		assertEquals(1, limiter.getRejected());
+		limiter.release();
+		assertTrue(limiter.tryAcquire());
+	}
+
+	@Test
+	public void shouldWaitForAReleasedPermit() throws InterruptedException {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("Service.call", 1, TimeUnit.SECONDS.toNanos(10));
+		limiter.acquire();
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			limiter.acquire();
+			acquired.countDown();
+		});
+		waiter.start();
+		assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+		limiter.release();
+		assertTrue(acquired.await(1, TimeUnit.SECONDS));
+		assertEquals(1, limiter.getInUse());
+		assertEquals(0, limiter.getRejected());
+	}
+
+	@Test
+	public void shouldRejectAfterTheMaximumWait() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("Service.call", 1, TimeUnit.MILLISECONDS.toNanos(20));
+		limiter.acquire();
+		long start = System.nanoTime();
+		try {
+			limiter.acquire();
+			fail();
+		} catch (BulkheadFullException e) {
+			assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		}
+		assertEquals(1, limiter.getRejected());
+	}
+
+	@Test
+	public void shouldLetWaitersInWhenTheLimitIsRaised() throws InterruptedException {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("Service.call", 1, TimeUnit.SECONDS.toNanos(10));
+		limiter.acquire();
+		AtomicBoolean acquired = new AtomicBoolean();
+		Thread waiter = new Thread(() -> {
+			limiter.acquire();
+			acquired.set(true);
+		});
+		waiter.start();
+		limiter.setMaxConcurrent(2);
+		waiter.join(1000);
+		assertTrue(acquired.get());
+		assertEquals(2, limiter.getInUse());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectLimitsThatAreNotPositive() {
+		new ConcurrencyLimiter("Service.call", 1, 0).setMaxConcurrent(0);
+	}
+}
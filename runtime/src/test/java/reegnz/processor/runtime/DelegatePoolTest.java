@@ -0,0 +1,139 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import reegnz.processor.runtime.DelegatePool.Exhaustion;
+
+public class DelegatePoolTest {
+
+	@Test
+	public void shouldReuseReturnedDelegates() {
+		DelegatePool<StringBuilder> pool = new DelegatePool<>(StringBuilder::new, 2);
+		StringBuilder first = pool.borrow();
+		StringBuilder second = pool.borrow();
+		assertNotSame(first, second);
+		pool.release(first);
+		pool.release(second);
+		assertEquals(2, pool.getStats().getIdle());
+
+		pool.borrow();
+		pool.borrow();
+		PoolStats stats = pool.getStats();
+		assertEquals(2, stats.getSize());
+		assertEquals(2, stats.getBorrowed());
+		assertEquals(2, stats.getCreatedCount());
+	}
+
+	@Test
+	public void shouldFailWhenExhausted() {
+		DelegatePool<StringBuilder> pool = new DelegatePool<>(StringBuilder::new, delegate -> {
+		}, 1, Exhaustion.FAIL, 0);
+		pool.borrow();
+		try {
+			pool.borrow();
+			fail();
+		} catch (PoolExhaustedException e) {
+			assertEquals("All 1 delegates of the pool are borrowed", e.getMessage());
+		}
+		assertEquals(1, pool.getStats().getRejectedCount());
+	}
+
+	@Test
+	public void shouldWaitForReturnedDelegate() throws InterruptedException {
+		DelegatePool<StringBuilder> pool = new DelegatePool<>(StringBuilder::new, delegate -> {
+		}, 1, Exhaustion.WAIT, TimeUnit.SECONDS.toNanos(10));
+		StringBuilder borrowed = pool.borrow();
+		Thread releaser = new Thread(() -> {
+			try {
+				TimeUnit.MILLISECONDS.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			pool.release(borrowed);
+		});
+		releaser.start();
+		assertSame(borrowed, pool.borrow());
+		releaser.join();
+		assertEquals(1, pool.getStats().getWaitCount());
+	}
+
+	@Test
+	public void shouldDiscardDelegatesCreatedOverTheMaximum() {
+		List<StringBuilder> cleaned = new ArrayList<>();
+		DelegatePool<StringBuilder> pool = new DelegatePool<>(StringBuilder::new, cleaned::add, 1,
+				Exhaustion.CREATE, 0);
+		StringBuilder first = pool.borrow();
+		StringBuilder second = pool.borrow();
+		assertEquals(2, pool.getStats().getSize());
+		pool.release(second);
+		pool.release(first);
+		assertEquals(1, cleaned.size());
+		assertEquals(1, pool.getStats().getSize());
+		assertEquals(1, pool.getStats().getIdle());
+	}
+
+	@Test
+	public void shouldNeverLendDelegateTwice() throws InterruptedException {
+		AtomicInteger inUse = new AtomicInteger();
+		DelegatePool<AtomicInteger> pool = new DelegatePool<>(AtomicInteger::new, 3);
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+		for (int t = 0; t < 6; t++) {
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					AtomicInteger delegate = pool.borrow();
+					try {
+						assertTrue(inUse.incrementAndGet() <= 3);
+						assertEquals(1, delegate.incrementAndGet());
+						delegate.decrementAndGet();
+						inUse.decrementAndGet();
+					} catch (Throwable e) {
+						synchronized (failures) {
+							failures.add(e);
+						}
+					} finally {
+						pool.release(delegate);
+					}
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(new ArrayList<>(), failures);
+		assertTrue(pool.getStats().getCreatedCount() <= 3);
+	}
+
+	@Test
+	public void shouldCleanUpOnClose() {
+		List<StringBuilder> cleaned = new ArrayList<>();
+		DelegatePool<StringBuilder> pool = new DelegatePool<>(StringBuilder::new, cleaned::add, 2,
+				Exhaustion.WAIT, 0);
+		StringBuilder idle = pool.borrow();
+		StringBuilder borrowed = pool.borrow();
+		pool.release(idle);
+		pool.close();
+		assertEquals(1, cleaned.size());
+		pool.release(borrowed);
+		assertEquals(2, cleaned.size());
+		assertEquals(0, pool.getStats().getSize());
+		try {
+			pool.borrow();
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("The pool is closed", e.getMessage());
+		}
+	}
+}
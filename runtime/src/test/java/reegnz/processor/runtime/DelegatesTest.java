@@ -0,0 +1,137 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DelegatesTest {
+
+	public interface Primitives {
+		long mix(boolean flag, byte b, char c, short s, int i, long l, float f, double d);
+
+		double half(double value);
+
+		String join(String separator, Object... parts);
+
+		void fail(IOException failure) throws IOException;
+
+		default String describe() {
+			return "default";
+		}
+	}
+
+	public interface Named {
+		CharSequence name();
+	}
+
+	public interface Renamed extends Named {
+		@Override
+		String name();
+
+		@Override
+		String toString();
+	}
+
+	interface Hidden {
+		void run();
+	}
+
+	@Test
+	public void shouldPassEveryArgumentAndResultOn() {
+		Primitives primitives = Delegates.create(Primitives.class, new PrimitivesImpl());
+		assertEquals(1 + 2 + 'c' + 4 + 5 + 6L + 7 + 8, primitives.mix(true, (byte) 2, 'c', (short) 4, 5, 6L, 7f, 8d));
+		assertEquals(0.25d, primitives.half(0.5d), 0d);
+		assertEquals("a,b", primitives.join(",", "a", "b"));
+		assertEquals("delegated", primitives.describe());
+	}
+
+	@Test
+	public void shouldRethrowFailuresOfTheDelegate() {
+		Primitives primitives = Delegates.create(Primitives.class, new PrimitivesImpl());
+		IOException failure = new IOException();
+		try {
+			primitives.fail(failure);
+			fail();
+		} catch (IOException e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test
+	public void shouldDelegateCovariantAndInheritedMethods() {
+		Renamed renamed = Delegates.create(Renamed.class, () -> "renamed");
+		assertEquals("renamed", renamed.name());
+		assertEquals("renamed", ((Named) renamed).name());
+		assertNotEquals("renamed", renamed.toString());
+	}
+
+	@Test
+	public void shouldCacheTheClassPerInterface() throws Exception {
+		Primitives first = Delegates.create(Primitives.class, new PrimitivesImpl());
+		Primitives second = Delegates.create(Primitives.class, new PrimitivesImpl());
+		assertSame(first.getClass(), second.getClass());
+		assertTrue(Modifier.isFinal(first.getClass().getModifiers()));
+		assertTrue(first.getClass().getMethod("join", String.class, Object[].class).isVarArgs());
+	}
+
+	@Test
+	public void shouldDelegateInterfacesOfTheBootstrapClassLoader() {
+		Comparator<String> comparator = Delegates.create(Comparator.class, Comparator.<String>naturalOrder());
+		List<String> values = Arrays.asList("b", "c", "a");
+		values.sort(comparator);
+		assertArrayEquals(new String[] { "a", "b", "c" }, values.toArray());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInterfacesThatAreNotPublic() {
+		Delegates.create(Hidden.class, () -> {
+		});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectClasses() {
+		Delegates.create(Object.class, new Object());
+	}
+
+	private static final class PrimitivesImpl implements Primitives {
+		@Override
+		public long mix(boolean flag, byte b, char c, short s, int i, long l, float f, double d) {
+			return (flag ? 1 : 0) + b + c + s + i + l + (long) f + (long) d;
+		}
+
+		@Override
+		public double half(double value) {
+			return value / 2;
+		}
+
+		@Override
+		public String join(String separator, Object... parts) {
+			StringBuilder builder = new StringBuilder();
+			for (Object part : parts) {
+				builder.append(builder.length() == 0 ? "" : separator).append(part);
+			}
+			return builder.toString();
+		}
+
+		@Override
+		public void fail(IOException failure) throws IOException {
+			throw failure;
+		}
+
+		@Override
+		public String describe() {
+			return "delegated";
+		}
+	}
+}
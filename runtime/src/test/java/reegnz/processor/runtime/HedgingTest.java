@@ -0,0 +1,118 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HedgingTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldNotHedgeFastCalls() {
+		Hedging<Function<String, String>> hedging = new Hedging<>(value -> "primary " + value,
+				value -> "backup " + value, executor, Hedging.DEFAULT_PERCENTILE, TimeUnit.HOURS.toNanos(1), "apply");
+		assertEquals("primary key", hedging.call(0, delegate -> delegate.apply("key")));
+		HedgingStats stats = hedging.getStats().get(0);
+		assertEquals("apply", stats.getMethod());
+		assertEquals(1, stats.getCalls());
+		assertEquals(0, stats.getHedgedCalls());
+	}
+
+	@Test
+	public void shouldCancelSlowPrimaryWhenBackupWins() throws InterruptedException {
+		CountDownLatch cancelled = new CountDownLatch(1);
+		Hedging<Function<String, String>> hedging = new Hedging<>(value -> {
+			try {
+				TimeUnit.SECONDS.sleep(10);
+				return "primary";
+			} catch (InterruptedException e) {
+				cancelled.countDown();
+				return "cancelled";
+			}
+		}, value -> "backup", executor, 95, TimeUnit.MILLISECONDS.toNanos(1), "apply");
+		assertEquals("backup", hedging.call(0, delegate -> delegate.apply("key")));
+		assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+		HedgingStats stats = hedging.getStats().get(0);
+		assertEquals(1, stats.getHedgedCalls());
+		assertEquals(1, stats.getBackupWins());
+	}
+
+	@Test
+	public void shouldRethrowFailureOfUnhedgedCall() {
+		Hedging<Function<String, String>> hedging = new Hedging<>(value -> {
+			throw new IllegalStateException("primary");
+		}, value -> "backup", executor, "apply");
+		try {
+			hedging.call(0, delegate -> delegate.apply("key"));
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("primary", e.getMessage());
+		}
+		assertEquals(0, hedging.getStats().get(0).getHedgedCalls());
+	}
+
+	@Test
+	public void shouldRethrowFirstFailureWhenBothFail() {
+		Hedging<Runnable> hedging = new Hedging<>(() -> sleep(50), () -> {
+		}, executor, 95, TimeUnit.MILLISECONDS.toNanos(1), "run");
+		try {
+			hedging.call(0, delegate -> {
+				delegate.run();
+				throw new IOException(delegate == hedging.getPrimary() ? "primary" : "backup");
+			});
+			fail();
+		} catch (Exception e) {
+			assertTrue(e instanceof IOException);
+			assertEquals("backup", e.getMessage());
+			assertEquals("primary", e.getSuppressed()[0].getMessage());
+		}
+	}
+
+	@Test
+	public void shouldFollowPercentileOfLatencies() {
+		long initialDelay = TimeUnit.SECONDS.toNanos(10);
+		Hedging<Runnable> hedging = new Hedging<>(() -> {
+		}, () -> {
+		}, executor, 50, initialDelay, 0, "run");
+		for (int i = 0; i < 40; i++) {
+			hedging.call(0, delegate -> {
+				delegate.run();
+				return null;
+			});
+		}
+		long delay = hedging.getStats().get(0).getDelayNanos();
+		assertTrue(delay > 0 && delay < initialDelay);
+	}
+
+	@Test
+	public void shouldCallPrimaryWhenExecutorRejects() {
+		executor.shutdown();
+		Hedging<Function<String, String>> hedging = new Hedging<>(value -> "primary", value -> "backup", executor,
+				"apply");
+		assertEquals("primary", hedging.call(0, delegate -> delegate.apply("key")));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
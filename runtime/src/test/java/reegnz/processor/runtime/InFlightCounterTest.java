@@ -0,0 +1,66 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class InFlightCounterTest {
+
+	@Test(timeout = 10000)
+	public void shouldNotWaitWithoutCalls() {
+		InFlightCounter inFlight = new InFlightCounter(4);
+		inFlight.exit(inFlight.enter());
+		inFlight.drain();
+		inFlight.drain();
+	}
+
+	@Test(timeout = 10000)
+	public void shouldWaitForCallsInFlight() throws Exception {
+		InFlightCounter inFlight = new InFlightCounter(4);
+		int token = inFlight.enter();
+		CompletableFuture<Void> drained = CompletableFuture.runAsync(inFlight::drain);
+		try {
+			drained.get(100, TimeUnit.MILLISECONDS);
+			throw new AssertionError("Drained with a call in flight");
+		} catch (TimeoutException expected) {
+			assertFalse(drained.isDone());
+		}
+		inFlight.exit(token);
+		drained.get();
+		assertTrue(drained.isDone());
+	}
+
+	@Test(timeout = 10000)
+	public void shouldNotWaitForCallsEnteredAfterDrainStarted() throws Exception {
+		InFlightCounter inFlight = new InFlightCounter(4);
+		int before = inFlight.enter();
+		CompletableFuture<Void> drained = CompletableFuture.runAsync(inFlight::drain);
+		Thread.sleep(100);
+		int after = inFlight.enter();
+		inFlight.exit(before);
+		drained.get();
+		inFlight.exit(after);
+	}
+
+	@Test(timeout = 10000)
+	public void shouldWaitForCallThatEnteredLateAcrossTwoDrains() throws Exception {
+		InFlightCounter inFlight = new InFlightCounter(4);
+		int observed = inFlight.epoch();
+		inFlight.drain();
+		int token = inFlight.enter(observed);
+		CompletableFuture<Void> drained = CompletableFuture.runAsync(inFlight::drain);
+		try {
+			drained.get(100, TimeUnit.MILLISECONDS);
+			throw new AssertionError("Drained with a late call in flight");
+		} catch (TimeoutException expected) {
+			assertFalse(drained.isDone());
+		}
+		inFlight.exit(token);
+		drained.get();
+	}
+}
@@ -0,0 +1,67 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class MethodMetricsTest {
+
+	@Test
+	public void shouldKeepBucketsContiguous() {
+		for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+			long lowerBound = LatencyHistogram.bucketUpperBound(i - 1) + 1;
+			assertEquals(i, LatencyHistogram.bucketIndex(lowerBound));
+			assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.bucketUpperBound(i)));
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKETS - 1));
+	}
+
+	@Test
+	public void shouldBoundRelativeError() {
+		for (long value = 1; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+			long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+			assertTrue(upperBound >= value);
+			assertTrue((double) (upperBound - value) / value <= 0.125);
+		}
+	}
+
+	@Test
+	public void shouldRecordPerMethod() {
+		MethodMetrics metrics = new MethodMetrics("first", "second");
+		for (int i = 1; i <= 100; i++) {
+			metrics.record(0, i);
+		}
+		metrics.record(1, 1000);
+		metrics.error(1);
+
+		List<MethodSnapshot> snapshot = metrics.snapshot();
+		MethodSnapshot first = snapshot.get(0);
+		assertEquals("first", first.getMethod());
+		assertEquals(100, first.getCalls());
+		assertEquals(0, first.getErrors());
+		assertEquals(50.5, first.getMeanNanos(), 0);
+		assertEquals(1, first.getPercentileNanos(0));
+		assertTrue(first.getPercentileNanos(50) >= 50 && first.getPercentileNanos(50) <= 55);
+		assertTrue(first.getMaxNanos() >= 100 && first.getMaxNanos() <= 111);
+		MethodSnapshot second = snapshot.get(1);
+		assertEquals(1, second.getCalls());
+		assertEquals(1, second.getErrors());
+	}
+
+	@Test
+	public void shouldResetOnSnapshot() {
+		MethodMetrics metrics = new MethodMetrics("method");
+		metrics.record(0, 10);
+		metrics.error(0);
+
+		assertEquals(1, metrics.snapshotAndReset().get(0).getCalls());
+		MethodSnapshot snapshot = metrics.snapshot().get(0);
+		assertEquals(0, snapshot.getCalls());
+		assertEquals(0, snapshot.getErrors());
+		assertEquals(0, snapshot.getMaxNanos());
+	}
+}
@@ -0,0 +1,35 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ReducerTest {
+
+	@Test
+	public void shouldPickFirstAndLast() {
+		assertEquals("a", reduce(Reducer.first(), "a", "b", "c"));
+		assertEquals("c", reduce(Reducer.last(), "a", "b", "c"));
+	}
+
+	@Test
+	public void shouldCollectWithoutTouchingResults() {
+		List<String> first = Collections.unmodifiableList(Arrays.asList("a", "b"));
+		List<String> collected = reduce(Reducer.collecting(ArrayList::new), first, null, Arrays.asList("c"));
+		assertEquals(Arrays.asList("a", "b", "c"), collected);
+	}
+
+	@SafeVarargs
+	private static <T> T reduce(Reducer<T> reducer, T... results) {
+		T result = reducer.start(results[0]);
+		for (int i = 1; i < results.length; i++) {
+			result = reducer.reduce(result, results[i]);
+		}
+		return result;
+	}
+}
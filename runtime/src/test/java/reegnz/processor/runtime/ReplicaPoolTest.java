@@ -0,0 +1,43 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import reegnz.processor.runtime.ReplicaPool.Routing;
+
+public class ReplicaPoolTest {
+
+	@Test
+	public void shouldTakeReplicasInTurn() {
+		ReplicaPool<String> pool = new ReplicaPool<>(Arrays.asList("a", "b", "c"), Routing.ROUND_ROBIN);
+		StringBuilder picked = new StringBuilder();
+		for (int i = 0; i < 6; i++) {
+			int replica = pool.acquire();
+			picked.append(pool.get(replica));
+			pool.release(replica);
+		}
+		assertEquals("abcabc", picked.toString());
+	}
+
+	@Test
+	public void shouldPickTheLeastLoadedReplica() {
+		ReplicaPool<String> pool = new ReplicaPool<>(Arrays.asList("a", "b", "c"), Routing.LEAST_LOADED);
+		int first = pool.acquire();
+		int second = pool.acquire();
+		int third = pool.acquire();
+		assertEquals(3, Arrays.asList(first, second, third).stream().distinct().count());
+		pool.release(second);
+		assertEquals(second, pool.acquire());
+		assertEquals(1, pool.getInFlight(first));
+		assertEquals(1, pool.getInFlight(second));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRequireAReplica() {
+		new ReplicaPool<>(Collections.emptyList(), Routing.ROUND_ROBIN);
+	}
+}
@@ -0,0 +1,37 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ShardKeysTest {
+
+	@Test
+	public void shouldRoundShardCountUpToPowerOfTwo() {
+		assertEquals(1, ShardKeys.shardCount(0));
+		assertEquals(1, ShardKeys.shardCount(1));
+		assertEquals(2, ShardKeys.shardCount(2));
+		assertEquals(4, ShardKeys.shardCount(3));
+		assertEquals(16, ShardKeys.shardCount(16));
+		assertEquals(32, ShardKeys.shardCount(17));
+	}
+
+	@Test
+	public void shouldHashBoxedKeysLikePrimitives() {
+		assertEquals(ShardKeys.hash(42), ShardKeys.hash((Object) 42));
+		assertEquals(ShardKeys.hash(0), ShardKeys.hash(null));
+	}
+
+	@Test
+	public void shouldSpreadSequentialKeysOverShards() {
+		int mask = 15;
+		int[] counts = new int[mask + 1];
+		for (long key = 0; key < 1600; key++) {
+			counts[ShardKeys.hash(key << 16) & mask]++;
+		}
+		for (int count : counts) {
+			assertTrue(count > 50 && count < 150);
+		}
+	}
+}
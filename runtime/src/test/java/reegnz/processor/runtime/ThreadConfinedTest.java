@@ -0,0 +1,109 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ThreadConfinedTest {
+
+	@Test
+	public void shouldCreateOneDelegatePerThread() throws InterruptedException {
+		ThreadConfined<StringBuilder> delegates = new ThreadConfined<>(StringBuilder::new);
+		StringBuilder mine = delegates.get();
+		assertSame(mine, delegates.get());
+
+		AtomicReference<StringBuilder> other = new AtomicReference<>();
+		Thread thread = new Thread(() -> other.set(delegates.get()));
+		thread.start();
+		thread.join();
+		assertNotSame(mine, other.get());
+	}
+
+	@Test
+	public void shouldCleanUpReleasedDelegate() {
+		List<StringBuilder> cleaned = new ArrayList<>();
+		ThreadConfined<StringBuilder> delegates = new ThreadConfined<>(StringBuilder::new, cleaned::add);
+		StringBuilder released = delegates.get();
+		delegates.release();
+		assertEquals(1, cleaned.size());
+		assertSame(released, cleaned.get(0));
+		assertNotSame(released, delegates.get());
+		assertEquals(1, delegates.getDelegateCount());
+	}
+
+	@Test
+	public void shouldCleanUpDelegatesOfDeadThreads() throws InterruptedException {
+		List<StringBuilder> cleaned = new ArrayList<>();
+		ThreadConfined<StringBuilder> delegates = new ThreadConfined<>(StringBuilder::new, cleaned::add, 1);
+		for (int i = 0; i < 3; i++) {
+			Thread thread = new Thread(delegates::get);
+			thread.start();
+			thread.join();
+		}
+		assertEquals(1, delegates.getDelegateCount());
+		assertEquals(2, cleaned.size());
+		delegates.get();
+		assertEquals(1, delegates.getDelegateCount());
+		assertEquals(3, cleaned.size());
+	}
+
+	@Test
+	public void shouldKeepDelegatesOfShortLivedThreadsBounded() throws InterruptedException {
+		List<StringBuilder> cleaned = Collections.synchronizedList(new ArrayList<>());
+		ThreadConfined<StringBuilder> delegates = new ThreadConfined<>(StringBuilder::new, cleaned::add, 4);
+		for (int i = 0; i < 100; i++) {
+			Thread thread = new Thread(delegates::get);
+			thread.start();
+			thread.join();
+		}
+		assertTrue(delegates.getDelegateCount() <= 4);
+		assertEquals(100, delegates.getDelegateCount() + cleaned.size());
+		assertEquals(0, delegates.getOverflowCount());
+	}
+
+	@Test
+	public void shouldCreateDelegatePerCallWhenSlotsAreTaken() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		ThreadConfined<StringBuilder> delegates = new ThreadConfined<>(StringBuilder::new, delegate -> {
+		}, 1);
+		Thread owner = new Thread(() -> {
+			delegates.get();
+			started.countDown();
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		owner.start();
+		started.await();
+		assertNotSame(delegates.get(), delegates.get());
+		assertEquals(2, delegates.getOverflowCount());
+		assertEquals(1, delegates.getDelegateCount());
+		done.countDown();
+		owner.join();
+		assertSame(delegates.get(), delegates.get());
+		assertEquals(2, delegates.getOverflowCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldCleanUpAllDelegatesOnClose() {
+		List<StringBuilder> cleaned = new ArrayList<>();
+		ThreadConfined<StringBuilder> delegates = new ThreadConfined<>(StringBuilder::new, cleaned::add);
+		delegates.get();
+		delegates.close();
+		assertEquals(1, cleaned.size());
+		assertEquals(0, delegates.getDelegateCount());
+		delegates.get();
+	}
+}
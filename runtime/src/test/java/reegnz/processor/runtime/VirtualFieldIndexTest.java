@@ -0,0 +1,63 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VirtualFieldIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldReadIndexesOfAllJars() throws Exception {
+		URL first = index("# generated", "java.util.function.Supplier java.util.ArrayList getSupplier", "");
+		URL second = index("java.lang.Runnable java.lang.Thread getRunnable",
+				"java.util.function.Supplier java.util.LinkedList getOther");
+		VirtualFieldIndex index = VirtualFieldIndex.load(new URLClassLoader(new URL[] { first, second }));
+
+		List<String> interfaces = index.getEntries().stream()
+				.map(VirtualFieldIndex.Entry::getInterfaceName)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList("java.util.function.Supplier", "java.lang.Runnable"), interfaces);
+		VirtualFieldIndex.Entry entry = index.find(Supplier.class);
+		assertEquals(Supplier.class, entry.loadInterface());
+		assertEquals(java.util.ArrayList.class, entry.loadVirtualType());
+		assertEquals("getSupplier", entry.getAccessorName());
+		assertNull(index.find("java.util.List"));
+	}
+
+	@Test
+	public void shouldBeEmptyWithoutIndex() {
+		VirtualFieldIndex index = VirtualFieldIndex.load(new URLClassLoader(new URL[0], null));
+		assertEquals(0, index.getEntries().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectMalformedLines() throws IOException {
+		URL malformed = index("java.lang.Runnable java.lang.Thread");
+		VirtualFieldIndex.load(new URLClassLoader(new URL[] { malformed })).getEntries();
+	}
+
+	private URL index(String... lines) throws IOException {
+		File root = folder.newFolder();
+		File file = new File(root, VirtualFieldIndex.RESOURCE);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		return root.toURI().toURL();
+	}
+}
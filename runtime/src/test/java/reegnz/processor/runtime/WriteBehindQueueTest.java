@@ -0,0 +1,181 @@
+package reegnz.processor.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import reegnz.processor.runtime.WriteBehindQueue.Overflow;
+import reegnz.processor.runtime.WriteBehindQueue.WaitStrategy;
+
+public class WriteBehindQueueTest {
+
+	private final List<Throwable> uncaught = Collections.synchronizedList(new ArrayList<>());
+	private UncaughtExceptionHandler defaultHandler;
+
+	@Before
+	public void setUp() {
+		defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.add(e));
+	}
+
+	@After
+	public void tearDown() {
+		Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+	}
+
+	@Test
+	public void shouldPassArgumentsOfEveryType() {
+		List<Object> received = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue queue = new WriteBehindQueue("test", 4, 8, 1, WaitStrategy.SLEEPING, Overflow.BLOCK,
+				(method, arguments) -> received.addAll(Arrays.asList(method, arguments.getBoolean(0),
+						arguments.getByte(1), arguments.getChar(2), arguments.getShort(3), arguments.getInt(4),
+						arguments.getLong(5), arguments.getFloat(6), arguments.getDouble(7),
+						arguments.getReference(0))));
+		long sequence = queue.claim(3);
+		queue.putBoolean(sequence, 0, true);
+		queue.putByte(sequence, 1, (byte) -1);
+		queue.putChar(sequence, 2, 'c');
+		queue.putShort(sequence, 3, Short.MIN_VALUE);
+		queue.putInt(sequence, 4, -42);
+		queue.putLong(sequence, 5, Long.MAX_VALUE);
+		queue.putFloat(sequence, 6, -0.5f);
+		queue.putDouble(sequence, 7, Math.PI);
+		queue.putReference(sequence, 0, "value");
+		queue.publish(sequence);
+		queue.close();
+		assertEquals(Arrays.asList(3, true, (byte) -1, 'c', Short.MIN_VALUE, -42, Long.MAX_VALUE, -0.5f, Math.PI,
+				"value"), received);
+	}
+
+	@Test
+	public void shouldRunCallsOfEveryThreadInOrder() throws InterruptedException {
+		List<List<Integer>> received = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			received.add(new ArrayList<>());
+		}
+		WriteBehindQueue queue = new WriteBehindQueue("test", 16, 1, 0, WaitStrategy.YIELDING, Overflow.BLOCK,
+				(method, arguments) -> received.get(method).add(arguments.getInt(0)));
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int thread = t;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					long sequence = queue.claim(thread);
+					queue.putInt(sequence, 0, i);
+					queue.publish(sequence);
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		queue.flush();
+		for (List<Integer> calls : received) {
+			assertEquals(1000, calls.size());
+			for (int i = 0; i < calls.size(); i++) {
+				assertEquals(i, (int) calls.get(i));
+			}
+		}
+		assertEquals(0, queue.size());
+		queue.close();
+	}
+
+	@Test
+	public void shouldFollowOverflowStrategyWhenFull() throws InterruptedException {
+		CountDownLatch blocked = new CountDownLatch(1);
+		WriteBehindQueue dropping = new WriteBehindQueue("test", 2, 0, 0, WaitStrategy.SLEEPING, Overflow.DROP,
+				(method, arguments) -> blocked.await());
+		WriteBehindQueue callerRuns = new WriteBehindQueue("test", 2, 0, 0, WaitStrategy.SLEEPING,
+				Overflow.CALLER_RUNS, (method, arguments) -> blocked.await());
+		for (WriteBehindQueue queue : Arrays.asList(dropping, callerRuns)) {
+			queue.publish(queue.claim(0));
+			queue.publish(queue.claim(0));
+		}
+		assertEquals(WriteBehindQueue.REJECTED, dropping.claim(0));
+		assertEquals(1, dropping.getDropped());
+		assertEquals(WriteBehindQueue.RUN_ON_CALLER, callerRuns.claim(0));
+		blocked.countDown();
+		dropping.close();
+		callerRuns.close();
+	}
+
+	@Test
+	public void shouldCountFailuresAndRunQueuedCallsOnClose() {
+		List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue queue = new WriteBehindQueue("test", 8, 1, 0, WaitStrategy.SLEEPING, Overflow.BLOCK,
+				(method, arguments) -> {
+					if (method == 1) {
+						throw new IllegalStateException("failed");
+					}
+					received.add(arguments.getInt(0));
+				});
+		for (int i = 0; i < 3; i++) {
+			long sequence = queue.claim(i % 2);
+			queue.putInt(sequence, 0, i);
+			queue.publish(sequence);
+		}
+		queue.close();
+		assertEquals(Arrays.asList(0, 2), received);
+		assertEquals(1, queue.getFailed());
+		assertEquals(1, uncaught.size());
+		assertEquals("failed", uncaught.get(0).getMessage());
+		try {
+			queue.claim(0);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("The write-behind queue of test is closed", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldStopConsumerOnError() {
+		AssertionError error = new AssertionError("broken");
+		WriteBehindQueue queue = new WriteBehindQueue("test", 8, 0, 0, WaitStrategy.SLEEPING, Overflow.BLOCK,
+				(method, arguments) -> {
+					throw error;
+				});
+		queue.publish(queue.claim(0));
+		queue.close();
+		assertEquals(1, queue.getFailed());
+		assertEquals(Arrays.asList(error), uncaught);
+		try {
+			queue.claim(0);
+			fail();
+		} catch (IllegalStateException e) {
+			assertSame(error, e.getCause());
+		}
+	}
+
+	@Test
+	public void shouldKeepInterruptStatusWhenInterruptedWhileClosing() {
+		CountDownLatch blocked = new CountDownLatch(1);
+		List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue queue = new WriteBehindQueue("test", 2, 1, 0, WaitStrategy.SLEEPING, Overflow.BLOCK,
+				(method, arguments) -> {
+					blocked.await();
+					received.add(arguments.getInt(0));
+				});
+		long sequence = queue.claim(0);
+		queue.putInt(sequence, 0, 42);
+		queue.publish(sequence);
+		Thread.currentThread().interrupt();
+		queue.close();
+		assertTrue(Thread.interrupted());
+		blocked.countDown();
+		queue.close();
+		assertEquals(Arrays.asList(42), received);
+	}
+}